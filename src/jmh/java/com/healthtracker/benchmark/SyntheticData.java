@@ -0,0 +1,156 @@
+package com.healthtracker.benchmark;
+
+import com.healthtracker.model.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Deterministic synthetic data for the JMH benchmarks
+ *
+ * Symptom popularity follows a Zipf distribution: a few symptoms (fever,
+ * headache, ...) appear in many diseases and are reported by most users,
+ * the long tail in a handful. That is what makes posting lists and candidate
+ * sets realistic instead of uniformly small.
+ */
+public final class SyntheticData {
+
+    private static final String[] SEVERITIES = { "MILD", "MODERATE", "SEVERE", "CRITICAL" };
+
+    private final Random random;
+    private final List<String> vocabulary;
+    private final double[] cumulative;
+
+    /**
+     * @param vocabularySize Number of distinct symptom names
+     * @param seed           Random seed, same seed = same data
+     */
+    public SyntheticData(int vocabularySize, long seed) {
+        this.random = new Random(seed);
+        this.vocabulary = new ArrayList<>(vocabularySize);
+        this.cumulative = new double[vocabularySize];
+
+        double sum = 0;
+        for (int i = 0; i < vocabularySize; i++) {
+            vocabulary.add("Triệu chứng " + i);
+            sum += 1.0 / (i + 1);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < vocabularySize; i++) {
+            cumulative[i] /= sum;
+        }
+    }
+
+    /**
+     * Vocabulary size that grows with the knowledge base (50 for 100 diseases, 5000 for 100k)
+     */
+    public static int vocabularySizeFor(int diseases) {
+        return Math.max(50, Math.min(5000, diseases / 20));
+    }
+
+    /**
+     * Knowledge base of diseases with 3-8 weighted patterns, about one in six critical
+     */
+    public List<SymptomDiseaseMapping> knowledgeBase(int diseases) {
+        List<SymptomDiseaseMapping> mappings = new ArrayList<>(diseases);
+        for (int d = 0; d < diseases; d++) {
+            List<SymptomPattern> patterns = new ArrayList<>();
+            for (int p = 3 + random.nextInt(6); p > 0; p--) {
+                SymptomPattern pattern = new SymptomPattern();
+                pattern.setSymptomName(symptomName());
+                pattern.setWeight(5 + random.nextInt(30));
+                pattern.setIsCritical(random.nextInt(6) == 0);
+                patterns.add(pattern);
+            }
+
+            SymptomDiseaseMapping mapping = new SymptomDiseaseMapping();
+            mapping.setId(String.format("%024x", d));
+            mapping.setDiseaseName("Bệnh " + d);
+            mapping.setSeverity(SEVERITIES[random.nextInt(SEVERITIES.length)]);
+            mapping.setRequiresImmediateAttention(random.nextInt(10) == 0);
+            mapping.setSymptomPatterns(patterns);
+            mappings.add(mapping);
+        }
+        return mappings;
+    }
+
+    /**
+     * Active symptoms of one user, started within the last two weeks
+     */
+    public List<Symptom> activeSymptoms(int count) {
+        Set<String> names = new LinkedHashSet<>();
+        while (names.size() < Math.min(count, vocabulary.size())) {
+            names.add(symptomName());
+        }
+
+        List<Symptom> symptoms = new ArrayList<>(names.size());
+        for (String name : names) {
+            symptoms.add(Symptom.builder()
+                    .userId("bench@example.com")
+                    .symptomName(name)
+                    .severity(1 + random.nextInt(10))
+                    .startDate(LocalDateTime.now().minusDays(random.nextInt(14)))
+                    .build());
+        }
+        return symptoms;
+    }
+
+    /**
+     * Metrics of one user over the last six months, perType readings of each type
+     */
+    public List<HealthMetric> metrics(int perType) {
+        LocalDateTime now = LocalDateTime.now();
+        List<HealthMetric> metrics = new ArrayList<>(perType * 3);
+        for (int i = 0; i < perType; i++) {
+            LocalDateTime measuredAt = now.minusMinutes((long) random.nextInt(180 * 24 * 60));
+            metrics.add(HealthMetric.builder()
+                    .userId("bench@example.com")
+                    .metricType(MetricType.BLOOD_PRESSURE)
+                    .systolic(110.0 + random.nextInt(50))
+                    .diastolic(70.0 + random.nextInt(30))
+                    .measuredAt(measuredAt)
+                    .build());
+            metrics.add(HealthMetric.builder()
+                    .userId("bench@example.com")
+                    .metricType(MetricType.BLOOD_SUGAR)
+                    .value(80.0 + random.nextInt(70))
+                    .measuredAt(measuredAt.minusHours(1))
+                    .build());
+            metrics.add(HealthMetric.builder()
+                    .userId("bench@example.com")
+                    .metricType(MetricType.WEIGHT)
+                    .value(60.0 + random.nextInt(300) / 10.0)
+                    .measuredAt(measuredAt.minusHours(2))
+                    .build());
+        }
+        Collections.shuffle(metrics, random);
+        return metrics;
+    }
+
+    /**
+     * User with a complete, moderately risky health profile
+     */
+    public User user() {
+        return User.builder()
+                .email("bench@example.com")
+                .dateOfBirth(LocalDate.now().minusYears(52))
+                .build();
+    }
+
+    public HealthProfile profile() {
+        return HealthProfile.builder()
+                .userId("bench@example.com")
+                .bmi(27.4)
+                .smokingStatus("FORMER")
+                .exerciseFrequency("SEDENTARY")
+                .chronicDiseases(List.of("Tăng huyết áp"))
+                .familyMedicalHistory(List.of("Tiểu đường type 2", "Bệnh tim"))
+                .build();
+    }
+
+    private String symptomName() {
+        int i = Arrays.binarySearch(cumulative, random.nextDouble());
+        return vocabulary.get(Math.min(i < 0 ? -i - 1 : i, vocabulary.size() - 1));
+    }
+}
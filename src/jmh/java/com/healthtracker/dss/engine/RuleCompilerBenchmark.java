@@ -0,0 +1,88 @@
+package com.healthtracker.dss.engine;
+
+import com.healthtracker.dss.rules.BloodSugarRule;
+import com.healthtracker.model.HealthMetric;
+import com.healthtracker.model.MetricType;
+import com.healthtracker.model.RuleDefinition;
+import com.healthtracker.model.RuleThreshold;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.context.support.ReloadableResourceBundleMessageSource;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compiled rule definition vs the handwritten BloodSugarRule it mirrors
+ *
+ * Both evaluate the same series; "fires" selects whether the rule returns
+ * early (normal sugar) or builds a recommendation (critical sugar).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RuleCompilerBenchmark {
+
+    @Param({ "false", "true" })
+    private boolean fires;
+
+    private MetricSeries series;
+    private Rule<MetricSeries> handwritten;
+    private Rule<MetricSeries> compiled;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        LocalDateTime now = LocalDateTime.now();
+        List<HealthMetric> metrics = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            metrics.add(HealthMetric.builder()
+                    .metricType(MetricType.BLOOD_SUGAR)
+                    .value((fires ? 210.0 : 90.0) + i % 5)
+                    .measuredAt(now.minusHours(8L * i))
+                    .build());
+        }
+        series = MetricSeries.of(metrics);
+
+        // Same message source as the application
+        ReloadableResourceBundleMessageSource messageSource = new ReloadableResourceBundleMessageSource();
+        messageSource.setBasename("classpath:messages");
+        messageSource.setDefaultEncoding("UTF-8");
+        messageSource.setCacheSeconds(3600);
+        messageSource.setUseCodeAsDefaultMessage(true);
+        LocaleContextHolder.setDefaultLocale(new Locale("vi"));
+
+        handwritten = new BloodSugarRule();
+        compiled = new RuleCompiler(messageSource).compile(RuleDefinition.builder()
+                .name("BLOOD_SUGAR_EVALUATION")
+                .metricType(MetricType.BLOOD_SUGAR)
+                .aggregate(RuleDefinition.Aggregate.AVERAGE)
+                .windowReadings(3)
+                .minReadings(2)
+                .operator(RuleDefinition.Operator.GTE)
+                .thresholds(List.of(
+                        threshold(200, "CRITICAL", "rule.bloodsugar.critical"),
+                        threshold(126, "WARNING", "rule.bloodsugar.high"),
+                        threshold(100, "WARNING", "rule.bloodsugar.prediabetes")))
+                .build());
+    }
+
+    @Benchmark
+    public RuleOutcome handwritten() {
+        return handwritten.evaluate(series);
+    }
+
+    @Benchmark
+    public RuleOutcome compiled() {
+        return compiled.evaluate(series);
+    }
+
+    private static RuleThreshold threshold(double value, String severity, String messageKey) {
+        return RuleThreshold.builder().value(value).severity(severity).messageKey(messageKey).build();
+    }
+}
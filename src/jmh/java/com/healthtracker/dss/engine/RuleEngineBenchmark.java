@@ -0,0 +1,67 @@
+package com.healthtracker.dss.engine;
+
+import com.healthtracker.benchmark.SyntheticData;
+import com.healthtracker.dss.rules.BMIRule;
+import com.healthtracker.dss.rules.BloodPressureRule;
+import com.healthtracker.dss.rules.BloodSugarRule;
+import com.healthtracker.model.HealthMetric;
+import com.healthtracker.model.HealthProfile;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RuleEngine with the built-in rules
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RuleEngineBenchmark {
+
+    @Param({ "10", "360" })
+    private int readingsPerType;
+
+    /**
+     * 1 = always parallel, 100 = always sequential (shows the cutover overhead)
+     */
+    @Param({ "100", "1" })
+    private int parallelThreshold;
+
+    private RuleEngine engine;
+    private List<HealthMetric> metrics;
+    private HealthProfile profile;
+    private List<Rule<MetricSeries>> metricRules;
+    private List<Rule<HealthProfile>> profileRules;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SyntheticData data = new SyntheticData(50, 42);
+        metrics = data.metrics(readingsPerType);
+        profile = data.profile();
+        engine = new RuleEngine(parallelThreshold, 1000, RuleMetrics.disabled(), RuleOutcomeCache.disabled());
+        metricRules = List.of(new BloodPressureRule(), new BloodSugarRule());
+        profileRules = List.of(new BMIRule());
+    }
+
+    @Benchmark
+    public MetricSeries buildSeries() {
+        return MetricSeries.of(metrics);
+    }
+
+    /**
+     * Includes building the series, as every evaluation has to
+     */
+    @Benchmark
+    public RuleResult metricRules() {
+        return engine.evaluateRules(MetricSeries.of(metrics), metricRules);
+    }
+
+    @Benchmark
+    public RuleResult profileRules() {
+        return engine.evaluateRules(profile, profileRules);
+    }
+}
@@ -0,0 +1,97 @@
+package com.healthtracker.dss.engine;
+
+import com.healthtracker.benchmark.SyntheticData;
+import com.healthtracker.model.MetricType;
+import com.healthtracker.model.RuleDefinition;
+import com.healthtracker.model.RuleThreshold;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.support.StaticMessageSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Large catalogs of compiled rule definitions: every rule on its own vs one
+ * shared network
+ *
+ * Rules are drawn from a fixed set of windows, aggregates and thresholds, as
+ * real catalogs repeat "average of the last 3 readings >= 140" and similar
+ * conditions, so the number of distinct conditions stays flat while the
+ * number of rules grows.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RuleNetworkBenchmark {
+
+    private static final MetricType[] TYPES = { MetricType.BLOOD_PRESSURE, MetricType.BLOOD_SUGAR, MetricType.WEIGHT };
+    private static final int[] WINDOW_READINGS = { 1, 3, 7, 30 };
+    private static final int[] WINDOW_DAYS = { 7, 30, 90 };
+
+    @Param({ "100", "500" })
+    private int rules;
+
+    private RuleEngine engine;
+    private MetricSeries series;
+    private RuleNetwork network;
+    private List<Rule<MetricSeries>> rulesByPriority;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        series = MetricSeries.of(new SyntheticData(50, 42).metrics(90));
+        // Sequential, so both variants run on one thread
+        engine = new RuleEngine(Integer.MAX_VALUE, 1000, RuleMetrics.disabled(), RuleOutcomeCache.disabled());
+
+        StaticMessageSource messageSource = new StaticMessageSource();
+        messageSource.setUseCodeAsDefaultMessage(true);
+
+        Random random = new Random(7);
+        RuleDefinition.Aggregate[] aggregates = RuleDefinition.Aggregate.values();
+        List<RuleDefinition> definitions = new ArrayList<>(rules);
+        for (int i = 0; i < rules; i++) {
+            // Half "last N readings", half "last N days"
+            boolean byDays = random.nextBoolean();
+            int readings = WINDOW_READINGS[random.nextInt(WINDOW_READINGS.length)];
+            // Thresholds above the synthetic ranges, so most rules do not fire
+            double threshold = 160 + 20 * random.nextInt(4);
+            definitions.add(RuleDefinition.builder()
+                    .name("RULE_" + i)
+                    .metricType(TYPES[random.nextInt(TYPES.length)])
+                    .aggregate(aggregates[random.nextInt(aggregates.length)])
+                    .windowReadings(byDays ? null : readings)
+                    .windowDays(byDays ? WINDOW_DAYS[random.nextInt(WINDOW_DAYS.length)] : null)
+                    .minReadings(byDays ? 2 : Math.min(2, readings))
+                    .operator(RuleDefinition.Operator.GTE)
+                    .thresholds(List.of(
+                            RuleThreshold.builder().value(threshold + 40).severity("CRITICAL").messageKey("rule.critical").build(),
+                            RuleThreshold.builder().value(threshold).severity("WARNING").messageKey("rule.high").build()))
+                    .build());
+        }
+        network = new RuleCompiler(messageSource).compileNetwork(definitions);
+        rulesByPriority = RuleEngine.byPriority(network.getRules());
+    }
+
+    @Benchmark
+    public RuleResult independentRules() {
+        return engine.evaluateRules(series, network.getRules());
+    }
+
+    @Benchmark
+    public RuleResult sharedNetwork() {
+        return engine.evaluateRules(series, List.of(), network);
+    }
+
+    /**
+     * Short-circuit mode, worst case: no rule reaches CRITICAL on the
+     * synthetic data, so every rule still runs (on its own, as in independentRules)
+     */
+    @Benchmark
+    public RuleResult worstSeverity() {
+        return engine.evaluateWorstSeverity(series, rulesByPriority);
+    }
+}
@@ -0,0 +1,79 @@
+package com.healthtracker.service.dss;
+
+import com.healthtracker.benchmark.SyntheticData;
+import com.healthtracker.dss.engine.MetricSeries;
+import com.healthtracker.dss.risk.CardiovascularRiskModel;
+import com.healthtracker.dss.risk.DiabetesRiskModel;
+import com.healthtracker.dss.risk.RiskInput;
+import com.healthtracker.dss.risk.RiskModel;
+import com.healthtracker.dss.risk.WeightTrendModel;
+import com.healthtracker.model.HealthMetric;
+import com.healthtracker.model.HealthPrediction;
+import com.healthtracker.model.MetricTrend;
+import com.healthtracker.model.MetricType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Risk models over six months of metrics, without the database
+ *
+ * The MetricSeries is built once per user and shared by all models, so
+ * its cost is measured in RuleEngineBenchmark.buildSeries instead. The
+ * weight trend model reads a prebuilt MetricTrend: its cost does not grow
+ * with the readings.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RiskPredictionBenchmark {
+
+    /**
+     * Readings per metric type: occasional logging vs. twice a day for six months
+     */
+    @Param({ "10", "360" })
+    private int readingsPerType;
+
+    private final RiskModel cardiovascular = new CardiovascularRiskModel();
+    private final RiskModel diabetes = new DiabetesRiskModel();
+    private final RiskModel weightTrend = new WeightTrendModel();
+
+    private RiskInput input;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SyntheticData data = new SyntheticData(50, 42);
+        List<HealthMetric> metrics = data.metrics(readingsPerType);
+
+        // Weight trend as MetricTrendService maintains it
+        MetricTrend weight = MetricTrend.builder().metricType(MetricType.WEIGHT).build();
+        metrics.stream()
+                .filter(metric -> metric.getMetricType() == MetricType.WEIGHT)
+                .sorted(Comparator.comparing(HealthMetric::getMeasuredAt))
+                .forEach(metric -> weight.add(metric.getMeasuredAt(), metric.getValue(), 0.3));
+
+        input = new RiskInput(data.user(), data.profile(), MetricSeries.of(metrics),
+                Map.of(MetricType.WEIGHT, weight));
+    }
+
+    @Benchmark
+    public HealthPrediction cardiovascularRisk() {
+        return cardiovascular.predict(input);
+    }
+
+    @Benchmark
+    public HealthPrediction diabetesRisk() {
+        return diabetes.predict(input);
+    }
+
+    @Benchmark
+    public HealthPrediction weightTrend() {
+        return weightTrend.predict(input);
+    }
+}
@@ -0,0 +1,93 @@
+package com.healthtracker.service.dss;
+
+import com.healthtracker.benchmark.SyntheticData;
+import com.healthtracker.dss.knowledge.SymptomDiseaseIndex;
+import com.healthtracker.dto.response.DiseaseMatchScore;
+import com.healthtracker.model.Symptom;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Symptom analysis hot path: encoding, scoring, top-k ranking and urgency
+ *
+ * Runs against synthetic knowledge bases of 100, 10k and 100k diseases with
+ * Zipf-distributed symptoms (see {@link SyntheticData}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class SymptomAnalysisBenchmark {
+
+    @Param({ "100", "10000", "100000" })
+    private int diseases;
+
+    @Param({ "3", "8" })
+    private int userSymptoms;
+
+    private SymptomAnalysisService service;
+    private SymptomDiseaseIndex index;
+    private List<Symptom> symptoms;
+    private List<String> symptomNames;
+    private long[] encoded;
+    private int[] candidates;
+    private List<DiseaseMatchScore> ranked;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SyntheticData data = new SyntheticData(SyntheticData.vocabularySizeFor(diseases), 42);
+        index = SymptomDiseaseIndex.build(data.knowledgeBase(diseases), 1);
+        symptoms = data.activeSymptoms(userSymptoms);
+        symptomNames = symptoms.stream().map(Symptom::getSymptomName).toList();
+        encoded = index.encode(symptomNames);
+        candidates = index.findCandidateOrdinals(encoded);
+
+        // Only the pure scoring methods are benchmarked - no repositories needed
+        service = new SymptomAnalysisService(null, null, null, null, null);
+        ranked = service.rankCandidates(index, encoded, candidates);
+    }
+
+    @Benchmark
+    public long[] encodeSymptoms() {
+        return index.encode(symptomNames);
+    }
+
+    @Benchmark
+    public int[] findCandidates() {
+        return index.findCandidateOrdinals(encoded);
+    }
+
+    /**
+     * Full match score of every candidate (what ranking did before pruning)
+     */
+    @Benchmark
+    public void scoreAllCandidates(Blackhole blackhole) {
+        for (int disease : candidates) {
+            blackhole.consume(index.score(disease, encoded));
+        }
+    }
+
+    @Benchmark
+    public List<DiseaseMatchScore> rankCandidates() {
+        return service.rankCandidates(index, encoded, candidates);
+    }
+
+    /**
+     * Encode, find candidates and rank - the whole in-memory part of an analysis
+     */
+    @Benchmark
+    public List<DiseaseMatchScore> analyze() {
+        long[] bits = index.encode(symptomNames);
+        return service.rankCandidates(index, bits, index.findCandidateOrdinals(bits));
+    }
+
+    @Benchmark
+    public double calculateUrgencyScore() {
+        return service.calculateUrgencyScore(symptoms, ranked);
+    }
+}
@@ -0,0 +1,15 @@
+package com.healthtracker.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Scheduled jobs (e.g. the nightly rule sweep)
+ * Disabled with dss.scheduling.enabled=false, e.g. on instances that only serve requests
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "dss.scheduling.enabled", havingValue = "true", matchIfMissing = true)
+public class SchedulingConfig {
+}
@@ -1,12 +1,21 @@
 package com.healthtracker.controller;
 
+import com.healthtracker.dss.engine.RuleMetrics;
+import com.healthtracker.dss.engine.RuleTrace;
+import com.healthtracker.dto.request.RuleDefinitionRequest;
 import com.healthtracker.dto.response.SymptomAnalysisResponse;
 import com.healthtracker.model.HealthInsight;
 import com.healthtracker.model.HealthPrediction;
+import com.healthtracker.model.JobCheckpoint;
+import com.healthtracker.model.RuleDefinition;
 import com.healthtracker.repository.HealthInsightRepository;
 import com.healthtracker.repository.HealthPredictionRepository;
 import com.healthtracker.service.dss.RiskPredictionService;
+import com.healthtracker.service.dss.RiskScoringJob;
+import com.healthtracker.service.dss.RuleCatalog;
+import com.healthtracker.service.dss.RuleSweepJob;
 import com.healthtracker.service.dss.ISymptomAnalysisService;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
@@ -36,6 +45,10 @@ public class DSSController {
     private final RiskPredictionService riskPredictionService;
     private final HealthInsightRepository insightRepository;
     private final HealthPredictionRepository predictionRepository;
+    private final RuleCatalog ruleCatalog;
+    private final RuleMetrics ruleMetrics;
+    private final RuleSweepJob ruleSweepJob;
+    private final RiskScoringJob riskScoringJob;
 
     /**
      * Analyze user's symptoms and predict possible conditions
@@ -127,6 +140,7 @@ public class DSSController {
         }
 
         insight.setIsRead(true);
+        insight.setReadAt(LocalDateTime.now());
         insightRepository.save(insight);
 
         return ResponseEntity.ok(insight);
@@ -205,4 +219,103 @@ public class DSSController {
 
         return ResponseEntity.ok(response);
     }
+
+    /**
+     * List declarative rule definitions
+     */
+    @GetMapping("/rules")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public ResponseEntity<List<RuleDefinition>> getRuleDefinitions() {
+        return ResponseEntity.ok(ruleCatalog.getDefinitions());
+    }
+
+    /**
+     * Create or update the rule definition of that name; active immediately, no restart needed
+     */
+    @PutMapping("/rules")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public ResponseEntity<RuleDefinition> saveRuleDefinition(@Valid @RequestBody RuleDefinitionRequest request) {
+        return ResponseEntity.ok(ruleCatalog.saveDefinition(request));
+    }
+
+    /**
+     * Delete a rule definition
+     */
+    @DeleteMapping("/rules/{id}")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public ResponseEntity<Void> deleteRuleDefinition(@PathVariable String id) {
+        ruleCatalog.deleteDefinition(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Recompile rule definitions now (e.g. after editing the collection directly)
+     */
+    @PostMapping("/rules/reload")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public ResponseEntity<Map<String, Object>> reloadRules() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("activeRules", ruleCatalog.reload());
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Latest slow rule evaluations, with the time and outcome of every rule
+     */
+    @GetMapping("/rules/traces")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public ResponseEntity<List<RuleTrace>> getSlowRuleTraces() {
+        return ResponseEntity.ok(ruleMetrics.getSlowTraces());
+    }
+
+    /**
+     * Progress of the current or last nightly rule sweep
+     */
+    @GetMapping("/sweep")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public ResponseEntity<JobCheckpoint> getRuleSweep() {
+        return ruleSweepJob.getCheckpoint()
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.noContent().build());
+    }
+
+    /**
+     * Start the rule sweep now, in the background (resumes an unfinished run)
+     */
+    @PostMapping("/sweep")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public ResponseEntity<Map<String, String>> startRuleSweep() {
+        ruleSweepJob.runAsync();
+
+        Map<String, String> response = new HashMap<>();
+        response.put("message", "Rule sweep started");
+
+        return ResponseEntity.accepted().body(response);
+    }
+
+    /**
+     * Progress of the current or last nightly risk scoring run
+     */
+    @GetMapping("/risk-scoring")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public ResponseEntity<JobCheckpoint> getRiskScoring() {
+        return riskScoringJob.getCheckpoint()
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.noContent().build());
+    }
+
+    /**
+     * Start risk scoring of all users now, in the background (resumes an unfinished run)
+     */
+    @PostMapping("/risk-scoring")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public ResponseEntity<Map<String, String>> startRiskScoring() {
+        riskScoringJob.runAsync();
+
+        Map<String, String> response = new HashMap<>();
+        response.put("message", "Risk scoring started");
+
+        return ResponseEntity.accepted().body(response);
+    }
 }
@@ -5,6 +5,7 @@ import com.healthtracker.dto.response.SymptomResponse;
 import com.healthtracker.mapper.SymptomMapper;
 import com.healthtracker.model.Symptom;
 import com.healthtracker.service.ISymptomService;
+import com.healthtracker.service.SymptomSuggestionService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -29,6 +30,7 @@ public class SymptomController {
 
     private final ISymptomService symptomService;
     private final SymptomMapper symptomMapper;
+    private final SymptomSuggestionService suggestionService;
 
     /**
      * Get all symptoms for authenticated user
@@ -60,6 +62,21 @@ public class SymptomController {
         return ResponseEntity.ok(responses);
     }
 
+    /**
+     * Suggest symptom names while the user types
+     *
+     * Served from memory; accents in the query are optional ("dau" -> "Đau đầu")
+     *
+     * @return Symptom names, most frequent first
+     */
+    @GetMapping("/suggest")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    public ResponseEntity<List<String>> suggestSymptoms(
+            @RequestParam("q") String query,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(suggestionService.suggest(query, limit));
+    }
+
     /**
      * Get symptom by ID
      *
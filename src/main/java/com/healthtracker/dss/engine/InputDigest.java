@@ -0,0 +1,51 @@
+package com.healthtracker.dss.engine;
+
+/**
+ * 64-bit digests of rule inputs, see {@link Rule#inputDigest}
+ *
+ * Static helpers over a long, so digesting allocates nothing:
+ * <pre>
+ * long digest = InputDigest.start();
+ * digest = InputDigest.add(digest, n);
+ * digest = InputDigest.add(digest, value);
+ * return InputDigest.finish(digest);
+ * </pre>
+ *
+ * Order-sensitive, with full avalanche per value (SplitMix64 finalizer), so
+ * colliding inputs are as unlikely as random 64-bit values colliding.
+ */
+public final class InputDigest {
+
+    /**
+     * Digest of a rule that is never memoized
+     */
+    public static final long NONE = 0L;
+
+    private InputDigest() {
+    }
+
+    public static long start() {
+        return 0x9E3779B97F4A7C15L;
+    }
+
+    public static long add(long digest, long value) {
+        return mix(Long.rotateLeft(digest, 23) ^ mix(value));
+    }
+
+    public static long add(long digest, double value) {
+        return add(digest, Double.doubleToLongBits(value));
+    }
+
+    /**
+     * Final digest, never {@link #NONE}
+     */
+    public static long finish(long digest) {
+        return digest == NONE ? 1L : digest;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,311 @@
+package com.healthtracker.dss.engine;
+
+import com.healthtracker.model.HealthMetric;
+import com.healthtracker.model.MetricType;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * Read-only, pre-indexed view of one user's metrics for rules and predictors
+ *
+ * Built once per evaluation: metrics are partitioned by type into
+ * time-sorted primitive columns (measuredAt, value and - for blood pressure -
+ * systolic/diastolic), so rules no longer filter, sort and unbox the entity
+ * list on their own.
+ *
+ * PERFORMANCE: "k-th latest" is O(1), "average of the last n" visits n
+ * readings, "average since" a binary search plus the readings since. Nothing
+ * allocates after construction.
+ *
+ * PRECISION: Averages sum the window's own values, newest first, with the
+ * same compensated summation as DoubleStream.average(), so e.g. three
+ * readings of exactly 126 average to exactly 126 however long the history.
+ * (Differences of prefix sums over the whole history do not.)
+ *
+ * Column contents per type:
+ * - BLOOD_PRESSURE: value = systolic, secondary = diastolic; readings missing either are skipped
+ * - other types: value = value; readings without a value are skipped
+ * Readings without measuredAt are skipped. Readings measured at the same
+ * time keep their input order when read from the latest backwards.
+ *
+ * Instances are immutable and safe to share across threads.
+ */
+public final class MetricSeries {
+
+    private static final MetricSeries EMPTY = new MetricSeries(new EnumMap<>(MetricType.class));
+
+    private final Map<MetricType, Column> columns;
+
+    private MetricSeries(Map<MetricType, Column> columns) {
+        this.columns = columns;
+    }
+
+    /**
+     * Build a series from metric entities (any order, any mix of types)
+     */
+    public static MetricSeries of(Collection<HealthMetric> metrics) {
+        if (metrics == null || metrics.isEmpty()) {
+            return EMPTY;
+        }
+
+        Map<MetricType, List<HealthMetric>> byType = new EnumMap<>(MetricType.class);
+        for (HealthMetric metric : metrics) {
+            if (metric == null || metric.getMetricType() == null || metric.getMeasuredAt() == null) {
+                continue;
+            }
+            boolean complete = metric.getMetricType() == MetricType.BLOOD_PRESSURE
+                    ? metric.getSystolic() != null && metric.getDiastolic() != null
+                    : metric.getValue() != null;
+            if (complete) {
+                byType.computeIfAbsent(metric.getMetricType(), type -> new ArrayList<>()).add(metric);
+            }
+        }
+
+        Map<MetricType, Column> columns = new EnumMap<>(MetricType.class);
+        byType.forEach((type, readings) -> columns.put(type, Column.of(type, readings)));
+        return new MetricSeries(columns);
+    }
+
+    /**
+     * Series of a single type from time-sorted columns (oldest first)
+     *
+     * The arrays are used as they are, not copied; secondary holds the
+     * diastolic values of blood pressure readings and is null for other types.
+     */
+    static MetricSeries ofColumn(MetricType type, long[] times, double[] values, double[] secondary) {
+        if (times.length == 0) {
+            return EMPTY;
+        }
+        Map<MetricType, Column> columns = new EnumMap<>(MetricType.class);
+        columns.put(type, new Column(times, values, secondary));
+        return new MetricSeries(columns);
+    }
+
+    /**
+     * Empty series
+     */
+    public static MetricSeries empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Number of readings of a type
+     */
+    public int count(MetricType type) {
+        Column column = columns.get(type);
+        return column != null ? column.size() : 0;
+    }
+
+    /**
+     * Number of readings of all types
+     */
+    public int size() {
+        int size = 0;
+        for (Column column : columns.values()) {
+            size += column.size();
+        }
+        return size;
+    }
+
+    /**
+     * Types having at least one reading
+     */
+    public Set<MetricType> types() {
+        return Collections.unmodifiableSet(columns.keySet());
+    }
+
+    /**
+     * Value of the k-th latest reading (0 = latest); systolic for blood pressure
+     */
+    public double latest(MetricType type, int k) {
+        Column column = column(type);
+        return column.values[column.fromEnd(k)];
+    }
+
+    /**
+     * Diastolic of the k-th latest blood pressure reading (0 = latest)
+     */
+    public double latestDiastolic(int k) {
+        Column column = column(MetricType.BLOOD_PRESSURE);
+        return column.secondary[column.fromEnd(k)];
+    }
+
+    /**
+     * Measurement time of the k-th latest reading (0 = latest), epoch millis UTC
+     */
+    public long latestTime(MetricType type, int k) {
+        Column column = column(type);
+        return column.times[column.fromEnd(k)];
+    }
+
+    /**
+     * Value of the i-th reading in chronological order (0 = oldest)
+     */
+    public double value(MetricType type, int i) {
+        return column(type).values[i];
+    }
+
+    /**
+     * Measurement time of the i-th reading in chronological order, epoch millis UTC
+     */
+    public long time(MetricType type, int i) {
+        return column(type).times[i];
+    }
+
+    /**
+     * Average value of the last n readings (fewer if there are not that many)
+     *
+     * @return Average, or NaN if there are no readings
+     */
+    public double averageOfLast(MetricType type, int n) {
+        Column column = columns.get(type);
+        return column != null ? column.averageOfLast(column.values, n) : Double.NaN;
+    }
+
+    /**
+     * Average diastolic of the last n blood pressure readings
+     *
+     * @return Average, or NaN if there are no readings
+     */
+    public double averageDiastolicOfLast(int n) {
+        Column column = columns.get(MetricType.BLOOD_PRESSURE);
+        return column != null ? column.averageOfLast(column.secondary, n) : Double.NaN;
+    }
+
+    /**
+     * Average value of the readings measured at or after since
+     *
+     * @return Average, or NaN if there are no such readings
+     */
+    public double averageSince(MetricType type, LocalDateTime since) {
+        Column column = columns.get(type);
+        if (column == null) {
+            return Double.NaN;
+        }
+        return Column.average(column.values, column.firstAtOrAfter(toEpochMilli(since)), column.size());
+    }
+
+    /**
+     * Number of readings measured at or after since
+     */
+    public int countSince(MetricType type, LocalDateTime since) {
+        Column column = columns.get(type);
+        return column != null ? column.size() - column.firstAtOrAfter(toEpochMilli(since)) : 0;
+    }
+
+    /**
+     * Epoch millis (UTC) used for all time columns
+     */
+    public static long toEpochMilli(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private Column column(MetricType type) {
+        Column column = columns.get(type);
+        if (column == null) {
+            throw new IndexOutOfBoundsException("No " + type + " readings");
+        }
+        return column;
+    }
+
+    /**
+     * Time-sorted primitive columns of one metric type
+     */
+    private static final class Column {
+        private final long[] times;
+        private final double[] values;
+        private final double[] secondary;
+
+        private Column(long[] times, double[] values, double[] secondary) {
+            this.times = times;
+            this.values = values;
+            this.secondary = secondary;
+        }
+
+        static Column of(MetricType type, List<HealthMetric> readings) {
+            int n = readings.size();
+
+            // Oldest first; equal times in reverse input order, so reading from the
+            // latest backwards returns them in input order
+            Integer[] order = new Integer[n];
+            long[] unsortedTimes = new long[n];
+            for (int i = 0; i < n; i++) {
+                order[i] = i;
+                unsortedTimes[i] = toEpochMilli(readings.get(i).getMeasuredAt());
+            }
+            Arrays.sort(order, Comparator.<Integer>comparingLong(i -> unsortedTimes[i])
+                    .thenComparing(Comparator.reverseOrder()));
+
+            boolean bloodPressure = type == MetricType.BLOOD_PRESSURE;
+            long[] times = new long[n];
+            double[] values = new double[n];
+            double[] secondary = bloodPressure ? new double[n] : null;
+            for (int i = 0; i < n; i++) {
+                HealthMetric metric = readings.get(order[i]);
+                times[i] = unsortedTimes[order[i]];
+                if (bloodPressure) {
+                    values[i] = metric.getSystolic();
+                    secondary[i] = metric.getDiastolic();
+                } else {
+                    values[i] = metric.getValue();
+                }
+            }
+            return new Column(times, values, secondary);
+        }
+
+        int size() {
+            return times.length;
+        }
+
+        int fromEnd(int k) {
+            if (k < 0 || k >= times.length) {
+                throw new IndexOutOfBoundsException("Reading " + k + " from end, " + times.length + " readings");
+            }
+            return times.length - 1 - k;
+        }
+
+        double averageOfLast(double[] column, int n) {
+            int count = Math.min(n, times.length);
+            return count > 0 ? average(column, times.length - count, times.length) : Double.NaN;
+        }
+
+        /**
+         * Average of column[from, to), summed newest first with Kahan compensation
+         *
+         * @return Average, or NaN if the range is empty
+         */
+        static double average(double[] column, int from, int to) {
+            if (from >= to) {
+                return Double.NaN;
+            }
+            double sum = 0;
+            double compensation = 0;
+            for (int i = to - 1; i >= from; i--) {
+                double y = column[i] - compensation;
+                double t = sum + y;
+                compensation = (t - sum) - y;
+                sum = t;
+            }
+            return (sum - compensation) / (to - from);
+        }
+
+        /**
+         * Index of the first reading at or after the given time (size() if none)
+         */
+        int firstAtOrAfter(long epochMilli) {
+            int low = 0;
+            int high = times.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (times[mid] < epochMilli) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
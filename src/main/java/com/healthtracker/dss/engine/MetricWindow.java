@@ -0,0 +1,162 @@
+package com.healthtracker.dss.engine;
+
+import com.healthtracker.model.HealthMetric;
+import com.healthtracker.model.MetricType;
+
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * Rolling window of the latest readings of one metric type for one user
+ *
+ * A ring buffer of primitive columns (measuredAt, value and - for blood
+ * pressure - diastolic) kept in time order. When full, a new reading evicts
+ * the oldest; a reading older than everything in a full window is ignored.
+ * Readings are also ignored when incomplete (same rules as
+ * {@link MetricSeries}) or already in the window (same id).
+ *
+ * PERFORMANCE: Adding the newest reading is O(1), a backfilled one O(capacity).
+ * {@link #toSeries()} copies at most capacity readings, so evaluating
+ * windowed rules after each new reading costs the same whatever the length
+ * of the user's history.
+ *
+ * Not thread-safe; callers synchronize per user.
+ */
+public final class MetricWindow {
+
+    private final MetricType type;
+    private final String[] ids;
+    private final long[] times;
+    private final double[] values;
+    private final double[] secondary;
+
+    // Oldest reading is at start, the i-th at (start + i) % capacity
+    private int start;
+    private int size;
+
+    /**
+     * @param type     Metric type of the readings
+     * @param capacity Number of latest readings kept
+     */
+    public MetricWindow(MetricType type, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.type = type;
+        this.ids = new String[capacity];
+        this.times = new long[capacity];
+        this.values = new double[capacity];
+        this.secondary = type == MetricType.BLOOD_PRESSURE ? new double[capacity] : null;
+    }
+
+    /**
+     * Window seeded with existing readings (any order, extra readings are dropped)
+     */
+    public static MetricWindow of(MetricType type, int capacity, Collection<HealthMetric> readings) {
+        MetricWindow window = new MetricWindow(type, capacity);
+        for (HealthMetric reading : readings) {
+            window.add(reading);
+        }
+        return window;
+    }
+
+    /**
+     * Add a reading
+     *
+     * @return true if the reading is now in the window
+     */
+    public boolean add(HealthMetric metric) {
+        if (metric == null || metric.getMetricType() != type || metric.getMeasuredAt() == null
+                || (secondary != null ? metric.getSystolic() == null || metric.getDiastolic() == null
+                                      : metric.getValue() == null)
+                || contains(metric.getId())) {
+            return false;
+        }
+
+        long time = MetricSeries.toEpochMilli(metric.getMeasuredAt());
+
+        // Insert after readings measured at the same time, so it reads as the newer one
+        int position = size;
+        while (position > 0 && times[index(position - 1)] > time) {
+            position--;
+        }
+
+        int capacity = times.length;
+        if (size == capacity) {
+            if (position == 0) {
+                return false;
+            }
+            start = (start + 1) % capacity;
+            size--;
+            position--;
+        }
+
+        for (int i = size; i > position; i--) {
+            int to = index(i);
+            int from = index(i - 1);
+            ids[to] = ids[from];
+            times[to] = times[from];
+            values[to] = values[from];
+            if (secondary != null) {
+                secondary[to] = secondary[from];
+            }
+        }
+
+        int at = index(position);
+        ids[at] = metric.getId();
+        times[at] = time;
+        if (secondary != null) {
+            values[at] = metric.getSystolic();
+            secondary[at] = metric.getDiastolic();
+        } else {
+            values[at] = metric.getValue();
+        }
+        size++;
+        return true;
+    }
+
+    /**
+     * Number of readings in the window
+     */
+    public int size() {
+        return size;
+    }
+
+    public MetricType getType() {
+        return type;
+    }
+
+    /**
+     * Snapshot of the window as a series (oldest first)
+     */
+    public MetricSeries toSeries() {
+        long[] seriesTimes = new long[size];
+        double[] seriesValues = new double[size];
+        double[] seriesSecondary = secondary != null ? new double[size] : null;
+        for (int i = 0; i < size; i++) {
+            int at = index(i);
+            seriesTimes[i] = times[at];
+            seriesValues[i] = values[at];
+            if (secondary != null) {
+                seriesSecondary[i] = secondary[at];
+            }
+        }
+        return MetricSeries.ofColumn(type, seriesTimes, seriesValues, seriesSecondary);
+    }
+
+    private boolean contains(String id) {
+        if (id == null) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (Objects.equals(ids[index(i)], id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int index(int i) {
+        return (start + i) % times.length;
+    }
+}
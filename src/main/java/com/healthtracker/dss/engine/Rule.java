@@ -3,6 +3,9 @@ package com.healthtracker.dss.engine;
 /**
  * Interface for health rules in the DSS
  * 
+ * Rules must be stateless: everything an evaluation produces is returned in
+ * its {@link RuleOutcome}, so one instance can be shared across threads.
+ * 
  * @param <T> Type of input data for the rule
  */
 public interface Rule<T> {
@@ -11,29 +14,65 @@ public interface Rule<T> {
      * Evaluate the rule against input data
      * 
      * @param input Input data to evaluate
-     * @return true if rule condition is met, false otherwise
+     * @return Outcome with severity and recommendation if the rule condition is met,
+     *         {@link RuleOutcome#notFired()} otherwise
      */
-    boolean evaluate(T input);
+    RuleOutcome evaluate(T input);
     
     /**
-     * Get recommendation text when rule fires
+     * Get unique name of the rule
      * 
-     * @return Recommendation text
+     * @return Rule name
      */
-    String getRecommendation();
+    String getRuleName();
     
     /**
-     * Get severity level of the rule
+     * Highest severity this rule can return: INFO, WARNING or CRITICAL
+     * 
+     * Used by {@link RuleEngine#evaluateWorstSeverity} to evaluate the rules
+     * that can raise the severity first and skip the others. A rule must
+     * never return a higher severity than declared, or it may be skipped.
      * 
-     * @return Severity: INFO, WARNING, CRITICAL
+     * @return CRITICAL unless overridden
      */
-    String getSeverity();
+    default String getMaxSeverity() {
+        return "CRITICAL";
+    }
     
     /**
-     * Get unique name of the rule
+     * Relative cost of one evaluation: 1 for a few O(1) lookups, about one
+     * more per reading visited
      * 
-     * @return Rule name
+     * Only orders rules of the same max severity, so it need not be exact.
+     * 
+     * @return 1 unless overridden
      */
-    String getRuleName();
+    default int getEstimatedCost() {
+        return 1;
+    }
+    
+    /**
+     * Digest of exactly the inputs {@link #evaluate} reads, for memoization
+     * 
+     * Two inputs with the same digest must produce the same outcome (in the
+     * same locale). Build it with {@link InputDigest}; it should cost much
+     * less than the evaluation it saves, e.g. the recommendation text.
+     * 
+     * @return {@link InputDigest#NONE} to never memoize this rule (default)
+     */
+    default long inputDigest(T input) {
+        return InputDigest.NONE;
+    }
+    
+    /**
+     * Version of the rule logic, part of the memoization key
+     * 
+     * Outcomes are only memoized in memory, so a redeploy forgets them;
+     * rules changing at runtime (compiled definitions) must change it.
+     * 
+     * @return "1" unless overridden
+     */
+    default String getVersion() {
+        return "1";
+    }
 }
-
@@ -1,17 +1,83 @@
 package com.healthtracker.dss.engine;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.i18n.LocaleContext;
+import org.springframework.context.i18n.LocaleContextHolder;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.*;
 
 /**
  * Rule engine for evaluating health rules
+ *
+ * Stateless: rules return their outcomes and every evaluation builds its own
+ * RuleResult, so one engine can be shared across threads without locking.
+ *
+ * PERFORMANCE: Rule sets of at least {@code dss.rules.parallel-threshold}
+ * rules are fanned out on virtual threads, so latency tracks the slowest rule
+ * instead of the sum. A rule that does not finish within
+ * {@code dss.rules.timeout-ms} is cancelled and skipped. Outcomes are merged
+ * in rule list order, so fired rules, recommendations and the highest
+ * severity are the same as with sequential evaluation.
+ *
+ * {@link #evaluateWorstSeverity} is a short-circuit mode for callers that
+ * only need the highest severity (e.g. whether to push a CRITICAL alert).
+ *
+ * Every rule is timed and its outcome counted per rule name by
+ * {@link RuleMetrics}; slow evaluations are traced in full.
+ *
+ * Rules declaring an {@link Rule#inputDigest} are evaluated through
+ * {@link RuleOutcomeCache}, so unchanged inputs return the memoized outcome.
  */
 @Component
 @Slf4j
 public class RuleEngine {
     
+    /**
+     * Highest declared max severity first, then cheapest first
+     */
+    private static final Comparator<Rule<?>> PRIORITY = Comparator
+            .<Rule<?>>comparingInt(rule -> -RuleResult.severityRank(rule.getMaxSeverity()))
+            .thenComparingInt(Rule::getEstimatedCost);
+    
+    private static final int CRITICAL = RuleResult.severityRank("CRITICAL");
+    
+    private final int parallelThreshold;
+    
+    private final long ruleTimeoutMs;
+    
+    /**
+     * Virtual thread per rule - nothing is pooled, so nothing to shut down
+     */
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    
+    private final RuleMetrics metrics;
+    
+    private final RuleOutcomeCache outcomeCache;
+    
+    /**
+     * @param parallelThreshold Smallest rule set evaluated in parallel
+     * @param ruleTimeoutMs     Time a rule may take in parallel mode
+     * @param metrics           Instrumentation of the evaluations, or {@link RuleMetrics#disabled()}
+     * @param outcomeCache      Memoized rule outcomes, or {@link RuleOutcomeCache#disabled()}
+     */
+    @Autowired
+    public RuleEngine(
+            @Value("${dss.rules.parallel-threshold:8}") int parallelThreshold,
+            @Value("${dss.rules.timeout-ms:250}") long ruleTimeoutMs,
+            RuleMetrics metrics,
+            RuleOutcomeCache outcomeCache) {
+        this.parallelThreshold = parallelThreshold;
+        this.ruleTimeoutMs = ruleTimeoutMs;
+        this.metrics = metrics;
+        this.outcomeCache = outcomeCache;
+    }
+    
     /**
      * Evaluate a list of rules against input data
      * 
@@ -21,27 +87,246 @@ public class RuleEngine {
      * @return RuleResult containing all fired rules and recommendations
      */
     public <T> RuleResult evaluateRules(T input, List<Rule<T>> rules) {
-        RuleResult result = new RuleResult();
+        RuleMetrics.Evaluation evaluation = metrics.isEnabled()
+                ? metrics.start(rules, input instanceof MetricSeries series ? series.size() : -1)
+                : null;
         
-        log.debug("Evaluating {} rules", rules.size());
+        RuleResult result = evaluate(input, rules, evaluation);
         
-        for (Rule<T> rule : rules) {
+        if (evaluation != null) {
+            evaluation.finish();
+        }
+        return result;
+    }
+    
+    /**
+     * Evaluate rules and a rule network against a user's metrics
+     * 
+     * The network is evaluated in one pass on the calling thread - with its
+     * conditions shared, it costs about as much as a few independent rules.
+     * Its outcomes are merged after those of the rules, in network rule order.
+     * 
+     * @param series  Metrics of one user
+     * @param rules   Rules evaluated independently (e.g. handwritten rules)
+     * @param network Compiled rule definitions
+     * @return RuleResult containing all fired rules and recommendations
+     */
+    public RuleResult evaluateRules(MetricSeries series, List<Rule<MetricSeries>> rules, RuleNetwork network) {
+        RuleMetrics.Evaluation evaluation = metrics.isEnabled() ? metrics.start(rules, series.size()) : null;
+        
+        RuleResult result = evaluate(series, rules, evaluation);
+        
+        long start = evaluation != null ? System.nanoTime() : 0L;
+        try {
+            List<RuleOutcome> outcomes = network.evaluate(series);
+            if (evaluation != null) {
+                evaluation.networkEvaluated(network, System.nanoTime() - start, outcomes);
+            }
+            List<Rule<MetricSeries>> networkRules = network.getRules();
+            for (int i = 0; i < outcomes.size(); i++) {
+                merge(result, networkRules.get(i), outcomes.get(i));
+            }
+        } catch (Exception e) {
+            if (evaluation != null) {
+                evaluation.networkFailed(network, System.nanoTime() - start);
+            }
+            log.error("Error evaluating rule network of {} rules", network.getRules().size(), e);
+        }
+        
+        if (evaluation != null) {
+            evaluation.finish();
+        }
+        return result;
+    }
+    
+    /**
+     * Evaluate rules only until the worst severity is known
+     * 
+     * Rules run one by one on the calling thread, in {@link #byPriority}
+     * order. Evaluation stops at the first CRITICAL outcome, or as soon as no
+     * remaining rule declares a max severity above the worst found so far.
+     * 
+     * The highest severity is the same as with {@link #evaluateRules} (rules
+     * never exceed their {@link Rule#getMaxSeverity()}); fired rules and
+     * recommendations are only those evaluated before stopping.
+     * 
+     * PERFORMANCE: With a CRITICAL outcome among the first rules, the cost is
+     * a few rules instead of the whole set. A list already in priority order,
+     * like the one {@link #byPriority} returns, is used as is - sort it once
+     * and reuse it.
+     * 
+     * @param input Input data
+     * @param rules Rules to evaluate, in any order
+     * @param <T> Type of input data
+     * @return RuleResult with the highest severity and the rules fired until then
+     */
+    public <T> RuleResult evaluateWorstSeverity(T input, List<Rule<T>> rules) {
+        List<Rule<T>> ordered = isByPriority(rules) ? rules : byPriority(rules);
+        RuleMetrics.Evaluation evaluation = metrics.isEnabled()
+                ? metrics.start(ordered, input instanceof MetricSeries series ? series.size() : -1)
+                : null;
+        RuleResult result = new RuleResult();
+        
+        int worst = 0;
+        for (int i = 0; i < ordered.size() && worst < CRITICAL; i++) {
+            Rule<T> rule = ordered.get(i);
+            // Ordered by max severity - no rule left can raise the result
+            if (RuleResult.severityRank(rule.getMaxSeverity()) <= worst) {
+                log.debug("Severity {} settled after {} of {} rules", result.getHighestSeverity(), i, ordered.size());
+                break;
+            }
+            
+            long start = evaluation != null ? System.nanoTime() : 0L;
             try {
-                if (rule.evaluate(input)) {
-                    log.info("Rule fired: {}", rule.getRuleName());
-                    
-                    result.addFiredRule(rule);
-                    result.addRecommendation(rule.getRecommendation());
-                    result.updateSeverity(rule.getSeverity());
+                RuleOutcome outcome = outcomeCache.evaluate(rule, input);
+                if (evaluation != null) {
+                    evaluation.ruleEvaluated(i, System.nanoTime() - start, outcome);
+                }
+                merge(result, rule, outcome);
+                if (outcome.isFired()) {
+                    worst = Math.max(worst, RuleResult.severityRank(outcome.getSeverity()));
                 }
             } catch (Exception e) {
+                if (evaluation != null) {
+                    evaluation.ruleFailed(i, System.nanoTime() - start);
+                }
                 log.error("Error evaluating rule: {}", rule.getRuleName(), e);
             }
         }
         
+        if (evaluation != null) {
+            evaluation.finish();
+        }
+        return result;
+    }
+    
+    /**
+     * Rules in evaluation order for {@link #evaluateWorstSeverity}: highest
+     * declared max severity first, then lowest estimated cost (stable)
+     * 
+     * @return Immutable sorted copy
+     */
+    public static <T> List<Rule<T>> byPriority(List<Rule<T>> rules) {
+        List<Rule<T>> ordered = new ArrayList<>(rules);
+        ordered.sort(PRIORITY);
+        return List.copyOf(ordered);
+    }
+    
+    private static boolean isByPriority(List<? extends Rule<?>> rules) {
+        for (int i = 1; i < rules.size(); i++) {
+            if (PRIORITY.compare(rules.get(i - 1), rules.get(i)) > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private <T> RuleResult evaluate(T input, List<Rule<T>> rules, RuleMetrics.Evaluation evaluation) {
+        RuleResult result = new RuleResult();
+        
+        log.debug("Evaluating {} rules", rules.size());
+        
+        if (rules.size() >= parallelThreshold) {
+            evaluateParallel(input, rules, result, evaluation);
+        } else {
+            for (int i = 0; i < rules.size(); i++) {
+                Rule<T> rule = rules.get(i);
+                long start = evaluation != null ? System.nanoTime() : 0L;
+                try {
+                    RuleOutcome outcome = outcomeCache.evaluate(rule, input);
+                    if (evaluation != null) {
+                        evaluation.ruleEvaluated(i, System.nanoTime() - start, outcome);
+                    }
+                    merge(result, rule, outcome);
+                } catch (Exception e) {
+                    if (evaluation != null) {
+                        evaluation.ruleFailed(i, System.nanoTime() - start);
+                    }
+                    log.error("Error evaluating rule: {}", rule.getRuleName(), e);
+                }
+            }
+        }
+        
         log.debug("Evaluation complete. Fired rules: {}", result.getFiredRuleNames().size());
         
         return result;
     }
+    
+    /**
+     * Start every rule at once, then merge the outcomes in rule order
+     */
+    private <T> void evaluateParallel(T input, List<Rule<T>> rules, RuleResult result,
+                                      RuleMetrics.Evaluation evaluation) {
+        // Rules may resolve localized messages - keep the caller's locale
+        LocaleContext localeContext = LocaleContextHolder.getLocaleContext();
+        
+        long started = System.nanoTime();
+        List<Future<TimedOutcome>> outcomes = new ArrayList<>(rules.size());
+        for (Rule<T> rule : rules) {
+            outcomes.add(executor.submit(() -> {
+                LocaleContextHolder.setLocaleContext(localeContext);
+                long start = System.nanoTime();
+                try {
+                    RuleOutcome outcome = outcomeCache.evaluate(rule, input);
+                    return new TimedOutcome(outcome, System.nanoTime() - start, null);
+                } catch (RuntimeException e) {
+                    return new TimedOutcome(null, System.nanoTime() - start, e);
+                } finally {
+                    LocaleContextHolder.resetLocaleContext();
+                }
+            }));
+        }
+        
+        // All rules started together, so one deadline is a per-rule timeout
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ruleTimeoutMs);
+        for (int i = 0; i < rules.size(); i++) {
+            Rule<T> rule = rules.get(i);
+            Future<TimedOutcome> outcome = outcomes.get(i);
+            try {
+                // Recorded here, on the calling thread, so a timed out rule is never recorded twice
+                TimedOutcome timed = outcome.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (timed.error() != null) {
+                    if (evaluation != null) {
+                        evaluation.ruleFailed(i, timed.nanos());
+                    }
+                    log.error("Error evaluating rule: {}", rule.getRuleName(), timed.error());
+                    continue;
+                }
+                if (evaluation != null) {
+                    evaluation.ruleEvaluated(i, timed.nanos(), timed.outcome());
+                }
+                merge(result, rule, timed.outcome());
+            } catch (TimeoutException e) {
+                outcome.cancel(true);
+                if (evaluation != null) {
+                    evaluation.ruleTimedOut(i, System.nanoTime() - started);
+                }
+                log.warn("Rule timed out after {} ms: {}", ruleTimeoutMs, rule.getRuleName());
+            } catch (ExecutionException e) {
+                if (evaluation != null) {
+                    evaluation.ruleFailed(i, System.nanoTime() - started);
+                }
+                log.error("Error evaluating rule: {}", rule.getRuleName(), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                outcomes.forEach(pending -> pending.cancel(true));
+                log.warn("Rule evaluation interrupted after {} of {} rules", i, rules.size());
+                return;
+            }
+        }
+    }
+    
+    private void merge(RuleResult result, Rule<?> rule, RuleOutcome outcome) {
+        if (outcome.isFired()) {
+            log.info("Rule fired: {}", rule.getRuleName());
+            
+            result.addFiredRule(rule, outcome);
+        }
+    }
+    
+    /**
+     * Outcome of a rule run on a virtual thread, with its own latency
+     */
+    private record TimedOutcome(RuleOutcome outcome, long nanos, RuntimeException error) {
+    }
 }
-
@@ -0,0 +1,304 @@
+package com.healthtracker.dss.engine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Instrumentation of {@link RuleEngine} evaluations
+ *
+ * Metrics (exported via /actuator/prometheus):
+ * - dss.rules.rule.evaluation{rule} - latency of each rule
+ * - dss.rules.rule.fired{rule} / dss.rules.rule.errors{rule} - outcomes of
+ *   each rule (timeouts count as errors)
+ * - dss.rules.network.evaluation - latency of one compiled rule network pass;
+ *   its rules fire under their own names but share this timer
+ * - dss.rules.evaluation - latency of a whole evaluation
+ * - dss.rules.evaluation.rules / dss.rules.evaluation.readings - evaluation
+ *   size: rules evaluated and metric readings in the input
+ * - dss.rules.evaluation.slow - evaluations over the slow threshold
+ *
+ * SLOW TRACES: An evaluation taking at least {@code dss.rules.trace.slow-threshold-ms}
+ * is sampled with probability {@code dss.rules.trace.sample-rate}; a sampled
+ * evaluation is logged and kept (last {@code dss.rules.trace.capacity}) with
+ * the time and outcome of every rule, see {@link #getSlowTraces()}.
+ *
+ * PERFORMANCE: Meters are created once per rule name and cached; recording a
+ * rule is a clock read and a timer update. Only evaluations over the
+ * threshold pay for building a trace. Rule names are tags, so they must stay
+ * a bounded set (built-in rules and rule definitions are).
+ */
+@Component
+@Slf4j
+public class RuleMetrics {
+
+    private static final RuleMetrics DISABLED = new RuleMetrics();
+
+    private final MeterRegistry registry;
+    private final boolean enabled;
+    private final long slowThresholdNanos;
+    private final double sampleRate;
+    private final int traceCapacity;
+
+    private final Map<String, RuleMeters> ruleMeters = new ConcurrentHashMap<>();
+    private final Deque<RuleTrace> slowTraces = new ArrayDeque<>();
+
+    private final Timer evaluationTimer;
+    private final Timer networkTimer;
+    private final DistributionSummary rulesSummary;
+    private final DistributionSummary readingsSummary;
+    private final Counter slowCounter;
+
+    @Autowired
+    public RuleMetrics(
+            MeterRegistry registry,
+            @Value("${dss.rules.metrics.enabled:true}") boolean enabled,
+            @Value("${dss.rules.trace.slow-threshold-ms:50}") long slowThresholdMs,
+            @Value("${dss.rules.trace.sample-rate:1.0}") double sampleRate,
+            @Value("${dss.rules.trace.capacity:100}") int traceCapacity) {
+        this.registry = registry;
+        this.enabled = enabled;
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMs);
+        this.sampleRate = sampleRate;
+        this.traceCapacity = traceCapacity;
+
+        this.evaluationTimer = Timer.builder("dss.rules.evaluation")
+                .description("Latency of one rule set evaluation")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.networkTimer = Timer.builder("dss.rules.network.evaluation")
+                .description("Latency of one compiled rule network pass")
+                .register(registry);
+        this.rulesSummary = DistributionSummary.builder("dss.rules.evaluation.rules")
+                .description("Rules evaluated per evaluation")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.readingsSummary = DistributionSummary.builder("dss.rules.evaluation.readings")
+                .description("Metric readings in the input of an evaluation")
+                .baseUnit("readings")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.slowCounter = Counter.builder("dss.rules.evaluation.slow")
+                .description("Evaluations over the slow threshold")
+                .register(registry);
+    }
+
+    private RuleMetrics() {
+        this.registry = null;
+        this.enabled = false;
+        this.slowThresholdNanos = Long.MAX_VALUE;
+        this.sampleRate = 0;
+        this.traceCapacity = 0;
+        this.evaluationTimer = null;
+        this.networkTimer = null;
+        this.rulesSummary = null;
+        this.readingsSummary = null;
+        this.slowCounter = null;
+    }
+
+    /**
+     * Instance recording nothing (engines built outside Spring)
+     */
+    public static RuleMetrics disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Start recording an evaluation
+     *
+     * @param rules    Rules about to be evaluated, in evaluation order
+     * @param readings Metric readings in the input, or -1 if not a metric series
+     */
+    Evaluation start(List<? extends Rule<?>> rules, int readings) {
+        return new Evaluation(rules, readings);
+    }
+
+    /**
+     * Latest slow evaluation traces, most recent first
+     */
+    public List<RuleTrace> getSlowTraces() {
+        synchronized (slowTraces) {
+            return List.copyOf(slowTraces);
+        }
+    }
+
+    private RuleMeters meters(String ruleName) {
+        return ruleMeters.computeIfAbsent(ruleName, name -> new RuleMeters(
+                Timer.builder("dss.rules.rule.evaluation")
+                        .description("Latency of one rule")
+                        .tag("rule", name)
+                        .register(registry),
+                Counter.builder("dss.rules.rule.fired")
+                        .description("Times the rule fired")
+                        .tag("rule", name)
+                        .register(registry),
+                Counter.builder("dss.rules.rule.errors")
+                        .description("Times the rule threw or timed out")
+                        .tag("rule", name)
+                        .register(registry)));
+    }
+
+    private record RuleMeters(Timer timer, Counter fired, Counter errors) {
+    }
+
+    /**
+     * Recorder of one evaluation
+     *
+     * Each rule index is written by one thread only; {@link #finish()} runs
+     * after all of them (after Future.get in parallel mode).
+     */
+    final class Evaluation {
+
+        private static final byte NOT_FIRED = 1;
+        private static final byte FIRED = 2;
+        private static final byte FAILED = 3;
+        private static final byte TIMED_OUT = 4;
+
+        private final long startNanos = System.nanoTime();
+        private final List<? extends Rule<?>> rules;
+        private final int readings;
+        private final long[] nanos;
+        private final byte[] status;
+        private final String[] severities;
+
+        private RuleNetwork network;
+        private long networkNanos = -1;
+        private List<RuleOutcome> networkOutcomes;
+
+        private Evaluation(List<? extends Rule<?>> rules, int readings) {
+            this.rules = rules;
+            this.readings = readings;
+            this.nanos = new long[rules.size()];
+            this.status = new byte[rules.size()];
+            this.severities = new String[rules.size()];
+        }
+
+        void ruleEvaluated(int index, long elapsedNanos, RuleOutcome outcome) {
+            RuleMeters meters = meters(rules.get(index).getRuleName());
+            meters.timer().record(elapsedNanos, TimeUnit.NANOSECONDS);
+            nanos[index] = elapsedNanos;
+            if (outcome.isFired()) {
+                meters.fired().increment();
+                status[index] = FIRED;
+                severities[index] = outcome.getSeverity();
+            } else {
+                status[index] = NOT_FIRED;
+            }
+        }
+
+        void ruleFailed(int index, long elapsedNanos) {
+            RuleMeters meters = meters(rules.get(index).getRuleName());
+            meters.timer().record(elapsedNanos, TimeUnit.NANOSECONDS);
+            meters.errors().increment();
+            nanos[index] = elapsedNanos;
+            status[index] = FAILED;
+        }
+
+        void ruleTimedOut(int index, long elapsedNanos) {
+            meters(rules.get(index).getRuleName()).errors().increment();
+            nanos[index] = elapsedNanos;
+            status[index] = TIMED_OUT;
+        }
+
+        void networkEvaluated(RuleNetwork network, long elapsedNanos, List<RuleOutcome> outcomes) {
+            networkTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+            this.network = network;
+            this.networkNanos = elapsedNanos;
+            this.networkOutcomes = outcomes;
+            List<Rule<MetricSeries>> networkRules = network.getRules();
+            for (int i = 0; i < outcomes.size(); i++) {
+                if (outcomes.get(i).isFired()) {
+                    meters(networkRules.get(i).getRuleName()).fired().increment();
+                }
+            }
+        }
+
+        void networkFailed(RuleNetwork network, long elapsedNanos) {
+            networkTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+            this.network = network;
+            this.networkNanos = elapsedNanos;
+            for (Rule<MetricSeries> rule : network.getRules()) {
+                meters(rule.getRuleName()).errors().increment();
+            }
+        }
+
+        void finish() {
+            long totalNanos = System.nanoTime() - startNanos;
+            evaluationTimer.record(totalNanos, TimeUnit.NANOSECONDS);
+            int ruleCount = rules.size() + (network != null ? network.getRules().size() : 0);
+            rulesSummary.record(ruleCount);
+            if (readings >= 0) {
+                readingsSummary.record(readings);
+            }
+
+            if (totalNanos >= slowThresholdNanos) {
+                slowCounter.increment();
+                if (sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate) {
+                    keep(trace(totalNanos, ruleCount));
+                }
+            }
+        }
+
+        private RuleTrace trace(long totalNanos, int ruleCount) {
+            List<RuleTrace.Step> steps = new ArrayList<>(ruleCount);
+            for (int i = 0; i < rules.size(); i++) {
+                steps.add(new RuleTrace.Step(rules.get(i).getRuleName(), toMicros(nanos[i]),
+                        statusName(status[i]), severities[i]));
+            }
+            if (network != null) {
+                List<Rule<MetricSeries>> networkRules = network.getRules();
+                for (int i = 0; i < networkRules.size(); i++) {
+                    // Network rules share one pass - no time of their own
+                    RuleOutcome outcome = networkOutcomes != null ? networkOutcomes.get(i) : null;
+                    steps.add(new RuleTrace.Step(networkRules.get(i).getRuleName(), -1,
+                            outcome == null ? "FAILED" : outcome.isFired() ? "FIRED" : "NOT_FIRED",
+                            outcome != null && outcome.isFired() ? outcome.getSeverity() : null));
+                }
+            }
+            steps.sort(Comparator.comparingLong(RuleTrace.Step::micros).reversed());
+            return new RuleTrace(LocalDateTime.now(), toMicros(totalNanos), readings,
+                    network != null ? toMicros(networkNanos) : -1, steps);
+        }
+
+        private void keep(RuleTrace trace) {
+            log.warn("Slow rule evaluation: {} µs, {} rules, {} readings, slowest: {}",
+                    trace.totalMicros(), trace.steps().size(), trace.readings(),
+                    trace.steps().subList(0, Math.min(3, trace.steps().size())));
+            synchronized (slowTraces) {
+                slowTraces.addFirst(trace);
+                while (slowTraces.size() > traceCapacity) {
+                    slowTraces.removeLast();
+                }
+            }
+        }
+
+        private String statusName(byte value) {
+            return switch (value) {
+                case NOT_FIRED -> "NOT_FIRED";
+                case FIRED -> "FIRED";
+                case FAILED -> "FAILED";
+                case TIMED_OUT -> "TIMED_OUT";
+                default -> "SKIPPED";
+            };
+        }
+
+        private long toMicros(long value) {
+            return TimeUnit.NANOSECONDS.toMicros(value);
+        }
+    }
+}
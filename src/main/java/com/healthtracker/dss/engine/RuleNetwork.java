@@ -0,0 +1,417 @@
+package com.healthtracker.dss.engine;
+
+import com.healthtracker.model.MetricType;
+import com.healthtracker.model.RuleDefinition;
+import com.healthtracker.model.RuleThreshold;
+import org.springframework.context.MessageSource;
+import org.springframework.context.i18n.LocaleContextHolder;
+
+import java.text.MessageFormat;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rete-style evaluation network for compiled rule definitions
+ *
+ * Rules are broken down into three layers of shared nodes:
+ * - window: how many of the latest readings of a type are looked at
+ *   (last N readings or last N days)
+ * - aggregate: LATEST/AVERAGE/MIN/MAX of a field over a window
+ * - condition: enough readings in the window and "aggregate op threshold"
+ * Identical nodes are created once, so a hundred rules testing "average of
+ * the last 3 systolic readings" share one aggregate node, and rules with the
+ * same threshold share one condition node. A rule is just an ordered list of
+ * condition ids, one per severity level.
+ *
+ * PERFORMANCE: {@link #evaluate(MetricSeries)} memoizes every node for the
+ * duration of one evaluation, so each distinct window, aggregate and
+ * condition is computed at most once, and only if some rule reaches it.
+ * Cost grows with the number of distinct conditions; per rule only a few
+ * array reads remain.
+ *
+ * Rules from {@link #getRules()} can also be evaluated on their own (without
+ * memoization), e.g. by {@link RuleEngine#evaluateRules}.
+ *
+ * Instances are immutable and safe to share across threads.
+ */
+public final class RuleNetwork {
+
+    private static final int LATEST = RuleDefinition.Aggregate.LATEST.ordinal();
+    private static final int AVERAGE = RuleDefinition.Aggregate.AVERAGE.ordinal();
+    private static final int MIN = RuleDefinition.Aggregate.MIN.ordinal();
+
+    private static final byte UNKNOWN = 0;
+    private static final byte TRUE = 1;
+    private static final byte FALSE = 2;
+
+    private final WindowNode[] windows;
+    private final AggregateNode[] aggregates;
+    private final ConditionNode[] conditions;
+    private final List<Rule<MetricSeries>> rules;
+    private final MessageSource messageSource;
+
+    private RuleNetwork(WindowNode[] windows, AggregateNode[] aggregates, ConditionNode[] conditions,
+                        List<NetworkRule> rules, MessageSource messageSource) {
+        this.windows = windows;
+        this.aggregates = aggregates;
+        this.conditions = conditions;
+        this.messageSource = messageSource;
+        List<Rule<MetricSeries>> bound = new ArrayList<>(rules.size());
+        for (NetworkRule rule : rules) {
+            bound.add(rule.bind(this));
+        }
+        this.rules = List.copyOf(bound);
+    }
+
+    /**
+     * Rules of the network, in definition order
+     */
+    public List<Rule<MetricSeries>> getRules() {
+        return rules;
+    }
+
+    /**
+     * Evaluate every rule, sharing nodes between them
+     *
+     * @return Outcomes in the order of {@link #getRules()}
+     */
+    public List<RuleOutcome> evaluate(MetricSeries series) {
+        Session session = new Session();
+        List<RuleOutcome> outcomes = new ArrayList<>(rules.size());
+        for (Rule<MetricSeries> rule : rules) {
+            outcomes.add(((BoundRule) rule).evaluate(series, session));
+        }
+        return outcomes;
+    }
+
+    public int getWindowCount() {
+        return windows.length;
+    }
+
+    public int getAggregateCount() {
+        return aggregates.length;
+    }
+
+    public int getConditionCount() {
+        return conditions.length;
+    }
+
+    private int window(int w, MetricSeries series, Session session) {
+        int n = session.windows[w];
+        if (n < 0) {
+            n = windows[w].count(series);
+            session.windows[w] = n;
+        }
+        return n;
+    }
+
+    private double aggregate(int a, MetricSeries series, Session session) {
+        double value = session.aggregates[a];
+        if (Double.isNaN(value)) {
+            AggregateNode node = aggregates[a];
+            value = node.compute(series, window(node.window, series, session));
+            session.aggregates[a] = value;
+        }
+        return value;
+    }
+
+    private boolean condition(int c, MetricSeries series, Session session) {
+        if (session.conditions[c] != UNKNOWN) {
+            return session.conditions[c] == TRUE;
+        }
+        ConditionNode node = conditions[c];
+        boolean matches = window(aggregates[node.aggregate].window, series, session) >= node.minReadings
+                && node.matches(aggregate(node.aggregate, series, session));
+        session.conditions[c] = matches ? TRUE : FALSE;
+        return matches;
+    }
+
+    /**
+     * Node memo of one evaluation
+     */
+    private final class Session {
+        // -1 = not computed yet
+        private final int[] windows;
+        // NaN = not computed yet (computed values never are NaN)
+        private final double[] aggregates;
+        private final byte[] conditions;
+
+        Session() {
+            this.windows = new int[RuleNetwork.this.windows.length];
+            this.aggregates = new double[RuleNetwork.this.aggregates.length];
+            this.conditions = new byte[RuleNetwork.this.conditions.length];
+            Arrays.fill(windows, -1);
+            Arrays.fill(aggregates, Double.NaN);
+        }
+    }
+
+    private record WindowNode(MetricType type, int readings, int days) {
+
+        /**
+         * Number of latest readings in the window
+         */
+        int count(MetricSeries series) {
+            return days > 0
+                    ? series.countSince(type, LocalDateTime.now().minusDays(days))
+                    : Math.min(readings, series.count(type));
+        }
+    }
+
+    private record AggregateNode(int window, MetricType type, boolean diastolic, int kind) {
+
+        /**
+         * Aggregate over the n latest readings (n >= 1)
+         */
+        double compute(MetricSeries series, int n) {
+            if (kind == AVERAGE) {
+                return diastolic ? series.averageDiastolicOfLast(n) : series.averageOfLast(type, n);
+            }
+            double value = reading(series, 0);
+            if (kind == LATEST) {
+                return value;
+            }
+            for (int k = 1; k < n; k++) {
+                value = kind == MIN ? Math.min(value, reading(series, k)) : Math.max(value, reading(series, k));
+            }
+            return value;
+        }
+
+        private double reading(MetricSeries series, int k) {
+            return diastolic ? series.latestDiastolic(k) : series.latest(type, k);
+        }
+    }
+
+    private record ConditionNode(int aggregate, int minReadings, boolean above, boolean inclusive, double threshold) {
+
+        boolean matches(double value) {
+            return above
+                    ? (inclusive ? value >= threshold : value > threshold)
+                    : (inclusive ? value <= threshold : value < threshold);
+        }
+    }
+
+    /**
+     * Rule of a network under construction: one condition per severity level
+     */
+    private record NetworkRule(String name, long version, int aggregate, int minReadings, int[] conditions,
+                               String[] severities, String[] messageKeys) {
+
+        BoundRule bind(RuleNetwork network) {
+            return new BoundRule(network, this);
+        }
+    }
+
+    /**
+     * Rule bound to its network
+     */
+    private static final class BoundRule implements Rule<MetricSeries> {
+        private final RuleNetwork network;
+        private final String name;
+        private final String version;
+        // All levels of a rule test the same aggregate, operator and minimum readings
+        private final int window;
+        private final int aggregate;
+        private final WindowNode windowNode;
+        private final AggregateNode aggregateNode;
+        private final int minReadings;
+        private final int[] conditions;
+        private final double[] thresholds;
+        private final boolean above;
+        private final boolean inclusive;
+        private final String[] severities;
+        private final String maxSeverity;
+        private final String[] messageKeys;
+        private final Map<Locale, MessageFormat>[] messageFormats;
+
+        @SuppressWarnings("unchecked")
+        BoundRule(RuleNetwork network, NetworkRule rule) {
+            this.network = network;
+            this.name = rule.name();
+            // Per network too: recompiling picks up edited messages, memoized texts must not outlive it
+            this.version = "def-" + rule.version() + "@" + Integer.toHexString(System.identityHashCode(network));
+            this.window = network.aggregates[rule.aggregate()].window();
+            this.aggregate = rule.aggregate();
+            this.windowNode = network.windows[window];
+            this.aggregateNode = network.aggregates[aggregate];
+            this.minReadings = rule.minReadings();
+            this.conditions = rule.conditions();
+            this.thresholds = new double[conditions.length];
+            for (int i = 0; i < conditions.length; i++) {
+                thresholds[i] = network.conditions[conditions[i]].threshold();
+            }
+            this.above = network.conditions[conditions[0]].above();
+            this.inclusive = network.conditions[conditions[0]].inclusive();
+            this.severities = rule.severities();
+            String max = severities[0];
+            for (String severity : severities) {
+                if (RuleResult.severityRank(severity) > RuleResult.severityRank(max)) {
+                    max = severity;
+                }
+            }
+            this.maxSeverity = max;
+            this.messageKeys = rule.messageKeys();
+            this.messageFormats = new Map[messageKeys.length];
+            for (int i = 0; i < messageKeys.length; i++) {
+                messageFormats[i] = new ConcurrentHashMap<>();
+            }
+        }
+
+        /**
+         * Evaluate on its own: one window, one aggregate, then the thresholds
+         */
+        @Override
+        public RuleOutcome evaluate(MetricSeries series) {
+            int n = windowNode.count(series);
+            if (n < minReadings) {
+                return RuleOutcome.notFired();
+            }
+            double value = aggregateNode.compute(series, n);
+            for (int i = 0; i < thresholds.length; i++) {
+                double threshold = thresholds[i];
+                boolean matches = above
+                        ? (inclusive ? value >= threshold : value > threshold)
+                        : (inclusive ? value <= threshold : value < threshold);
+                if (matches) {
+                    return fired(i, value, n);
+                }
+            }
+            return RuleOutcome.notFired();
+        }
+
+        /**
+         * Window size and aggregate - all that the thresholds and the message depend on
+         */
+        @Override
+        public long inputDigest(MetricSeries series) {
+            int n = windowNode.count(series);
+            long digest = InputDigest.add(InputDigest.start(), n);
+            if (n >= minReadings) {
+                digest = InputDigest.add(digest, aggregateNode.compute(series, n));
+            }
+            return InputDigest.finish(digest);
+        }
+
+        /**
+         * Evaluate within a network evaluation, through the memoized conditions
+         */
+        RuleOutcome evaluate(MetricSeries series, Session session) {
+            for (int i = 0; i < conditions.length; i++) {
+                if (network.condition(conditions[i], series, session)) {
+                    return fired(i, network.aggregate(aggregate, series, session),
+                            network.window(window, series, session));
+                }
+            }
+            return RuleOutcome.notFired();
+        }
+
+        private RuleOutcome fired(int level, double value, int n) {
+            return RuleOutcome.fired(severities[level], recommendation(level, value, thresholds[level], n));
+        }
+
+        @Override
+        public String getRuleName() {
+            return name;
+        }
+
+        @Override
+        public String getMaxSeverity() {
+            return maxSeverity;
+        }
+
+        @Override
+        public String getVersion() {
+            return version;
+        }
+
+        @Override
+        public int getEstimatedCost() {
+            // AVERAGE/MIN/MAX visit every reading of the window (about one a day for day windows)
+            if (aggregateNode.kind() != LATEST) {
+                return Math.max(1, windowNode.days() > 0 ? windowNode.days() : windowNode.readings());
+            }
+            // Day windows binary search the readings
+            return windowNode.days() > 0 ? 2 : 1;
+        }
+
+        /**
+         * Localized recommendation of level i
+         *
+         * The message pattern is looked up once per locale and kept as a parsed
+         * MessageFormat; recompiling the network picks up edited message files.
+         */
+        private String recommendation(int level, double value, double threshold, int n) {
+            Locale locale = LocaleContextHolder.getLocale();
+            MessageFormat format = messageFormats[level].computeIfAbsent(locale, key -> new MessageFormat(
+                    network.messageSource.getMessage(messageKeys[level], null, messageKeys[level], key), key));
+            // MessageFormat is not thread-safe
+            synchronized (format) {
+                return format.format(new Object[] { value, threshold, n });
+            }
+        }
+    }
+
+    /**
+     * Builds a network, creating each distinct node once
+     *
+     * Definitions must have been validated by {@link RuleCompiler#validate}.
+     */
+    static final class Builder {
+        private final MessageSource messageSource;
+        private final Map<WindowNode, Integer> windows = new LinkedHashMap<>();
+        private final Map<AggregateNode, Integer> aggregates = new LinkedHashMap<>();
+        private final Map<ConditionNode, Integer> conditions = new LinkedHashMap<>();
+        private final List<NetworkRule> rules = new ArrayList<>();
+
+        Builder(MessageSource messageSource) {
+            this.messageSource = messageSource;
+        }
+
+        Builder add(RuleDefinition definition) {
+            int window = node(windows, new WindowNode(definition.getMetricType(),
+                    definition.getWindowReadings() != null ? definition.getWindowReadings() : 1,
+                    definition.getWindowDays() != null ? definition.getWindowDays() : 0));
+            int aggregate = node(aggregates, new AggregateNode(window, definition.getMetricType(),
+                    definition.getField() == RuleDefinition.Field.DIASTOLIC,
+                    definition.getAggregate().ordinal()));
+
+            RuleDefinition.Operator operator = definition.getOperator();
+            boolean above = operator == RuleDefinition.Operator.GT || operator == RuleDefinition.Operator.GTE;
+            boolean inclusive = operator == RuleDefinition.Operator.GTE || operator == RuleDefinition.Operator.LTE;
+            int minReadings = Math.max(1, definition.getMinReadings() != null ? definition.getMinReadings() : 1);
+
+            List<RuleThreshold> levels = definition.getThresholds();
+            int[] conditionIds = new int[levels.size()];
+            String[] severities = new String[levels.size()];
+            String[] messageKeys = new String[levels.size()];
+            for (int i = 0; i < levels.size(); i++) {
+                conditionIds[i] = node(conditions, new ConditionNode(aggregate, minReadings, above, inclusive,
+                        levels.get(i).getValue()));
+                severities[i] = levels.get(i).getSeverity();
+                messageKeys[i] = levels.get(i).getMessageKey();
+            }
+            rules.add(new NetworkRule(definition.getName(),
+                    definition.getVersion() != null ? definition.getVersion() : 0L,
+                    aggregate, minReadings, conditionIds, severities, messageKeys));
+            return this;
+        }
+
+        RuleNetwork build() {
+            return new RuleNetwork(
+                    windows.keySet().toArray(new WindowNode[0]),
+                    aggregates.keySet().toArray(new AggregateNode[0]),
+                    conditions.keySet().toArray(new ConditionNode[0]),
+                    rules,
+                    messageSource);
+        }
+
+        private static <N> int node(Map<N, Integer> nodes, N node) {
+            Integer id = nodes.get(node);
+            if (id == null) {
+                id = nodes.size();
+                nodes.put(node, id);
+            }
+            return id;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.healthtracker.dss.engine;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ * Immutable outcome of evaluating one rule against one input
+ *
+ * Rules return everything they found in the outcome instead of keeping it in
+ * fields, so a single rule instance can be evaluated by many threads at once.
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class RuleOutcome {
+
+    private static final RuleOutcome NOT_FIRED = new RuleOutcome(false, null, null);
+
+    boolean fired;
+
+    /**
+     * Severity: INFO, WARNING, CRITICAL (null if not fired)
+     */
+    String severity;
+
+    /**
+     * Recommendation text (null if not fired)
+     */
+    String recommendation;
+
+    /**
+     * Outcome of a rule whose condition is met
+     */
+    public static RuleOutcome fired(String severity, String recommendation) {
+        return new RuleOutcome(true, severity, recommendation);
+    }
+
+    /**
+     * Outcome of a rule whose condition is not met (shared instance)
+     */
+    public static RuleOutcome notFired() {
+        return NOT_FIRED;
+    }
+}
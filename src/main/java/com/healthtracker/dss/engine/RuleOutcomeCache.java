@@ -0,0 +1,138 @@
+package com.healthtracker.dss.engine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Memo of rule outcomes keyed on (rule name, rule version, input digest, locale)
+ *
+ * Only rules implementing {@link Rule#inputDigest} are memoized: the same BMI
+ * or the same last 3 blood pressure readings then return the outcome built
+ * the first time, recommendation text included. A new rule version (e.g. an
+ * edited rule definition) never matches older entries, which age out.
+ *
+ * In-memory and bounded (LRU per segment). Segments are picked by digest, so
+ * threads evaluating different inputs rarely contend on one lock.
+ *
+ * PERFORMANCE: A hit costs the digest and one hash lookup. Worth it for rules
+ * formatting recommendations or looping over readings; a rule that is a few
+ * comparisons should keep the default and not be memoized.
+ *
+ * Metrics: dss.rules.memo.hits / misses, dss.rules.memo.size
+ */
+@Component
+public class RuleOutcomeCache {
+
+    private static final int SEGMENTS = 16;
+
+    private static final RuleOutcomeCache DISABLED = new RuleOutcomeCache();
+
+    private final boolean enabled;
+    private final Map<Key, RuleOutcome>[] segments;
+    private final Counter hits;
+    private final Counter misses;
+
+    @Autowired
+    @SuppressWarnings("unchecked")
+    public RuleOutcomeCache(
+            MeterRegistry meterRegistry,
+            @Value("${dss.rules.memo.enabled:true}") boolean enabled,
+            @Value("${dss.rules.memo.max-entries:50000}") int maxEntries) {
+        this.enabled = enabled;
+        int segmentCapacity = Math.max(1, maxEntries / SEGMENTS);
+        this.segments = new Map[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = Collections.synchronizedMap(new LinkedHashMap<>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, RuleOutcome> eldest) {
+                    return size() > segmentCapacity;
+                }
+            });
+        }
+
+        this.hits = Counter.builder("dss.rules.memo.hits")
+                .description("Rule evaluations answered from the memo")
+                .register(meterRegistry);
+        this.misses = Counter.builder("dss.rules.memo.misses")
+                .description("Memoizable rule evaluations that had to run")
+                .register(meterRegistry);
+        Gauge.builder("dss.rules.memo.size", this, RuleOutcomeCache::size)
+                .description("Memoized rule outcomes")
+                .register(meterRegistry);
+    }
+
+    @SuppressWarnings("unchecked")
+    private RuleOutcomeCache() {
+        this.enabled = false;
+        this.segments = new Map[0];
+        this.hits = null;
+        this.misses = null;
+    }
+
+    /**
+     * Instance that never memoizes (engines built outside Spring)
+     */
+    public static RuleOutcomeCache disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Evaluate a rule, or return its memoized outcome for the same inputs
+     */
+    public <T> RuleOutcome evaluate(Rule<T> rule, T input) {
+        if (!enabled) {
+            return rule.evaluate(input);
+        }
+        long digest = rule.inputDigest(input);
+        if (digest == InputDigest.NONE) {
+            return rule.evaluate(input);
+        }
+
+        Key key = new Key(rule.getRuleName(), rule.getVersion(), digest, LocaleContextHolder.getLocale());
+        Map<Key, RuleOutcome> segment = segments[(int) (digest >>> 60) & (SEGMENTS - 1)];
+        RuleOutcome outcome = segment.get(key);
+        if (outcome != null) {
+            hits.increment();
+            return outcome;
+        }
+
+        // Evaluated outside the lock; two threads may both evaluate, with the same outcome
+        misses.increment();
+        outcome = rule.evaluate(input);
+        segment.put(key, outcome);
+        return outcome;
+    }
+
+    /**
+     * Number of memoized outcomes
+     */
+    public int size() {
+        int size = 0;
+        for (Map<Key, RuleOutcome> segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Forget all outcomes
+     */
+    public void clear() {
+        for (Map<Key, RuleOutcome> segment : segments) {
+            segment.clear();
+        }
+    }
+
+    private record Key(String rule, String version, long digest, Locale locale) {
+    }
+}
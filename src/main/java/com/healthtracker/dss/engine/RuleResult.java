@@ -12,6 +12,7 @@ import java.util.List;
 public class RuleResult {
     
     private List<String> firedRuleNames = new ArrayList<>();
+    private List<String> firedSeverities = new ArrayList<>();
     private List<String> recommendations = new ArrayList<>();
     private String highestSeverity = "INFO";
     
@@ -22,6 +23,17 @@ public class RuleResult {
         firedRuleNames.add(rule.getRuleName());
     }
     
+    /**
+     * Add a fired rule with its outcome: name, severity and recommendation,
+     * at the same position in their lists
+     */
+    public void addFiredRule(Rule<?> rule, RuleOutcome outcome) {
+        firedRuleNames.add(rule.getRuleName());
+        firedSeverities.add(outcome.getSeverity());
+        recommendations.add(outcome.getRecommendation());
+        updateSeverity(outcome.getSeverity());
+    }
+    
     /**
      * Add a recommendation to the result
      */
@@ -33,12 +45,24 @@ public class RuleResult {
      * Update the highest severity level
      */
     public void updateSeverity(String severity) {
-        // Priority: CRITICAL > WARNING > INFO
-        if ("CRITICAL".equals(severity)) {
-            this.highestSeverity = "CRITICAL";
-        } else if ("WARNING".equals(severity) && !"CRITICAL".equals(this.highestSeverity)) {
-            this.highestSeverity = "WARNING";
+        if (severityRank(severity) > severityRank(this.highestSeverity)) {
+            this.highestSeverity = severity;
+        }
+    }
+    
+    /**
+     * Rank of a severity: CRITICAL (3) > WARNING (2) > INFO (1) > unknown or null (0)
+     */
+    public static int severityRank(String severity) {
+        if (severity == null) {
+            return 0;
         }
+        return switch (severity) {
+            case "CRITICAL" -> 3;
+            case "WARNING" -> 2;
+            case "INFO" -> 1;
+            default -> 0;
+        };
     }
     
     /**
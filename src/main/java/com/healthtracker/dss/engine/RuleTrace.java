@@ -0,0 +1,25 @@
+package com.healthtracker.dss.engine;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Full trace of one slow rule evaluation, see {@link RuleMetrics}
+ *
+ * @param at            When the evaluation finished
+ * @param totalMicros   Latency of the whole evaluation
+ * @param readings      Metric readings in the input, -1 if not a metric series
+ * @param networkMicros Latency of the compiled rule network pass, -1 if none
+ * @param steps         Every rule, slowest first
+ */
+public record RuleTrace(LocalDateTime at, long totalMicros, int readings, long networkMicros, List<Step> steps) {
+
+    /**
+     * @param rule     Rule name
+     * @param micros   Latency of the rule, -1 for rules of the network
+     * @param status   FIRED, NOT_FIRED, FAILED, TIMED_OUT or SKIPPED (interrupted)
+     * @param severity Severity if fired
+     */
+    public record Step(String rule, long micros, String status, String severity) {
+    }
+}
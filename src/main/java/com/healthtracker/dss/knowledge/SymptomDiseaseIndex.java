@@ -0,0 +1,398 @@
+package com.healthtracker.dss.knowledge;
+
+import com.healthtracker.model.SymptomDiseaseMapping;
+import com.healthtracker.model.SymptomPattern;
+
+import java.util.*;
+
+/**
+ * Resident inverted index over the symptom-disease knowledge base
+ *
+ * Maps every normalized symptom name to an integer symptom id and a posting
+ * list of disease ordinals, so candidate diseases for a set of user symptoms
+ * are found without a database round trip.
+ *
+ * The symptom patterns are compiled as well: per disease the symptom ids of
+ * its pattern members (with their weight, critical bonus included), the ids
+ * of its critical members and the precomputed total weight are stored in flat
+ * arrays. {@link #score(int, long[])} matches them against a user symptom
+ * bitset without allocating and returns exactly the score of the original
+ * pattern-by-pattern algorithm. {@link #upperBound(int)} and
+ * {@link #score(int, long[], double)} support pruning during top-k ranking.
+ *
+ * User symptom names are resolved through a {@link SymptomVocabulary}, so
+ * input without diacritics or with small typos still maps to the canonical
+ * knowledge base symptom.
+ *
+ * Instances are immutable: the knowledge base is rebuilt into a new index and
+ * swapped in as a whole, so readers never need locking.
+ */
+public final class SymptomDiseaseIndex {
+
+    /**
+     * Extra weight given to a matched critical symptom (fraction of its weight)
+     */
+    public static final double CRITICAL_BONUS = 0.5;
+
+    private static final int[] EMPTY_POSTINGS = new int[0];
+
+    private final long version;
+    private final List<SymptomDiseaseMapping> diseases;
+    private final Map<String, Integer> symptomIds;
+    private final SymptomVocabulary vocabulary;
+    private final int[][] postings;
+
+    // Compiled patterns, one slice per disease: [offsets[d], offsets[d + 1])
+    private final int[] memberOffsets;
+    private final int[] memberIds;
+    private final double[] memberWeights;
+    private final int[] criticalOffsets;
+    private final int[] criticalIds;
+    private final double[] totalWeights;
+    private final double[] maxMatchedWeights;
+
+    private SymptomDiseaseIndex(long version,
+                                List<SymptomDiseaseMapping> diseases,
+                                Map<String, Integer> symptomIds,
+                                int[][] postings,
+                                int[] memberOffsets,
+                                int[] memberIds,
+                                double[] memberWeights,
+                                int[] criticalOffsets,
+                                int[] criticalIds,
+                                double[] totalWeights,
+                                double[] maxMatchedWeights) {
+        this.version = version;
+        this.diseases = diseases;
+        this.symptomIds = symptomIds;
+        this.vocabulary = SymptomVocabulary.build(symptomIds);
+        this.postings = postings;
+        this.memberOffsets = memberOffsets;
+        this.memberIds = memberIds;
+        this.memberWeights = memberWeights;
+        this.criticalOffsets = criticalOffsets;
+        this.criticalIds = criticalIds;
+        this.totalWeights = totalWeights;
+        this.maxMatchedWeights = maxMatchedWeights;
+    }
+
+    /**
+     * Build and compile an index from the given disease mappings
+     *
+     * @param mappings Disease mappings (knowledge base)
+     * @param version  Knowledge base version this index was built from
+     * @return Immutable index
+     */
+    public static SymptomDiseaseIndex build(Collection<SymptomDiseaseMapping> mappings, long version) {
+        List<SymptomDiseaseMapping> diseases = new ArrayList<>(mappings.size());
+        Map<String, Integer> symptomIds = new HashMap<>();
+        List<List<Integer>> postingLists = new ArrayList<>();
+
+        IntList memberIds = new IntList();
+        DoubleList memberWeights = new DoubleList();
+        IntList criticalIds = new IntList();
+        IntList memberOffsets = new IntList();
+        IntList criticalOffsets = new IntList();
+        DoubleList totalWeights = new DoubleList();
+        DoubleList maxMatchedWeights = new DoubleList();
+
+        for (SymptomDiseaseMapping mapping : mappings) {
+            if (mapping == null || mapping.getSymptomPatterns() == null) {
+                continue;
+            }
+
+            int ordinal = diseases.size();
+            diseases.add(mapping);
+            memberOffsets.add(memberIds.size());
+            criticalOffsets.add(criticalIds.size());
+
+            // Patterns of one disease may repeat a symptom - merge them per symptom id.
+            // Weights are whole numbers (or halves with the bonus), so summing them
+            // in a different order gives exactly the same double.
+            Map<Integer, Double> weightBySymptom = new LinkedHashMap<>();
+            Set<Integer> critical = new LinkedHashSet<>();
+            int totalWeight = 0;
+
+            for (SymptomPattern pattern : mapping.getSymptomPatterns()) {
+                if (pattern == null || pattern.getSymptomName() == null) {
+                    continue;
+                }
+
+                int weight = pattern.getWeight() != null ? pattern.getWeight() : 0;
+                boolean isCritical = Boolean.TRUE.equals(pattern.getIsCritical());
+                totalWeight += weight;
+
+                String name = normalize(pattern.getSymptomName());
+                Integer symptomId = symptomIds.get(name);
+                if (symptomId == null) {
+                    symptomId = symptomIds.size();
+                    symptomIds.put(name, symptomId);
+                    postingLists.add(new ArrayList<>());
+                }
+
+                weightBySymptom.merge(symptomId,
+                        weight + (isCritical ? weight * CRITICAL_BONUS : 0), Double::sum);
+                if (isCritical) {
+                    critical.add(symptomId);
+                }
+
+                List<Integer> posting = postingLists.get(symptomId);
+                if (posting.isEmpty() || posting.get(posting.size() - 1) != ordinal) {
+                    posting.add(ordinal);
+                }
+            }
+
+            // Heaviest members first, so the early-abandon check in score() fires sooner
+            double maxMatchedWeight = 0;
+            List<Map.Entry<Integer, Double>> members = new ArrayList<>(weightBySymptom.entrySet());
+            members.sort(Map.Entry.<Integer, Double>comparingByValue().reversed());
+            for (Map.Entry<Integer, Double> member : members) {
+                memberIds.add(member.getKey());
+                memberWeights.add(member.getValue());
+                maxMatchedWeight += member.getValue();
+            }
+            critical.forEach(criticalIds::add);
+            totalWeights.add(totalWeight);
+            maxMatchedWeights.add(maxMatchedWeight);
+        }
+
+        memberOffsets.add(memberIds.size());
+        criticalOffsets.add(criticalIds.size());
+
+        int[][] postings = new int[postingLists.size()][];
+        for (int i = 0; i < postings.length; i++) {
+            postings[i] = postingLists.get(i).stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        return new SymptomDiseaseIndex(version, List.copyOf(diseases), Map.copyOf(symptomIds), postings,
+                memberOffsets.toArray(), memberIds.toArray(), memberWeights.toArray(),
+                criticalOffsets.toArray(), criticalIds.toArray(), totalWeights.toArray(),
+                maxMatchedWeights.toArray());
+    }
+
+    /**
+     * Normalize a symptom name the same way the matcher does (lowercase, trimmed)
+     */
+    public static String normalize(String symptomName) {
+        return symptomName.toLowerCase().trim();
+    }
+
+    /**
+     * Encode user symptom names as a bitset over this index's symptom ids
+     *
+     * Names are resolved exactly, then accent-insensitively, then fuzzily
+     * (see {@link SymptomVocabulary}). Names that still cannot be resolved are
+     * ignored - they cannot match any pattern.
+     *
+     * @param symptomNames Raw user symptom names
+     * @return Bitset usable with {@link #score(int, long[])}
+     */
+    public long[] encode(Collection<String> symptomNames) {
+        long[] bits = new long[(symptomIds.size() + 63) >>> 6];
+
+        for (String symptomName : symptomNames) {
+            if (symptomName == null) {
+                continue;
+            }
+            int symptomId = vocabulary.resolve(symptomName);
+            if (symptomId != SymptomVocabulary.UNKNOWN) {
+                bits[symptomId >>> 6] |= 1L << symptomId;
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * Find all diseases having at least one of the encoded symptoms in their pattern
+     *
+     * @param userSymptoms Bitset from {@link #encode(Collection)}
+     * @return Ascending disease ordinals, each at most once
+     */
+    public int[] findCandidateOrdinals(long[] userSymptoms) {
+        BitSet candidates = new BitSet(diseases.size());
+
+        for (int word = 0; word < userSymptoms.length; word++) {
+            long bits = userSymptoms[word];
+            while (bits != 0) {
+                int symptomId = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                for (int ordinal : postings[symptomId]) {
+                    candidates.set(ordinal);
+                }
+            }
+        }
+        return candidates.stream().toArray();
+    }
+
+    /**
+     * Find all diseases having at least one of the given symptoms in their pattern
+     *
+     * @param symptomNames Raw user symptom names
+     * @return Candidate disease mappings, each at most once, in index order
+     */
+    public List<SymptomDiseaseMapping> findCandidates(Collection<String> symptomNames) {
+        int[] ordinals = findCandidateOrdinals(encode(symptomNames));
+
+        List<SymptomDiseaseMapping> result = new ArrayList<>(ordinals.length);
+        for (int ordinal : ordinals) {
+            result.add(diseases.get(ordinal));
+        }
+        return result;
+    }
+
+    /**
+     * Calculate the match score of a disease against the user's symptoms
+     *
+     * Score = matched weight (critical symptoms count 1.5x) / total pattern weight.
+     * A missing critical symptom rejects the disease (score 0).
+     *
+     * PERFORMANCE: Only primitive array reads and bit tests - no allocation.
+     *
+     * @param disease      Disease ordinal
+     * @param userSymptoms Bitset from {@link #encode(Collection)}
+     * @return Match score (0-1.5)
+     */
+    public double score(int disease, long[] userSymptoms) {
+        return score(disease, userSymptoms, -1);
+    }
+
+    /**
+     * Calculate the match score, giving up as soon as it cannot exceed floor
+     *
+     * While walking the pattern members (heaviest first), the weight matched so
+     * far plus the weight still unchecked bounds the final score. Once that bound
+     * is not above floor the disease is abandoned.
+     *
+     * @param disease      Disease ordinal
+     * @param userSymptoms Bitset from {@link #encode(Collection)}
+     * @param floor        Score the caller needs to beat (negative = never abandon)
+     * @return Exact match score, or a value not above floor (0 if floor >= 0)
+     *         when the disease cannot beat it
+     */
+    public double score(int disease, long[] userSymptoms, double floor) {
+        double totalWeight = totalWeights[disease];
+        if (totalWeight == 0) {
+            return 0;
+        }
+
+        for (int i = criticalOffsets[disease], end = criticalOffsets[disease + 1]; i < end; i++) {
+            if (!contains(userSymptoms, criticalIds[i])) {
+                // Missing critical symptom = reject this disease
+                return 0;
+            }
+        }
+
+        double matchedWeight = 0;
+        double remainingWeight = maxMatchedWeights[disease];
+        for (int i = memberOffsets[disease], end = memberOffsets[disease + 1]; i < end; i++) {
+            remainingWeight -= memberWeights[i];
+            if (contains(userSymptoms, memberIds[i])) {
+                matchedWeight += memberWeights[i];
+            } else if (floor >= 0 && (matchedWeight + remainingWeight) / totalWeight <= floor) {
+                return 0;
+            }
+        }
+
+        return matchedWeight / totalWeight;
+    }
+
+    /**
+     * Highest score a disease can reach (all pattern members matched)
+     *
+     * @param disease Disease ordinal
+     * @return Upper bound of {@link #score(int, long[])} for any user
+     */
+    public double upperBound(int disease) {
+        double totalWeight = totalWeights[disease];
+        return totalWeight == 0 ? 0 : maxMatchedWeights[disease] / totalWeight;
+    }
+
+    /**
+     * Posting list (disease ordinals) for an already normalized symptom name
+     */
+    public int[] postingsOf(String normalizedSymptomName) {
+        Integer symptomId = symptomIds.get(normalizedSymptomName);
+        return symptomId != null ? postings[symptomId] : EMPTY_POSTINGS;
+    }
+
+    /**
+     * Vocabulary resolving user symptom names to this index's symptom ids
+     */
+    public SymptomVocabulary getVocabulary() {
+        return vocabulary;
+    }
+
+    /**
+     * Disease mapping by its ordinal in this index
+     */
+    public SymptomDiseaseMapping getDisease(int ordinal) {
+        return diseases.get(ordinal);
+    }
+
+    /**
+     * Number of diseases in the index
+     */
+    public int getDiseaseCount() {
+        return diseases.size();
+    }
+
+    /**
+     * Number of distinct normalized symptom names in the index
+     */
+    public int getVocabularySize() {
+        return symptomIds.size();
+    }
+
+    /**
+     * Knowledge base version this index was built from
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    private static boolean contains(long[] bits, int symptomId) {
+        return (bits[symptomId >>> 6] & (1L << symptomId)) != 0;
+    }
+
+    /**
+     * Minimal growable int array used while compiling
+     */
+    private static final class IntList {
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * Minimal growable double array used while compiling
+     */
+    private static final class DoubleList {
+        private double[] values = new double[16];
+        private int size;
+
+        void add(double value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        double[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.healthtracker.dss.knowledge;
+
+import java.util.*;
+
+/**
+ * Prefix trie for symptom name autocomplete
+ *
+ * Keys are folded names (see {@link SymptomVocabulary#fold(String)}), so
+ * "dau" suggests "Đau đầu". Every word start of a name is indexed as well,
+ * so "bung" suggests "Đau bụng".
+ *
+ * PERFORMANCE: The trie is flattened into primitive arrays (first child /
+ * next sibling per node) and each node stores its best suggestions,
+ * precomputed at build time. A lookup walks the prefix and copies at most
+ * {@code maxSuggestions} names - no traversal of the subtree, no sorting.
+ *
+ * Instances are immutable; rebuild and swap to update.
+ */
+public final class SymptomSuggestionTrie {
+
+    private static final int ROOT = 0;
+    private static final int NONE = -1;
+
+    private final String[] names;
+    private final int maxSuggestions;
+
+    // Node n: label[n], first child, next sibling (children sorted by label)
+    private final char[] labels;
+    private final int[] firstChild;
+    private final int[] nextSibling;
+
+    // Best name ids of node n: topIds[topOffsets[n] .. topOffsets[n + 1])
+    private final int[] topOffsets;
+    private final int[] topIds;
+
+    private SymptomSuggestionTrie(String[] names, int maxSuggestions, char[] labels, int[] firstChild,
+                                  int[] nextSibling, int[] topOffsets, int[] topIds) {
+        this.names = names;
+        this.maxSuggestions = maxSuggestions;
+        this.labels = labels;
+        this.firstChild = firstChild;
+        this.nextSibling = nextSibling;
+        this.topOffsets = topOffsets;
+        this.topIds = topIds;
+    }
+
+    /**
+     * Build a trie over weighted names
+     *
+     * Names folding to the same key are merged: their frequencies are added and
+     * the most frequent spelling is suggested.
+     *
+     * @param frequencies    Display name -> frequency (higher ranks first)
+     * @param maxSuggestions Suggestions kept per prefix
+     * @return Immutable trie
+     */
+    public static SymptomSuggestionTrie build(Map<String, Long> frequencies, int maxSuggestions) {
+        // Merge spellings by folded key
+        Map<String, String> displayByKey = new HashMap<>();
+        Map<String, Long> bestByKey = new HashMap<>();
+        Map<String, Long> totalByKey = new HashMap<>();
+        for (Map.Entry<String, Long> entry : frequencies.entrySet()) {
+            if (entry.getKey() == null || entry.getKey().isBlank()) {
+                continue;
+            }
+            String key = SymptomVocabulary.fold(entry.getKey());
+            long frequency = entry.getValue();
+            totalByKey.merge(key, frequency, Long::sum);
+            Long best = bestByKey.get(key);
+            if (best == null || frequency > best
+                    || (frequency == best && entry.getKey().compareTo(displayByKey.get(key)) < 0)) {
+                bestByKey.put(key, frequency);
+                displayByKey.put(key, entry.getKey().trim());
+            }
+        }
+
+        // Name ids in rank order: most frequent first, then alphabetical
+        List<String> keys = new ArrayList<>(totalByKey.keySet());
+        keys.sort(Comparator.<String>comparingLong(totalByKey::get).reversed()
+                .thenComparing(Comparator.naturalOrder()));
+        String[] names = new String[keys.size()];
+        for (int id = 0; id < names.length; id++) {
+            names[id] = displayByKey.get(keys.get(id));
+        }
+
+        // Insert in rank order, so each node's first maxSuggestions distinct ids are its best
+        Builder builder = new Builder(maxSuggestions);
+        for (int id = 0; id < keys.size(); id++) {
+            String key = keys.get(id);
+            for (int start = 0; start < key.length(); start++) {
+                if (start == 0 || key.charAt(start - 1) == ' ') {
+                    builder.insert(key, start, id);
+                }
+            }
+        }
+        return builder.compile(names, maxSuggestions);
+    }
+
+    /**
+     * Suggest names starting with the prefix (or having a word starting with it)
+     *
+     * @param prefix Raw user input
+     * @param limit  Maximum number of suggestions (capped at the build-time maximum)
+     * @return Names, most frequent first
+     */
+    public List<String> suggest(String prefix, int limit) {
+        if (prefix == null) {
+            return List.of();
+        }
+        String key = SymptomVocabulary.fold(prefix);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+
+        int node = ROOT;
+        for (int i = 0; i < key.length() && node != NONE; i++) {
+            node = child(node, key.charAt(i));
+        }
+        if (node == NONE) {
+            return List.of();
+        }
+
+        int from = topOffsets[node];
+        int to = Math.min(topOffsets[node + 1], from + Math.min(limit, maxSuggestions));
+        List<String> suggestions = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            suggestions.add(names[topIds[i]]);
+        }
+        return suggestions;
+    }
+
+    /**
+     * Number of distinct suggestible names
+     */
+    public int size() {
+        return names.length;
+    }
+
+    private int child(int node, char label) {
+        for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+            if (labels[child] == label) {
+                return child;
+            }
+            if (labels[child] > label) {
+                return NONE;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Pointer-based trie used only while building
+     */
+    private static final class Builder {
+        private final int maxSuggestions;
+        private final Node root = new Node('\0');
+        private int nodeCount = 1;
+
+        Builder(int maxSuggestions) {
+            this.maxSuggestions = maxSuggestions;
+        }
+
+        void insert(String key, int start, int id) {
+            Node node = root;
+            for (int i = start; i < key.length(); i++) {
+                char label = key.charAt(i);
+                Node next = node.children.get(label);
+                if (next == null) {
+                    next = new Node(label);
+                    node.children.put(label, next);
+                    nodeCount++;
+                }
+                next.addTop(id, maxSuggestions);
+                node = next;
+            }
+        }
+
+        SymptomSuggestionTrie compile(String[] names, int maxSuggestions) {
+            char[] labels = new char[nodeCount];
+            int[] firstChild = new int[nodeCount];
+            int[] nextSibling = new int[nodeCount];
+            int[] topOffsets = new int[nodeCount + 1];
+            List<Integer> topIds = new ArrayList<>();
+
+            // Breadth-first numbering; siblings get consecutive numbers in label order
+            List<Node> order = new ArrayList<>(nodeCount);
+            order.add(root);
+            for (int n = 0; n < order.size(); n++) {
+                Node node = order.get(n);
+                labels[n] = node.label;
+                topOffsets[n] = topIds.size();
+                topIds.addAll(node.top);
+
+                firstChild[n] = node.children.isEmpty() ? NONE : order.size();
+                int previous = NONE;
+                for (Node child : node.children.values()) {
+                    int number = order.size();
+                    order.add(child);
+                    if (previous != NONE) {
+                        nextSibling[previous] = number;
+                    }
+                    previous = number;
+                }
+                if (previous != NONE) {
+                    nextSibling[previous] = NONE;
+                }
+            }
+            nextSibling[ROOT] = NONE;
+            topOffsets[nodeCount] = topIds.size();
+
+            return new SymptomSuggestionTrie(names, maxSuggestions, labels, firstChild, nextSibling,
+                    topOffsets, topIds.stream().mapToInt(Integer::intValue).toArray());
+        }
+    }
+
+    private static final class Node {
+        private final char label;
+        private final TreeMap<Character, Node> children = new TreeMap<>();
+        private final List<Integer> top = new ArrayList<>(2);
+
+        Node(char label) {
+            this.label = label;
+        }
+
+        void addTop(int id, int maxSuggestions) {
+            // Ids arrive in rank order, so the last one is the only possible duplicate
+            if (top.size() < maxSuggestions && (top.isEmpty() || top.get(top.size() - 1) != id)) {
+                top.add(id);
+            }
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.healthtracker.dss.knowledge;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Resolves free-text user symptom names to canonical knowledge base symptom ids
+ *
+ * Resolution order, first hit wins:
+ * 1. Exact normalized name ("Đau đầu" -> "đau đầu")
+ * 2. Folded name: diacritics stripped, đ -> d, whitespace collapsed
+ *    ("dau  dau" -> "dau dau")
+ * 3. Nearest folded name within a small edit distance that grows with the
+ *    input length ("dau daau" -> "dau dau"); ambiguous nearest matches are
+ *    not resolved
+ *
+ * PERFORMANCE: Step 1 and 2 are hash lookups. Step 3 searches a BK-tree over
+ * the folded vocabulary, so only a small part of the vocabulary is compared
+ * against the input instead of every symptom pattern.
+ *
+ * Instances are immutable and built together with their {@link SymptomDiseaseIndex}.
+ */
+public final class SymptomVocabulary {
+
+    /**
+     * Id returned for names that cannot be resolved
+     */
+    public static final int UNKNOWN = -1;
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final Map<String, Integer> exactIds;
+    private final Map<String, Integer> foldedIds;
+    private final BkNode root;
+
+    private SymptomVocabulary(Map<String, Integer> exactIds, Map<String, Integer> foldedIds, BkNode root) {
+        this.exactIds = exactIds;
+        this.foldedIds = foldedIds;
+        this.root = root;
+    }
+
+    /**
+     * Build a vocabulary over normalized symptom names
+     *
+     * @param symptomIds Normalized symptom name -> symptom id
+     * @return Immutable vocabulary
+     */
+    public static SymptomVocabulary build(Map<String, Integer> symptomIds) {
+        // Lowest id first, so a folded name shared by several symptoms resolves deterministically
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(symptomIds.entrySet());
+        entries.sort(Map.Entry.comparingByValue());
+
+        Map<String, Integer> foldedIds = new HashMap<>();
+        BkNode root = null;
+        for (Map.Entry<String, Integer> entry : entries) {
+            String folded = fold(entry.getKey());
+            if (foldedIds.putIfAbsent(folded, entry.getValue()) != null) {
+                continue;
+            }
+            if (root == null) {
+                root = new BkNode(folded, entry.getValue());
+            } else {
+                root.insert(folded, entry.getValue());
+            }
+        }
+
+        return new SymptomVocabulary(Map.copyOf(symptomIds), Map.copyOf(foldedIds), root);
+    }
+
+    /**
+     * Fold a symptom name for accent- and spacing-insensitive matching
+     *
+     * "  Đau   ĐẦU " -> "dau dau"
+     */
+    public static String fold(String symptomName) {
+        String decomposed = Normalizer.normalize(symptomName, Normalizer.Form.NFD);
+        String stripped = COMBINING_MARKS.matcher(decomposed).replaceAll("")
+                .replace('đ', 'd')
+                .replace('Đ', 'd')
+                .toLowerCase(Locale.ROOT);
+        return WHITESPACE.matcher(stripped).replaceAll(" ").trim();
+    }
+
+    /**
+     * Largest edit distance tolerated for a folded input of the given length
+     */
+    static int maxDistance(int length) {
+        if (length <= 4) {
+            return 0;
+        }
+        return length <= 8 ? 1 : 2;
+    }
+
+    /**
+     * Resolve a raw user symptom name to its canonical symptom id
+     *
+     * @return Symptom id, or {@link #UNKNOWN}
+     */
+    public int resolve(String symptomName) {
+        if (symptomName == null) {
+            return UNKNOWN;
+        }
+
+        Integer id = exactIds.get(SymptomDiseaseIndex.normalize(symptomName));
+        if (id != null) {
+            return id;
+        }
+
+        String folded = fold(symptomName);
+        id = foldedIds.get(folded);
+        if (id != null) {
+            return id;
+        }
+
+        int maxDistance = maxDistance(folded.length());
+        if (maxDistance == 0 || root == null) {
+            return UNKNOWN;
+        }
+        return nearest(folded, maxDistance);
+    }
+
+    /**
+     * Number of distinct folded names
+     */
+    public int getFoldedSize() {
+        return foldedIds.size();
+    }
+
+    /**
+     * Id of the unique closest folded name within maxDistance, or UNKNOWN
+     */
+    private int nearest(String folded, int maxDistance) {
+        int bestDistance = maxDistance + 1;
+        int bestId = UNKNOWN;
+        boolean ambiguous = false;
+
+        Deque<BkNode> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            BkNode node = pending.pop();
+            int distance = levenshtein(folded, node.term);
+
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                bestId = node.id;
+                ambiguous = false;
+            } else if (distance == bestDistance && node.id != bestId) {
+                ambiguous = true;
+            }
+
+            // Triangle inequality: only children at |distance - d| <= radius can match
+            int radius = Math.min(bestDistance, maxDistance);
+            for (int d = Math.max(1, distance - radius); d <= distance + radius && d < node.children.length; d++) {
+                if (node.children[d] != null) {
+                    pending.push(node.children[d]);
+                }
+            }
+        }
+
+        return ambiguous ? UNKNOWN : bestId;
+    }
+
+    /**
+     * Levenshtein distance over two rows
+     */
+    static int levenshtein(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (ca == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    /**
+     * BK-tree node; child at index d holds terms at edit distance d from this term
+     */
+    private static final class BkNode {
+        private final String term;
+        private final int id;
+        private BkNode[] children = new BkNode[4];
+
+        BkNode(String term, int id) {
+            this.term = term;
+            this.id = id;
+        }
+
+        void insert(String term, int id) {
+            BkNode node = this;
+            while (true) {
+                int distance = levenshtein(term, node.term);
+                if (distance >= node.children.length) {
+                    node.children = Arrays.copyOf(node.children, Math.max(distance + 1, node.children.length * 2));
+                }
+                if (node.children[distance] == null) {
+                    node.children[distance] = new BkNode(term, id);
+                    return;
+                }
+                node = node.children[distance];
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.healthtracker.dss.knowledge;
+
+/**
+ * Bounded top-k selector over (id, score) pairs
+ *
+ * Keeps the k best entries scoring strictly above a threshold in a binary
+ * min-heap stored in primitive arrays, so offering a candidate is O(log k)
+ * and never allocates. {@link #floor()} is the score a new candidate has to
+ * beat, which lets callers skip candidates whose upper bound cannot.
+ *
+ * Ties are broken by id (lower id ranks first), so with ascending ids the
+ * result is deterministic.
+ *
+ * Not thread-safe - use one selector per ranking.
+ */
+public final class TopKSelector {
+
+    private final int k;
+    private final double threshold;
+    private final int[] ids;
+    private final double[] scores;
+    private int size;
+    private boolean sorted;
+
+    /**
+     * @param k         Maximum number of entries to keep
+     * @param threshold Entries must score strictly above this value
+     */
+    public TopKSelector(int k, double threshold) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative: " + k);
+        }
+        this.k = k;
+        this.threshold = threshold;
+        this.ids = new int[k];
+        this.scores = new double[k];
+    }
+
+    /**
+     * Score a candidate has to exceed to enter the top k
+     */
+    public double floor() {
+        if (k == 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return size < k ? threshold : scores[0];
+    }
+
+    /**
+     * Offer a candidate
+     *
+     * @return true if the candidate entered the top k
+     */
+    public boolean offer(int id, double score) {
+        if (sorted) {
+            throw new IllegalStateException("Selector already sorted");
+        }
+        if (!(score > floor())) {
+            return false;
+        }
+
+        if (size < k) {
+            ids[size] = id;
+            scores[size] = score;
+            siftUp(size++);
+        } else {
+            ids[0] = id;
+            scores[0] = score;
+            siftDown(0, size);
+        }
+        return true;
+    }
+
+    /**
+     * Sort the kept entries best first; afterwards the selector is read-only
+     */
+    public TopKSelector sortDescending() {
+        if (!sorted) {
+            // Heap sort: repeatedly move the worst entry to the end
+            for (int end = size - 1; end > 0; end--) {
+                swap(0, end);
+                siftDown(0, end);
+            }
+            sorted = true;
+        }
+        return this;
+    }
+
+    /**
+     * Number of kept entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Id at the given rank (0 = best), after {@link #sortDescending()}
+     */
+    public int idAt(int rank) {
+        checkSorted();
+        return ids[rank];
+    }
+
+    /**
+     * Score at the given rank (0 = best), after {@link #sortDescending()}
+     */
+    public double scoreAt(int rank) {
+        checkSorted();
+        return scores[rank];
+    }
+
+    private void checkSorted() {
+        if (!sorted) {
+            throw new IllegalStateException("Call sortDescending() first");
+        }
+    }
+
+    /**
+     * Whether entry i ranks worse than entry j (lower score, or equal score and higher id)
+     */
+    private boolean worse(int i, int j) {
+        return scores[i] < scores[j] || (scores[i] == scores[j] && ids[i] > ids[j]);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!worse(i, parent)) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i, int end) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= end) {
+                return;
+            }
+            int worst = left;
+            int right = left + 1;
+            if (right < end && worse(right, left)) {
+                worst = right;
+            }
+            if (!worse(worst, i)) {
+                return;
+            }
+            swap(i, worst);
+            i = worst;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+
+        double score = scores[i];
+        scores[i] = scores[j];
+        scores[j] = score;
+    }
+}
@@ -0,0 +1,185 @@
+package com.healthtracker.dss.risk;
+
+import com.healthtracker.dss.engine.MetricSeries;
+import com.healthtracker.model.HealthPrediction;
+import com.healthtracker.model.HealthProfile;
+import com.healthtracker.model.MetricType;
+import com.healthtracker.model.PredictionType;
+import com.healthtracker.model.User;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Cardiovascular disease risk
+ *
+ * Risk factors:
+ * - Age >45 (+15 points)
+ * - BMI >30 (+20 points), >25 (+10 points)
+ * - High BP average of the last 3 readings (+25 points)
+ * - Smoking (+20 points)
+ * - Sedentary lifestyle (+10 points)
+ * - Chronic diseases (+15 points)
+ */
+@Component
+@Order(1)
+public class CardiovascularRiskModel implements RiskModel {
+
+    static final String ALGORITHM = "Cardiovascular-Risk-Score-v1";
+
+    @Override
+    public String getAlgorithm() {
+        return ALGORITHM;
+    }
+
+    @Override
+    public Set<MetricType> getMetricTypes() {
+        return Set.of(MetricType.BLOOD_PRESSURE);
+    }
+
+    @Override
+    public int getReadingLimit(MetricType type) {
+        return 3;
+    }
+
+    @Override
+    public List<Object> getDigestInputs(RiskInput input) {
+        HealthProfile profile = input.profile();
+        return Arrays.asList(input.age(), profile.getBmi(), profile.getSmokingStatus(),
+                profile.getExerciseFrequency(), profile.getChronicDiseases(), profile.getFamilyMedicalHistory());
+    }
+
+    @Override
+    public HealthPrediction predict(RiskInput input) {
+        User user = input.user();
+        HealthProfile profile = input.profile();
+        MetricSeries metrics = input.metrics();
+
+        int cardioRiskPoints = 0;
+        List<String> riskFactors = new ArrayList<>();
+        List<String> protectiveFactors = new ArrayList<>();
+
+        // Age factor
+        int age = input.age();
+        if (age > 45) {
+            cardioRiskPoints += 15;
+            riskFactors.add(String.format("Tuổi %d (trên 45)", age));
+        }
+
+        // BMI factor
+        if (profile.getBmi() != null) {
+            if (profile.getBmi() > 30) {
+                cardioRiskPoints += 20;
+                riskFactors.add(String.format("BMI %.1f (béo phì)", profile.getBmi()));
+            } else if (profile.getBmi() > 25) {
+                cardioRiskPoints += 10;
+                riskFactors.add(String.format("BMI %.1f (thừa cân)", profile.getBmi()));
+            } else if (profile.getBmi() >= 18.5 && profile.getBmi() <= 24.9) {
+                protectiveFactors.add("BMI bình thường");
+            }
+        }
+
+        // Blood Pressure factor (last 3 readings)
+        int bpReadings = Math.min(3, metrics.count(MetricType.BLOOD_PRESSURE));
+
+        if (bpReadings > 0) {
+            double avgSystolic = metrics.averageOfLast(MetricType.BLOOD_PRESSURE, 3);
+
+            if (avgSystolic >= 140) {
+                cardioRiskPoints += 25;
+                riskFactors.add(String.format("Huyết áp cao (TB: %.0f mmHg)", avgSystolic));
+            } else if (avgSystolic < 120) {
+                protectiveFactors.add("Huyết áp bình thường");
+            }
+        }
+
+        // Smoking factor
+        if ("CURRENT".equals(profile.getSmokingStatus())) {
+            cardioRiskPoints += 20;
+            riskFactors.add("Đang hút thuốc");
+        } else if ("NEVER".equals(profile.getSmokingStatus())) {
+            protectiveFactors.add("Không hút thuốc");
+        }
+
+        // Exercise factor
+        if ("SEDENTARY".equals(profile.getExerciseFrequency())) {
+            cardioRiskPoints += 10;
+            riskFactors.add("Ít vận động");
+        } else if ("ACTIVE".equals(profile.getExerciseFrequency()) ||
+                "VERY_ACTIVE".equals(profile.getExerciseFrequency())) {
+            protectiveFactors.add("Vận động thường xuyên");
+        }
+
+        // Chronic diseases
+        if (profile.getChronicDiseases() != null && !profile.getChronicDiseases().isEmpty()) {
+            cardioRiskPoints += 15;
+            riskFactors.add("Có bệnh mãn tính");
+        }
+
+        // Determine risk level
+        String riskLevel = cardioRiskPoints >= 60 ? "VERY_HIGH"
+                : cardioRiskPoints >= 40 ? "HIGH" : cardioRiskPoints >= 20 ? "MODERATE" : "LOW";
+
+        // Generate recommendations
+        List<String> recommendations = generateCardioRecommendations(riskLevel, riskFactors);
+
+        // Build prediction text
+        String prediction = buildCardiovascularPredictionText(riskLevel, cardioRiskPoints);
+
+        // Calculate confidence based on available data
+        double confidence = RiskScores.confidence(bpReadings, profile);
+
+        return HealthPrediction.builder()
+                .userId(user.getEmail())
+                .predictionType(PredictionType.DISEASE_RISK)
+                .targetCondition("Bệnh tim mạch")
+                .riskScore((double) cardioRiskPoints)
+                .riskLevel(riskLevel)
+                .prediction(prediction)
+                .riskFactors(riskFactors)
+                .protectiveFactors(protectiveFactors)
+                .recommendations(recommendations)
+                .algorithm(ALGORITHM)
+                .confidenceScore(confidence)
+                .predictedAt(LocalDateTime.now())
+                .validUntil(LocalDateTime.now().plusMonths(6))
+                .build();
+    }
+
+    private List<String> generateCardioRecommendations(String riskLevel, List<String> riskFactors) {
+        List<String> recommendations = new ArrayList<>();
+
+        if ("VERY_HIGH".equals(riskLevel) || "HIGH".equals(riskLevel)) {
+            recommendations.add("🏥 Gặp bác sĩ tim mạch để đánh giá chi tiết");
+            recommendations.add("💊 Có thể cần dùng thuốc dự phòng");
+        }
+
+        recommendations.add("🏃 Tập thể dục đều đặn (150 phút/tuần)");
+        recommendations.add("🥗 Chế độ ăn DASH: nhiều rau củ, ít muối");
+        recommendations.add("🚭 Bỏ thuốc lá nếu đang hút");
+        recommendations.add("⚖️ Duy trì cân nặng khỏe mạnh");
+        recommendations.add("😴 Ngủ đủ 7-8 giờ/đêm");
+        recommendations.add("📊 Theo dõi huyết áp thường xuyên");
+
+        return recommendations;
+    }
+
+    private String buildCardiovascularPredictionText(String riskLevel, int points) {
+        String levelText = riskLevel.equals("VERY_HIGH") ? "RẤT CAO"
+                : riskLevel.equals("HIGH") ? "CAO" : riskLevel.equals("MODERATE") ? "VỪA PHẢI" : "THẤP";
+
+        return String.format(
+                "Nguy cơ Bệnh tim mạch: %s\n\n" +
+                        "Điểm nguy cơ: %d/100\n\n" +
+                        "%s",
+                levelText,
+                points,
+                riskLevel.equals("LOW") ? "Bạn có nguy cơ bệnh tim mạch thấp. Hãy duy trì lối sống lành mạnh."
+                        : "Bạn nên thực hiện các biện pháp để giảm nguy cơ bệnh tim mạch.");
+    }
+}
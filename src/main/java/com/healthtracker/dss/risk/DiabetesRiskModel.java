@@ -0,0 +1,161 @@
+package com.healthtracker.dss.risk;
+
+import com.healthtracker.dss.engine.MetricSeries;
+import com.healthtracker.model.HealthPrediction;
+import com.healthtracker.model.HealthProfile;
+import com.healthtracker.model.MetricType;
+import com.healthtracker.model.PredictionType;
+import com.healthtracker.model.User;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Type 2 diabetes risk
+ *
+ * Risk factors: age >45, BMI, average of the last 3 blood sugar readings,
+ * family history of diabetes, sedentary lifestyle.
+ */
+@Component
+@Order(2)
+public class DiabetesRiskModel implements RiskModel {
+
+    static final String ALGORITHM = "Diabetes-Risk-Score-v1";
+
+    @Override
+    public String getAlgorithm() {
+        return ALGORITHM;
+    }
+
+    @Override
+    public Set<MetricType> getMetricTypes() {
+        return Set.of(MetricType.BLOOD_SUGAR);
+    }
+
+    @Override
+    public int getReadingLimit(MetricType type) {
+        return 3;
+    }
+
+    @Override
+    public List<Object> getDigestInputs(RiskInput input) {
+        HealthProfile profile = input.profile();
+        return Arrays.asList(input.age(), profile.getBmi(), profile.getSmokingStatus(),
+                profile.getExerciseFrequency(), profile.getFamilyMedicalHistory());
+    }
+
+    @Override
+    public HealthPrediction predict(RiskInput input) {
+        User user = input.user();
+        HealthProfile profile = input.profile();
+        MetricSeries metrics = input.metrics();
+
+        int diabetesRiskPoints = 0;
+        List<String> riskFactors = new ArrayList<>();
+        List<String> protectiveFactors = new ArrayList<>();
+
+        // Age factor
+        int age = input.age();
+        if (age > 45) {
+            diabetesRiskPoints += 15;
+            riskFactors.add(String.format("Tuổi %d (trên 45)", age));
+        }
+
+        // BMI factor
+        if (profile.getBmi() != null) {
+            if (profile.getBmi() >= 30) {
+                diabetesRiskPoints += 25;
+                riskFactors.add("BMI cao (béo phì)");
+            } else if (profile.getBmi() >= 25) {
+                diabetesRiskPoints += 15;
+                riskFactors.add("Thừa cân");
+            }
+        }
+
+        // Blood sugar factor (last 3 readings)
+        int bsReadings = Math.min(3, metrics.count(MetricType.BLOOD_SUGAR));
+
+        if (bsReadings > 0) {
+            double avgBloodSugar = metrics.averageOfLast(MetricType.BLOOD_SUGAR, 3);
+
+            if (avgBloodSugar >= 126) {
+                diabetesRiskPoints += 30;
+                riskFactors.add("Đường huyết cao");
+            } else if (avgBloodSugar >= 100) {
+                diabetesRiskPoints += 20;
+                riskFactors.add("Tiền tiểu đường");
+            } else if (avgBloodSugar < 100) {
+                protectiveFactors.add("Đường huyết bình thường");
+            }
+        }
+
+        // Family history
+        if (profile.getFamilyMedicalHistory() != null &&
+                profile.getFamilyMedicalHistory().stream()
+                        .anyMatch(h -> h.toLowerCase().contains("tiểu đường") ||
+                                h.toLowerCase().contains("diabetes"))) {
+            diabetesRiskPoints += 20;
+            riskFactors.add("Tiền sử gia đình có tiểu đường");
+        }
+
+        // Exercise
+        if ("SEDENTARY".equals(profile.getExerciseFrequency())) {
+            diabetesRiskPoints += 10;
+            riskFactors.add("Ít vận động");
+        } else if ("ACTIVE".equals(profile.getExerciseFrequency())) {
+            protectiveFactors.add("Vận động đều đặn");
+        }
+
+        String riskLevel = diabetesRiskPoints >= 60 ? "VERY_HIGH"
+                : diabetesRiskPoints >= 40 ? "HIGH" : diabetesRiskPoints >= 20 ? "MODERATE" : "LOW";
+
+        List<String> recommendations = generateDiabetesRecommendations(riskLevel);
+
+        String prediction = String.format(
+                "Nguy cơ Tiểu đường Type 2: %s\n\n" +
+                        "Điểm nguy cơ: %d/100\n" +
+                        "%s",
+                riskLevel.equals("VERY_HIGH") ? "RẤT CAO"
+                        : riskLevel.equals("HIGH") ? "CAO" : riskLevel.equals("MODERATE") ? "VỪA PHẢI" : "THẤP",
+                diabetesRiskPoints,
+                riskLevel.equals("LOW") ? "Bạn có nguy cơ tiểu đường thấp. Tiếp tục duy trì lối sống lành mạnh."
+                        : "Bạn nên thực hiện các biện pháp phòng ngừa để giảm nguy cơ.");
+
+        return HealthPrediction.builder()
+                .userId(user.getEmail())
+                .predictionType(PredictionType.DISEASE_RISK)
+                .targetCondition("Tiểu đường Type 2")
+                .riskScore((double) diabetesRiskPoints)
+                .riskLevel(riskLevel)
+                .prediction(prediction)
+                .riskFactors(riskFactors)
+                .protectiveFactors(protectiveFactors)
+                .recommendations(recommendations)
+                .algorithm(ALGORITHM)
+                .confidenceScore(RiskScores.confidence(bsReadings, profile))
+                .predictedAt(LocalDateTime.now())
+                .validUntil(LocalDateTime.now().plusMonths(6))
+                .build();
+    }
+
+    private List<String> generateDiabetesRecommendations(String riskLevel) {
+        List<String> recommendations = new ArrayList<>();
+
+        if ("VERY_HIGH".equals(riskLevel) || "HIGH".equals(riskLevel)) {
+            recommendations.add("🏥 Kiểm tra HbA1c với bác sĩ");
+        }
+
+        recommendations.add("🥗 Giảm đường và tinh bột tinh chế");
+        recommendations.add("🏃 Tập thể dục 30 phút/ngày");
+        recommendations.add("⚖️ Giảm 5-10% cân nặng nếu thừa cân");
+        recommendations.add("🍎 Ăn nhiều rau xanh, ngũ cốc nguyên hạt");
+        recommendations.add("📊 Theo dõi đường huyết định kỳ");
+
+        return recommendations;
+    }
+}
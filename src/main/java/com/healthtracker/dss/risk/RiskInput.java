@@ -0,0 +1,34 @@
+package com.healthtracker.dss.risk;
+
+import com.healthtracker.dss.engine.MetricSeries;
+import com.healthtracker.model.HealthProfile;
+import com.healthtracker.model.MetricTrend;
+import com.healthtracker.model.MetricType;
+import com.healthtracker.model.User;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.Map;
+
+/**
+ * Data of one user shared by all risk models
+ *
+ * @param metrics Readings of the metric types of all models, over the lookback period
+ * @param trends  Running trends of the trend types of all models
+ */
+public record RiskInput(User user, HealthProfile profile, MetricSeries metrics, Map<MetricType, MetricTrend> trends) {
+
+    /**
+     * Running trend of a type, null if not loaded
+     */
+    public MetricTrend trend(MetricType type) {
+        return trends.get(type);
+    }
+
+    /**
+     * Age in years today
+     */
+    public int age() {
+        return Period.between(user.getDateOfBirth(), LocalDate.now()).getYears();
+    }
+}
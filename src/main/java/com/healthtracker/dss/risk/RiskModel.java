@@ -0,0 +1,68 @@
+package com.healthtracker.dss.risk;
+
+import com.healthtracker.model.HealthPrediction;
+import com.healthtracker.model.MetricType;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Risk prediction model (SPI)
+ *
+ * Every RiskModel bean is run by RiskPredictionService. The service fetches
+ * the readings of all models in one query - the union of their metric types,
+ * each with the largest reading limit asked for - and runs the models
+ * concurrently, so a new model adds its own cost but no request latency.
+ *
+ * Models must be stateless and thread-safe. Bean order (@Order) is the
+ * order of the predictions returned.
+ */
+public interface RiskModel {
+
+    /**
+     * Algorithm name and version, stored on predictions and part of their
+     * input digest: change it whenever the model's logic changes
+     *
+     * @return e.g. "Cardiovascular-Risk-Score-v1"
+     */
+    String getAlgorithm();
+
+    /**
+     * Metric types the model reads
+     */
+    Set<MetricType> getMetricTypes();
+
+    /**
+     * Metric types whose running trend ({@link RiskInput#trend}) the model reads
+     */
+    default Set<MetricType> getTrendTypes() {
+        return Set.of();
+    }
+
+    /**
+     * Latest readings of a type the model reads
+     *
+     * @return 0 (default) for every reading of the lookback period
+     */
+    default int getReadingLimit(MetricType type) {
+        return 0;
+    }
+
+    /**
+     * User and profile values the model reads, part of the input digest
+     *
+     * A value missing here would let a stale prediction be reused after it
+     * changed. Readings of {@link #getMetricTypes()} are digested already,
+     * trends are not.
+     *
+     * @return Values in a fixed order (nulls allowed)
+     */
+    List<Object> getDigestInputs(RiskInput input);
+
+    /**
+     * Predict from the user's data
+     *
+     * @return Prediction, or null if there is not enough data
+     */
+    HealthPrediction predict(RiskInput input);
+}
@@ -0,0 +1,34 @@
+package com.healthtracker.dss.risk;
+
+import com.healthtracker.model.HealthProfile;
+
+/**
+ * Scoring helpers shared by the built-in risk models
+ */
+final class RiskScores {
+
+    private RiskScores() {
+    }
+
+    /**
+     * Confidence from the number of readings used and the profile completeness
+     */
+    static double confidence(int dataPoints, HealthProfile profile) {
+        double confidence = 50.0; // Base confidence
+
+        // More data = higher confidence
+        confidence += Math.min(dataPoints * 5, 25);
+
+        // Complete profile = higher confidence
+        if (profile.getBmi() != null)
+            confidence += 10;
+        if (profile.getSmokingStatus() != null)
+            confidence += 5;
+        if (profile.getExerciseFrequency() != null)
+            confidence += 5;
+        if (profile.getFamilyMedicalHistory() != null)
+            confidence += 5;
+
+        return Math.min(confidence, 100);
+    }
+}
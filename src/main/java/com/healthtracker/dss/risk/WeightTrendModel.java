@@ -0,0 +1,112 @@
+package com.healthtracker.dss.risk;
+
+import com.healthtracker.model.HealthPrediction;
+import com.healthtracker.model.HealthProfile;
+import com.healthtracker.model.MetricTrend;
+import com.healthtracker.model.MetricType;
+import com.healthtracker.model.PredictionType;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Weight trend from the user's running weight trend
+ *
+ * Projects the least-squares slope of the weight readings of the last six
+ * months ({@link MetricTrend#WINDOW_MONTHS}) to six months, relative to the
+ * current weight (EWMA). Reads the {@link MetricTrend} only, never the raw
+ * readings.
+ */
+@Component
+@Order(3)
+public class WeightTrendModel implements RiskModel {
+
+    static final String ALGORITHM = "Weight-Trend-Regression-v3";
+
+    private static final int PROJECTION_DAYS = 180;
+
+    @Override
+    public String getAlgorithm() {
+        return ALGORITHM;
+    }
+
+    @Override
+    public Set<MetricType> getMetricTypes() {
+        return Set.of();
+    }
+
+    @Override
+    public Set<MetricType> getTrendTypes() {
+        return Set.of(MetricType.WEIGHT);
+    }
+
+    @Override
+    public List<Object> getDigestInputs(RiskInput input) {
+        MetricTrend trend = input.trend(MetricType.WEIGHT);
+        LocalDateTime now = LocalDateTime.now();
+        return trend == null ? List.of() : List.of(trend.count(now), trend.slopePerDay(now),
+                trend.getEwma() != null ? trend.getEwma() : Double.NaN);
+    }
+
+    @Override
+    public HealthPrediction predict(RiskInput input) {
+        HealthProfile profile = input.profile();
+        MetricTrend weight = input.trend(MetricType.WEIGHT);
+        LocalDateTime now = LocalDateTime.now();
+
+        if (weight == null || weight.count(now) < 3 || weight.getEwma() == null
+                || Double.isNaN(weight.slopePerDay(now))) {
+            return null; // Not enough data
+        }
+
+        // Fitted change over six months, relative to the current weight
+        double currentWeight = weight.getEwma();
+        double change = weight.slopePerDay(now) * PROJECTION_DAYS;
+        double changePercent = (change / currentWeight) * 100;
+
+        String trend = change > 2 ? "TĂNG" : change < -2 ? "GIẢM" : "ỔN ĐỊNH";
+        String riskLevel = Math.abs(changePercent) > 10 ? "HIGH" : Math.abs(changePercent) > 5 ? "MODERATE" : "LOW";
+
+        String prediction = String.format(
+                "Xu hướng cân nặng: %s\n\n" +
+                        "Thay đổi: %.1f kg (%.1f%%) mỗi %d tháng\n" +
+                        "Theo %d lần đo, cân nặng hiện tại khoảng %.1f kg",
+                trend,
+                change,
+                changePercent,
+                6,
+                weight.count(now),
+                currentWeight);
+
+        List<String> recommendations = new ArrayList<>();
+        if (change > 5) {
+            recommendations.add("Cân nặng tăng đáng kể - Xem xét chế độ ăn");
+            recommendations.add("Tăng hoạt động thể chất");
+        } else if (change < -5) {
+            recommendations.add("Cân nặng giảm đáng kể - Kiểm tra nguyên nhân");
+            recommendations.add("Đảm bảo dinh dưỡng đầy đủ");
+        } else {
+            recommendations.add("Cân nặng ổn định - Tiếp tục duy trì");
+        }
+
+        return HealthPrediction.builder()
+                .userId(profile.getUserId())
+                .predictionType(PredictionType.HEALTH_TREND)
+                .targetCondition("Xu hướng cân nặng")
+                .riskScore(Math.abs(changePercent))
+                .riskLevel(riskLevel)
+                .prediction(prediction)
+                .riskFactors(List.of())
+                .protectiveFactors(List.of())
+                .recommendations(recommendations)
+                .algorithm(ALGORITHM)
+                .confidenceScore(75.0)
+                .predictedAt(LocalDateTime.now())
+                .validUntil(LocalDateTime.now().plusMonths(3))
+                .build();
+    }
+}
@@ -1,79 +1,73 @@
 package com.healthtracker.dss.rules;
 
+import com.healthtracker.dss.engine.InputDigest;
+import com.healthtracker.dss.engine.MetricSeries;
 import com.healthtracker.dss.engine.Rule;
-import com.healthtracker.model.HealthMetric;
+import com.healthtracker.dss.engine.RuleOutcome;
 import com.healthtracker.model.MetricType;
 import org.springframework.stereotype.Component;
 
-import java.util.Comparator;
-import java.util.List;
-
 /**
  * Rule for evaluating persistent high blood pressure
  * Checks if last 3 BP readings show hypertension
  */
 @Component
-public class BloodPressureRule implements Rule<List<HealthMetric>> {
-    
-    private String recommendation;
+public class BloodPressureRule implements Rule<MetricSeries> {
     
     @Override
-    public boolean evaluate(List<HealthMetric> metrics) {
-        // Get last 3 blood pressure readings
-        List<HealthMetric> bpReadings = metrics.stream()
-                .filter(m -> m.getMetricType() == MetricType.BLOOD_PRESSURE)
-                .filter(m -> m.getSystolic() != null && m.getDiastolic() != null)
-                .sorted(Comparator.comparing(HealthMetric::getMeasuredAt).reversed())
-                .limit(3)
-                .toList();
-        
-        if (bpReadings.size() < 3) {
-            return false;
+    public RuleOutcome evaluate(MetricSeries metrics) {
+        // Need the last 3 blood pressure readings
+        if (metrics.count(MetricType.BLOOD_PRESSURE) < 3) {
+            return RuleOutcome.notFired();
         }
         
         // Check if all 3 readings show hypertension (≥140/90)
-        boolean allHigh = bpReadings.stream()
-                .allMatch(m -> m.getSystolic() >= 140 || m.getDiastolic() >= 90);
+        boolean allHigh = true;
+        for (int k = 0; k < 3 && allHigh; k++) {
+            allHigh = metrics.latest(MetricType.BLOOD_PRESSURE, k) >= 140 || metrics.latestDiastolic(k) >= 90;
+        }
         
         if (allHigh) {
-            double avgSystolic = bpReadings.stream()
-                    .mapToDouble(HealthMetric::getSystolic)
-                    .average()
-                    .orElse(0);
-            double avgDiastolic = bpReadings.stream()
-                    .mapToDouble(HealthMetric::getDiastolic)
-                    .average()
-                    .orElse(0);
+            double avgSystolic = metrics.averageOfLast(MetricType.BLOOD_PRESSURE, 3);
+            double avgDiastolic = metrics.averageDiastolicOfLast(3);
             
-            recommendation = "⚠️ CẢNH BÁO: Huyết áp cao liên tục trong 3 lần đo gần nhất\n" +
-                           String.format("Trung bình: %.0f/%.0f mmHg\n", avgSystolic, avgDiastolic) +
-                           "Khuyến nghị:\n" +
-                           "1. Gặp bác sĩ tim mạch trong 1-2 tuần\n" +
-                           "2. Giảm muối trong chế độ ăn (< 5g/ngày)\n" +
-                           "3. Tăng hoạt động thể chất\n" +
-                           "4. Giảm stress, ngủ đủ giấc\n" +
-                           "5. Hạn chế rượu bia\n" +
-                           "6. Theo dõi huyết áp hàng ngày";
+            String recommendation = "⚠️ CẢNH BÁO: Huyết áp cao liên tục trong 3 lần đo gần nhất\n" +
+                                  String.format("Trung bình: %.0f/%.0f mmHg\n", avgSystolic, avgDiastolic) +
+                                  "Khuyến nghị:\n" +
+                                  "1. Gặp bác sĩ tim mạch trong 1-2 tuần\n" +
+                                  "2. Giảm muối trong chế độ ăn (< 5g/ngày)\n" +
+                                  "3. Tăng hoạt động thể chất\n" +
+                                  "4. Giảm stress, ngủ đủ giấc\n" +
+                                  "5. Hạn chế rượu bia\n" +
+                                  "6. Theo dõi huyết áp hàng ngày";
             
-            return true;
+            return RuleOutcome.fired("CRITICAL", recommendation);
         }
         
-        return false;
+        return RuleOutcome.notFired();
     }
     
     @Override
-    public String getRecommendation() {
-        return recommendation;
+    public long inputDigest(MetricSeries metrics) {
+        // Only the last 3 readings are read
+        int n = Math.min(3, metrics.count(MetricType.BLOOD_PRESSURE));
+        long digest = InputDigest.add(InputDigest.start(), n);
+        for (int k = 0; k < n; k++) {
+            digest = InputDigest.add(digest, metrics.latest(MetricType.BLOOD_PRESSURE, k));
+            digest = InputDigest.add(digest, metrics.latestDiastolic(k));
+        }
+        return InputDigest.finish(digest);
     }
     
     @Override
-    public String getSeverity() {
-        return "CRITICAL";
+    public String getRuleName() {
+        return "PERSISTENT_HYPERTENSION";
     }
     
     @Override
-    public String getRuleName() {
-        return "PERSISTENT_HYPERTENSION";
+    public int getEstimatedCost() {
+        // Visits the last 3 readings
+        return 3;
     }
 }
 
@@ -1,93 +1,80 @@
 package com.healthtracker.dss.rules;
 
+import com.healthtracker.dss.engine.InputDigest;
+import com.healthtracker.dss.engine.MetricSeries;
 import com.healthtracker.dss.engine.Rule;
-import com.healthtracker.model.HealthMetric;
+import com.healthtracker.dss.engine.RuleOutcome;
 import com.healthtracker.model.MetricType;
 import org.springframework.stereotype.Component;
 
-import java.util.Comparator;
-import java.util.List;
-
 /**
  * Rule for evaluating blood sugar levels and diabetes risk
  */
 @Component
-public class BloodSugarRule implements Rule<List<HealthMetric>> {
-    
-    private String recommendation;
-    private String severity;
+public class BloodSugarRule implements Rule<MetricSeries> {
     
     @Override
-    public boolean evaluate(List<HealthMetric> metrics) {
-        // Get last 3 blood sugar readings
-        List<HealthMetric> bsReadings = metrics.stream()
-                .filter(m -> m.getMetricType() == MetricType.BLOOD_SUGAR)
-                .filter(m -> m.getValue() != null)
-                .sorted(Comparator.comparing(HealthMetric::getMeasuredAt).reversed())
-                .limit(3)
-                .toList();
-        
-        if (bsReadings.size() < 2) {
-            return false;
+    public RuleOutcome evaluate(MetricSeries metrics) {
+        // Average of the last 3 blood sugar readings (at least 2 needed)
+        if (metrics.count(MetricType.BLOOD_SUGAR) < 2) {
+            return RuleOutcome.notFired();
         }
         
-        double avgBloodSugar = bsReadings.stream()
-                .mapToDouble(HealthMetric::getValue)
-                .average()
-                .orElse(0);
+        double avgBloodSugar = metrics.averageOfLast(MetricType.BLOOD_SUGAR, 3);
         
         // Critical: Very high blood sugar (≥200 mg/dL)
         if (avgBloodSugar >= 200) {
-            severity = "CRITICAL";
-            recommendation = "⚠️ CẢNH BÁO: Đường huyết rất cao\n" +
-                           String.format("Trung bình: %.0f mg/dL\n", avgBloodSugar) +
-                           "Khuyến nghị:\n" +
-                           "1. GẶP BÁC SĨ NGAY LẬP TỨC\n" +
-                           "2. Kiểm tra tiểu đường\n" +
-                           "3. Có thể cần dùng thuốc\n" +
-                           "4. Theo dõi đường huyết hàng ngày";
-            return true;
+            String severity = "CRITICAL";
+            String recommendation = "⚠️ CẢNH BÁO: Đường huyết rất cao\n" +
+                                  String.format("Trung bình: %.0f mg/dL\n", avgBloodSugar) +
+                                  "Khuyến nghị:\n" +
+                                  "1. GẶP BÁC SĨ NGAY LẬP TỨC\n" +
+                                  "2. Kiểm tra tiểu đường\n" +
+                                  "3. Có thể cần dùng thuốc\n" +
+                                  "4. Theo dõi đường huyết hàng ngày";
+            return RuleOutcome.fired(severity, recommendation);
         }
         
         // Warning: High blood sugar (≥126 mg/dL fasting)
         if (avgBloodSugar >= 126) {
-            severity = "WARNING";
-            recommendation = "⚠️ Đường huyết cao - Nguy cơ tiểu đường\n" +
-                           String.format("Trung bình: %.0f mg/dL\n", avgBloodSugar) +
-                           "Khuyến nghị:\n" +
-                           "1. Gặp bác sĩ để kiểm tra tiểu đường\n" +
-                           "2. Giảm đường và tinh bột tinh chế\n" +
-                           "3. Tăng hoạt động thể chất\n" +
-                           "4. Giảm cân nếu thừa cân\n" +
-                           "5. Theo dõi đường huyết thường xuyên";
-            return true;
+            String severity = "WARNING";
+            String recommendation = "⚠️ Đường huyết cao - Nguy cơ tiểu đường\n" +
+                                  String.format("Trung bình: %.0f mg/dL\n", avgBloodSugar) +
+                                  "Khuyến nghị:\n" +
+                                  "1. Gặp bác sĩ để kiểm tra tiểu đường\n" +
+                                  "2. Giảm đường và tinh bột tinh chế\n" +
+                                  "3. Tăng hoạt động thể chất\n" +
+                                  "4. Giảm cân nếu thừa cân\n" +
+                                  "5. Theo dõi đường huyết thường xuyên";
+            return RuleOutcome.fired(severity, recommendation);
         }
         
         // Pre-diabetes (100-125 mg/dL)
         if (avgBloodSugar >= 100) {
-            severity = "WARNING";
-            recommendation = "💡 Tiền tiểu đường\n" +
-                           String.format("Trung bình: %.0f mg/dL\n", avgBloodSugar) +
-                           "Khuyến nghị:\n" +
-                           "1. Thay đổi lối sống ngay để ngăn ngừa tiểu đường\n" +
-                           "2. Giảm 5-10% cân nặng\n" +
-                           "3. Tập thể dục 30 phút/ngày\n" +
-                           "4. Ăn nhiều rau xanh, giảm đường\n" +
-                           "5. Kiểm tra lại sau 3-6 tháng";
-            return true;
+            String severity = "WARNING";
+            String recommendation = "💡 Tiền tiểu đường\n" +
+                                  String.format("Trung bình: %.0f mg/dL\n", avgBloodSugar) +
+                                  "Khuyến nghị:\n" +
+                                  "1. Thay đổi lối sống ngay để ngăn ngừa tiểu đường\n" +
+                                  "2. Giảm 5-10% cân nặng\n" +
+                                  "3. Tập thể dục 30 phút/ngày\n" +
+                                  "4. Ăn nhiều rau xanh, giảm đường\n" +
+                                  "5. Kiểm tra lại sau 3-6 tháng";
+            return RuleOutcome.fired(severity, recommendation);
         }
         
-        return false;
+        return RuleOutcome.notFired();
     }
     
     @Override
-    public String getRecommendation() {
-        return recommendation;
-    }
-    
-    @Override
-    public String getSeverity() {
-        return severity;
+    public long inputDigest(MetricSeries metrics) {
+        // Only the last 3 readings are read
+        int n = Math.min(3, metrics.count(MetricType.BLOOD_SUGAR));
+        long digest = InputDigest.add(InputDigest.start(), n);
+        for (int k = 0; k < n; k++) {
+            digest = InputDigest.add(digest, metrics.latest(MetricType.BLOOD_SUGAR, k));
+        }
+        return InputDigest.finish(digest);
     }
     
     @Override
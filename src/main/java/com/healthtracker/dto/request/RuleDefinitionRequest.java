@@ -0,0 +1,74 @@
+package com.healthtracker.dto.request;
+
+import com.healthtracker.model.MetricType;
+import com.healthtracker.model.RuleDefinition;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Rule definition as written by an admin; id, version and timestamps are assigned server-side
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RuleDefinitionRequest {
+
+    @NotBlank(message = "Rule name is required")
+    @Pattern(regexp = "[A-Z0-9_]{1,64}", message = "Rule name must be 1-64 uppercase letters, digits or underscores")
+    private String name;
+
+    private String description;
+
+    @NotNull(message = "Metric type is required")
+    private MetricType metricType;
+
+    private RuleDefinition.Field field;
+
+    @NotNull(message = "Aggregate is required")
+    private RuleDefinition.Aggregate aggregate;
+
+    @Positive(message = "Window readings must be positive")
+    private Integer windowReadings;
+
+    @Positive(message = "Window days must be positive")
+    private Integer windowDays;
+
+    @Positive(message = "Minimum readings must be positive")
+    private Integer minReadings;
+
+    @NotNull(message = "Operator is required")
+    private RuleDefinition.Operator operator;
+
+    @NotEmpty(message = "At least one threshold is required")
+    private List<@Valid Threshold> thresholds;
+
+    private Boolean enabled;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Threshold {
+
+        @NotNull(message = "Threshold value is required")
+        private Double value;
+
+        @NotBlank(message = "Threshold severity is required")
+        @Pattern(regexp = "INFO|WARNING|CRITICAL", message = "Threshold severity must be INFO, WARNING or CRITICAL")
+        private String severity;
+
+        @NotBlank(message = "Threshold message key is required")
+        private String messageKey;
+    }
+}
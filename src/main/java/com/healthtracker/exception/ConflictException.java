@@ -0,0 +1,11 @@
+package com.healthtracker.exception;
+
+/**
+ * Exception thrown when a write conflicts with the current state (e.g. a concurrent update)
+ */
+public class ConflictException extends RuntimeException {
+
+    public ConflictException(String message) {
+        super(message);
+    }
+}
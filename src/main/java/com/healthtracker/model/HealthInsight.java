@@ -5,6 +5,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -13,8 +14,15 @@ import java.util.Map;
 
 /**
  * Health insight entity - DSS output for health recommendations and warnings
+ *
+ * Insights are coalesced: at most one document per (userId, category,
+ * contentFingerprint). Regenerating the same insight only refreshes its dates.
  */
 @Document(collection = "health_insights")
+@CompoundIndex(name = "user_category_fingerprint",
+        def = "{ 'userId': 1, 'category': 1, 'contentFingerprint': 1 }",
+        unique = true,
+        partialFilter = "{ 'contentFingerprint': { $exists: true } }")
 @Data
 @Builder
 @NoArgsConstructor
@@ -58,11 +66,22 @@ public class HealthInsight {
     @Indexed
     private Boolean isRead;
     
+    /**
+     * When the user last marked the insight read; regenerating it later makes it unread again
+     */
+    private LocalDateTime readAt;
+    
     private LocalDateTime generatedAt;
     
     /**
      * Insight expires after this date
      */
     private LocalDateTime expiresAt;
+
+    /**
+     * Hash of the insight content (type, title, message, advice, severity)
+     * Used to coalesce repeated insights into one document
+     */
+    private String contentFingerprint;
 }
 
@@ -5,6 +5,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -12,8 +13,12 @@ import java.time.LocalDateTime;
 
 /**
  * Health metric entity for time-series health data
+ *
+ * The (userId, measuredAt) index serves batch jobs streaming recent metrics
+ * user by user.
  */
 @Document(collection = "health_metrics")
+@CompoundIndex(name = "user_measured_at", def = "{ 'userId': 1, 'measuredAt': 1 }")
 @Data
 @Builder
 @NoArgsConstructor
@@ -5,6 +5,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -13,8 +14,15 @@ import java.util.List;
 
 /**
  * Health prediction entity - DSS output for risk predictions and health trends
+ *
+ * The (userId, inputDigest) index finds a still valid prediction made from
+ * the same inputs, which is returned instead of predicting again. It is
+ * unique: predictions are upserted on it, so one document per user and inputs.
+ * Predictions stored before digests existed have none and are not indexed.
  */
 @Document(collection = "health_predictions")
+@CompoundIndex(name = "user_input_digest", def = "{ 'userId': 1, 'inputDigest': 1 }", unique = true,
+        partialFilter = "{ 'inputDigest': { '$exists': true } }")
 @Data
 @Builder
 @NoArgsConstructor
@@ -71,6 +79,11 @@ public class HealthPrediction {
      */
     private Double confidenceScore;
     
+    /**
+     * SHA-256 of the algorithm version and every input the prediction was made from
+     */
+    private String inputDigest;
+    
     private LocalDateTime predictedAt;
     
     /**
@@ -0,0 +1,59 @@
+package com.healthtracker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of a batch job, one document per job
+ *
+ * Doubles as the job's lease: a run owns the job while its status is RUNNING
+ * and leaseUntil is in the future, so two instances never sweep at once. A
+ * run that crashed leaves RUNNING behind with an expired lease, and the next
+ * run resumes after lastKey.
+ */
+@Document(collection = "job_checkpoints")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobCheckpoint {
+
+    /**
+     * Job name
+     */
+    @Id
+    private String id;
+
+    /**
+     * Identifies the run that owns the job
+     */
+    private String runId;
+
+    /**
+     * Status: RUNNING, COMPLETED, FAILED
+     */
+    private String status;
+
+    /**
+     * Last key fully processed (e.g. userId); the run resumes after it
+     */
+    private String lastKey;
+
+    private long processed;
+
+    private long produced;
+
+    private LocalDateTime startedAt;
+
+    private LocalDateTime updatedAt;
+
+    private LocalDateTime finishedAt;
+
+    private LocalDateTime leaseUntil;
+}
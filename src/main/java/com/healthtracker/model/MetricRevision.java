@@ -0,0 +1,32 @@
+package com.healthtracker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Revision of a user's stored readings, one document per user
+ *
+ * Bumped whenever one of the user's readings is edited or deleted, on
+ * whichever instance handled it. State derived from the readings and kept
+ * in memory (e.g. rule windows) is stamped with the revision it was built
+ * at, and rebuilt when the stored revision moved on.
+ */
+@Document(collection = "metric_revisions")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MetricRevision {
+
+    /**
+     * userId
+     */
+    @Id
+    private String id;
+
+    private long revision;
+}
@@ -0,0 +1,200 @@
+package com.healthtracker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Running trend of one metric type of a user, one small document per pair
+ *
+ * Holds the sums of a least-squares fit of value against time (x in days
+ * since {@link #ORIGIN}) in monthly buckets, and an exponentially weighted
+ * moving average, so a new reading is added in O(1) and trends are read
+ * without the raw history. Blood pressure is tracked by its systolic value.
+ *
+ * The fit covers the last {@link #WINDOW_MONTHS} calendar months, the
+ * current one included: older buckets are left out when read and dropped
+ * when a reading is added. The EWMA follows readings in time order.
+ *
+ * Only readings newer than all others are added in place. Edits, deletions
+ * and back-filled readings rebuild the trend from the history (see
+ * MetricTrendService), which also resets any rounding the sums picked up.
+ */
+@Document(collection = "metric_trends")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MetricTrend {
+
+    /**
+     * Origin of x, close to the data so the sums keep their precision
+     */
+    public static final LocalDateTime ORIGIN = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+    /**
+     * Calendar months covered by the fit, the current one included
+     */
+    public static final int WINDOW_MONTHS = 6;
+
+    /**
+     * userId:metricType
+     */
+    @Id
+    private String id;
+
+    @Indexed
+    private String userId;
+
+    private MetricType metricType;
+
+    /**
+     * Fit sums per month, oldest first
+     */
+    @Builder.Default
+    private List<Bucket> buckets = new ArrayList<>();
+
+    private Double ewma;
+
+    /**
+     * Time of the newest reading folded into the trend
+     */
+    private LocalDateTime lastAt;
+
+    private LocalDateTime updatedAt;
+
+    @Version
+    private Long version;
+
+    public static String idOf(String userId, MetricType metricType) {
+        return userId + ":" + metricType.name();
+    }
+
+    /**
+     * x of a reading: days since {@link #ORIGIN}
+     */
+    public static double daysOf(LocalDateTime measuredAt) {
+        return Duration.between(ORIGIN, measuredAt).toMillis() / 86_400_000.0;
+    }
+
+    /**
+     * Bucket of a reading: months since {@link #ORIGIN}
+     */
+    public static int monthOf(LocalDateTime measuredAt) {
+        return (measuredAt.getYear() - ORIGIN.getYear()) * 12 + measuredAt.getMonthValue() - 1;
+    }
+
+    /**
+     * Whether a reading can be added in place: no reading of the trend is newer
+     */
+    public boolean isNewest(LocalDateTime measuredAt) {
+        return lastAt == null || !measuredAt.isBefore(lastAt);
+    }
+
+    /**
+     * Add a reading newer than all others (oldest first when building)
+     *
+     * @throws IllegalArgumentException if a newer reading is already in the trend
+     */
+    public void add(LocalDateTime measuredAt, double value, double alpha) {
+        if (!isNewest(measuredAt)) {
+            throw new IllegalArgumentException("Reading at " + measuredAt + " is older than " + lastAt);
+        }
+        int month = monthOf(measuredAt);
+        buckets.removeIf(bucket -> bucket.getMonth() <= month - WINDOW_MONTHS);
+        Bucket bucket = buckets.isEmpty() ? null : buckets.get(buckets.size() - 1);
+        if (bucket == null || bucket.getMonth() != month) {
+            bucket = new Bucket(month, 0, 0, 0, 0, 0);
+            buckets.add(bucket);
+        }
+        double x = daysOf(measuredAt);
+        bucket.setCount(bucket.getCount() + 1);
+        bucket.setSumX(bucket.getSumX() + x);
+        bucket.setSumY(bucket.getSumY() + value);
+        bucket.setSumXX(bucket.getSumXX() + x * x);
+        bucket.setSumXY(bucket.getSumXY() + x * value);
+
+        ewma = ewma == null ? value : alpha * value + (1 - alpha) * ewma;
+        lastAt = measuredAt;
+    }
+
+    /**
+     * Readings in the window ending at now
+     */
+    public long count(LocalDateTime now) {
+        long count = 0;
+        for (Bucket bucket : inWindow(now)) {
+            count += bucket.getCount();
+        }
+        return count;
+    }
+
+    /**
+     * Least-squares slope over the window ending at now, in value units per day
+     *
+     * @return NaN with fewer than 2 readings or all readings at the same time
+     */
+    public double slopePerDay(LocalDateTime now) {
+        double n = 0, sumX = 0, sumY = 0, sumXX = 0, sumXY = 0;
+        for (Bucket bucket : inWindow(now)) {
+            n += bucket.getCount();
+            sumX += bucket.getSumX();
+            sumY += bucket.getSumY();
+            sumXX += bucket.getSumXX();
+            sumXY += bucket.getSumXY();
+        }
+        if (n < 2) {
+            return Double.NaN;
+        }
+        double varianceX = n * sumXX - sumX * sumX;
+        // Readings all within about a second: no slope to speak of
+        if (varianceX <= n * n * 1e-10) {
+            return Double.NaN;
+        }
+        return (n * sumXY - sumX * sumY) / varianceX;
+    }
+
+    private List<Bucket> inWindow(LocalDateTime now) {
+        if (buckets == null) {
+            return List.of();
+        }
+        int month = monthOf(now);
+        return buckets.stream()
+                .filter(bucket -> bucket.getMonth() > month - WINDOW_MONTHS && bucket.getMonth() <= month)
+                .toList();
+    }
+
+    /**
+     * Fit sums of the readings of one month
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Bucket {
+
+        /**
+         * Months since {@link #ORIGIN}
+         */
+        private int month;
+
+        private long count;
+
+        private double sumX;
+
+        private double sumY;
+
+        private double sumXX;
+
+        private double sumXY;
+    }
+}
@@ -0,0 +1,109 @@
+package com.healthtracker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Declarative health rule over one metric type, compiled at runtime
+ *
+ * Reads as: "aggregate of the field over the window, compared with the
+ * operator against each threshold in order - the first match fires".
+ *
+ * Example (same as BloodSugarRule, most severe level first):
+ * <pre>
+ * { name: "BLOOD_SUGAR_AVG", metricType: "BLOOD_SUGAR", field: "VALUE",
+ *   aggregate: "AVERAGE", windowReadings: 3, minReadings: 2, operator: "GTE",
+ *   thresholds: [ { value: 200, severity: "CRITICAL", messageKey: "rule.blood_sugar.critical" },
+ *                 { value: 126, severity: "WARNING",  messageKey: "rule.blood_sugar.high" } ] }
+ * </pre>
+ */
+@Document(collection = "rule_definitions")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RuleDefinition {
+    
+    @Id
+    private String id;
+    
+    /**
+     * Unique rule name, reported as the fired rule name
+     */
+    @Indexed(unique = true)
+    private String name;
+    
+    private String description;
+    
+    private MetricType metricType;
+    
+    /**
+     * Field of the reading; DIASTOLIC only for BLOOD_PRESSURE (VALUE = systolic there)
+     */
+    @Builder.Default
+    private Field field = Field.VALUE;
+    
+    private Aggregate aggregate;
+    
+    /**
+     * Window: the last N readings...
+     */
+    private Integer windowReadings;
+    
+    /**
+     * ...or the readings of the last N days (exactly one of both, optional for LATEST)
+     */
+    private Integer windowDays;
+    
+    /**
+     * Readings needed in the window before the rule can fire
+     */
+    @Builder.Default
+    private Integer minReadings = 1;
+    
+    private Operator operator;
+    
+    /**
+     * Levels checked in order, first match wins - list the most severe first
+     */
+    private List<RuleThreshold> thresholds;
+    
+    @Builder.Default
+    private Boolean enabled = true;
+    
+    /**
+     * Incremented on every save
+     */
+    @Version
+    private Long version;
+    
+    private LocalDateTime updatedAt;
+    
+    public enum Field {
+        VALUE,
+        DIASTOLIC
+    }
+    
+    public enum Aggregate {
+        LATEST,
+        AVERAGE,
+        MIN,
+        MAX
+    }
+    
+    public enum Operator {
+        GT,
+        GTE,
+        LT,
+        LTE
+    }
+}
@@ -0,0 +1,32 @@
+package com.healthtracker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Embedded document representing one severity level of a rule definition
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RuleThreshold {
+    
+    /**
+     * Value the aggregate is compared against with the definition's operator
+     */
+    private Double value;
+    
+    /**
+     * Severity when this level matches: INFO, WARNING, CRITICAL
+     */
+    private String severity;
+    
+    /**
+     * Message key of the recommendation (messages_*.properties)
+     * Arguments: {0} aggregate value, {1} threshold value, {2} readings in the window
+     */
+    private String messageKey;
+}
@@ -5,6 +5,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -15,6 +16,7 @@ import java.util.List;
  * Symptom entity for tracking user symptoms
  */
 @Document(collection = "symptoms")
+@CompoundIndex(name = "user_active", def = "{ 'userId': 1, 'endDate': 1 }")
 @Data
 @Builder
 @NoArgsConstructor
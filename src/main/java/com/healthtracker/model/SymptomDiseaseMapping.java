@@ -5,6 +5,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -15,6 +16,7 @@ import java.util.List;
  * This collection contains the knowledge base for mapping symptoms to diseases
  */
 @Document(collection = "symptom_disease_mapping")
+@CompoundIndex(name = "symptom_key", def = "{ 'symptomPatterns.symptomKey': 1 }")
 @Data
 @Builder
 @NoArgsConstructor
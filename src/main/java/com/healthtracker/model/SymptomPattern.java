@@ -18,6 +18,12 @@ public class SymptomPattern {
     
     private String symptomName;
     
+    /**
+     * Normalized symptom name (lowercased, trimmed), set when the mapping is saved
+     * Indexed for equality lookups of a symptom's posting list
+     */
+    private String symptomKey;
+    
     /**
      * Weight of this symptom in disease diagnosis (0-100)
      */
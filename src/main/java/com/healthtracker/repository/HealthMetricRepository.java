@@ -12,9 +12,11 @@ import java.util.Map;
 
 /**
  * Repository for HealthMetric entity with custom queries and aggregations
+ * 
+ * Queries built with MongoTemplate are in {@link HealthMetricRepositoryCustom}.
  */
 @Repository
-public interface HealthMetricRepository extends MongoRepository<HealthMetric, String> {
+public interface HealthMetricRepository extends MongoRepository<HealthMetric, String>, HealthMetricRepositoryCustom {
     
     /**
      * Find all metrics for a user
@@ -0,0 +1,47 @@
+package com.healthtracker.repository;
+
+import com.healthtracker.model.HealthMetric;
+import com.healthtracker.model.MetricType;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Custom HealthMetric queries that derived queries and @Aggregation cannot express
+ */
+public interface HealthMetricRepositoryCustom {
+    
+    /**
+     * Find the latest readings of several metric types, in one aggregation
+     * 
+     * Readings measured after the given date, at most limit per type (0 for
+     * all of them), each projected to the fields rules and predictors read
+     * (id, type, time and values). Readings without their values are skipped
+     * before the limit, so they never take the place of a complete one.
+     * 
+     * @param limits Readings wanted per metric type
+     * @return Readings of the given types, in no particular order
+     */
+    List<HealthMetric> findLatestReadings(String userId, LocalDateTime after, Map<MetricType, Integer> limits);
+    
+    /**
+     * Find the latest n complete readings of one type, newest first
+     * 
+     * Readings without their values are skipped, as in
+     * {@link #findLatestReadings(String, LocalDateTime, Map)}.
+     */
+    List<HealthMetric> findLatestReadings(String userId, MetricType type, int n);
+    
+    /**
+     * Readings of a type that carry their values: systolic and diastolic for
+     * blood pressure, value for the other types (what MetricSeries keeps)
+     */
+    static Criteria withValues(MetricType type) {
+        Criteria criteria = Criteria.where("metricType").is(type.name());
+        return type == MetricType.BLOOD_PRESSURE
+                ? criteria.and("systolic").ne(null).and("diastolic").ne(null)
+                : criteria.and("value").ne(null);
+    }
+}
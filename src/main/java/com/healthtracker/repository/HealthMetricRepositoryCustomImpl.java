@@ -0,0 +1,98 @@
+package com.healthtracker.repository;
+
+import com.healthtracker.model.HealthMetric;
+import com.healthtracker.model.MetricType;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.FacetOperation;
+import org.springframework.data.mongodb.core.aggregation.ProjectionOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MongoTemplate implementation of {@link HealthMetricRepositoryCustom}
+ * 
+ * PERFORMANCE: One $match on the (userId, measuredAt) index and the wanted
+ * types, then a $facet per type, so only the readings asked for leave the
+ * server - e.g. 3 + 3 + the weight series for the risk models, instead of
+ * six months of every metric type (tens of thousands of heart rate readings
+ * for minute-level devices).
+ */
+@RequiredArgsConstructor
+public class HealthMetricRepositoryCustomImpl implements HealthMetricRepositoryCustom {
+    
+    private final MongoTemplate mongoTemplate;
+    
+    @Override
+    public List<HealthMetric> findLatestReadings(String userId, LocalDateTime after, Map<MetricType, Integer> limits) {
+        List<HealthMetric> metrics = new ArrayList<>();
+        if (limits.isEmpty()) {
+            return metrics;
+        }
+        
+        // One facet per type, named after it
+        FacetOperation facets = null;
+        for (Map.Entry<MetricType, Integer> limit : limits.entrySet()) {
+            AggregationOperation[] stages = readings(limit.getKey(), limit.getValue());
+            facets = facets == null
+                    ? Aggregation.facet(stages).as(limit.getKey().name())
+                    : facets.and(stages).as(limit.getKey().name());
+        }
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("userId").is(userId)
+                        .and("measuredAt").gt(after)
+                        .and("metricType").in(limits.keySet().stream().map(MetricType::name).toList())),
+                facets);
+        
+        Document result = mongoTemplate.aggregate(aggregation, HealthMetric.class, Document.class)
+                .getUniqueMappedResult();
+        if (result == null) {
+            return metrics;
+        }
+        for (MetricType type : limits.keySet()) {
+            for (Document reading : result.getList(type.name(), Document.class, List.of())) {
+                metrics.add(mongoTemplate.getConverter().read(HealthMetric.class, reading));
+            }
+        }
+        return metrics;
+    }
+    
+    @Override
+    public List<HealthMetric> findLatestReadings(String userId, MetricType type, int n) {
+        Query query = Query.query(Criteria.where("userId").is(userId)
+                        .andOperator(HealthMetricRepositoryCustom.withValues(type)))
+                .with(Sort.by(Sort.Direction.DESC, "measuredAt"))
+                .limit(n);
+        return mongoTemplate.find(query, HealthMetric.class);
+    }
+    
+    /**
+     * Facet of the latest n complete readings of a type (newest first), or all of them if n is 0
+     */
+    private static AggregationOperation[] readings(MetricType type, int n) {
+        ProjectionOperation projection = Aggregation.project("metricType", "measuredAt")
+                .andInclude(type == MetricType.BLOOD_PRESSURE ? new String[] { "systolic", "diastolic" }
+                        : new String[] { "value" });
+        if (n <= 0) {
+            return new AggregationOperation[] {
+                    Aggregation.match(HealthMetricRepositoryCustom.withValues(type)),
+                    projection
+            };
+        }
+        return new AggregationOperation[] {
+                Aggregation.match(HealthMetricRepositoryCustom.withValues(type)),
+                Aggregation.sort(Sort.Direction.DESC, "measuredAt"),
+                Aggregation.limit(n),
+                projection
+        };
+    }
+}
@@ -6,6 +6,7 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,7 +14,7 @@ import java.util.Optional;
  * Repository for HealthPrediction entity (DSS output)
  */
 @Repository
-public interface HealthPredictionRepository extends MongoRepository<HealthPrediction, String> {
+public interface HealthPredictionRepository extends MongoRepository<HealthPrediction, String>, HealthPredictionRepositoryCustom {
     
     /**
      * Find all predictions for a user
@@ -25,6 +26,24 @@ public interface HealthPredictionRepository extends MongoRepository<HealthPredic
      */
     List<HealthPrediction> findByUserIdAndValidUntilAfter(String userId, LocalDateTime now);
     
+    /**
+     * Find valid predictions made from any of the given input digests
+     */
+    List<HealthPrediction> findByUserIdAndInputDigestInAndValidUntilAfter(
+        String userId, 
+        Collection<String> inputDigests, 
+        LocalDateTime now
+    );
+    
+    /**
+     * Find valid predictions of several users made from any of the given input digests (one query per batch)
+     */
+    List<HealthPrediction> findByUserIdInAndInputDigestInAndValidUntilAfter(
+        Collection<String> userIds, 
+        Collection<String> inputDigests, 
+        LocalDateTime now
+    );
+    
     /**
      * Find predictions by user and type
      */
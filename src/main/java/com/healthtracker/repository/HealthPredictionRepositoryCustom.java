@@ -0,0 +1,23 @@
+package com.healthtracker.repository;
+
+import com.healthtracker.model.HealthPrediction;
+
+import java.util.Collection;
+
+/**
+ * Custom HealthPrediction writes that derived queries cannot express
+ */
+public interface HealthPredictionRepositoryCustom {
+    
+    /**
+     * Upsert predictions on (userId, inputDigest), in one unordered bulk write
+     * 
+     * A prediction made from the same inputs as a stored one replaces it in
+     * place (e.g. renewing an expired prediction), so the request path and
+     * the nightly job never store the same inputs twice. Each prediction's id
+     * is set to the id of its document.
+     * 
+     * @return Number of predictions written
+     */
+    int upsertAll(Collection<HealthPrediction> predictions);
+}
@@ -0,0 +1,90 @@
+package com.healthtracker.repository;
+
+import com.healthtracker.model.HealthPrediction;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MongoTemplate implementation of {@link HealthPredictionRepositoryCustom}
+ * 
+ * PERFORMANCE: One round trip for all predictions; ids of renewed documents
+ * are read back with one more query, only when there are any.
+ */
+@RequiredArgsConstructor
+public class HealthPredictionRepositoryCustomImpl implements HealthPredictionRepositoryCustom {
+    
+    private final MongoTemplate mongoTemplate;
+    
+    @Override
+    public int upsertAll(Collection<HealthPrediction> predictions) {
+        if (predictions.isEmpty()) {
+            return 0;
+        }
+        List<HealthPrediction> ordered = new ArrayList<>(predictions);
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, HealthPrediction.class);
+        for (HealthPrediction prediction : ordered) {
+            operations.upsert(key(prediction), update(prediction));
+        }
+        BulkWriteResult result = operations.execute();
+        
+        // Inserted documents report their id; renewed ones keep the stored id
+        if (result != null) {
+            for (BulkWriteUpsert upsert : result.getUpserts()) {
+                ordered.get(upsert.getIndex()).setId(upsert.getId().isObjectId()
+                        ? upsert.getId().asObjectId().getValue().toHexString()
+                        : upsert.getId().asString().getValue());
+            }
+        }
+        List<HealthPrediction> renewed = ordered.stream().filter(prediction -> prediction.getId() == null).toList();
+        if (!renewed.isEmpty()) {
+            Map<List<String>, HealthPrediction> byKey = new HashMap<>();
+            renewed.forEach(prediction -> byKey.put(List.of(prediction.getUserId(), prediction.getInputDigest()), prediction));
+            Query stored = Query.query(Criteria.where("userId").in(renewed.stream().map(HealthPrediction::getUserId).distinct().toList())
+                    .and("inputDigest").in(renewed.stream().map(HealthPrediction::getInputDigest).toList()));
+            stored.fields().include("userId", "inputDigest");
+            for (HealthPrediction found : mongoTemplate.find(stored, HealthPrediction.class)) {
+                HealthPrediction prediction = byKey.get(List.of(found.getUserId(), found.getInputDigest()));
+                if (prediction != null) {
+                    prediction.setId(found.getId());
+                }
+            }
+        }
+        return ordered.size();
+    }
+    
+    private static Query key(HealthPrediction prediction) {
+        return Query.query(Criteria.where("userId").is(prediction.getUserId())
+                .and("inputDigest").is(prediction.getInputDigest()));
+    }
+    
+    /**
+     * The whole prediction; an expired one made from the same inputs is renewed in place
+     */
+    private static Update update(HealthPrediction prediction) {
+        return new Update()
+                .set("predictionType", prediction.getPredictionType())
+                .set("targetCondition", prediction.getTargetCondition())
+                .set("riskScore", prediction.getRiskScore())
+                .set("riskLevel", prediction.getRiskLevel())
+                .set("prediction", prediction.getPrediction())
+                .set("riskFactors", prediction.getRiskFactors())
+                .set("protectiveFactors", prediction.getProtectiveFactors())
+                .set("recommendations", prediction.getRecommendations())
+                .set("algorithm", prediction.getAlgorithm())
+                .set("confidenceScore", prediction.getConfidenceScore())
+                .set("predictedAt", prediction.getPredictedAt())
+                .set("validUntil", prediction.getValidUntil());
+    }
+}
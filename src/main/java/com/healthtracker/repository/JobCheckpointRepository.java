@@ -0,0 +1,12 @@
+package com.healthtracker.repository;
+
+import com.healthtracker.model.JobCheckpoint;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository for JobCheckpoint entity (batch job progress and leases)
+ */
+@Repository
+public interface JobCheckpointRepository extends MongoRepository<JobCheckpoint, String> {
+}
@@ -0,0 +1,12 @@
+package com.healthtracker.repository;
+
+import com.healthtracker.model.MetricTrend;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository for MetricTrend entity (running trend per user and metric type)
+ */
+@Repository
+public interface MetricTrendRepository extends MongoRepository<MetricTrend, String> {
+}
@@ -0,0 +1,25 @@
+package com.healthtracker.repository;
+
+import com.healthtracker.model.RuleDefinition;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository for RuleDefinition entity (declarative DSS rules)
+ */
+@Repository
+public interface RuleDefinitionRepository extends MongoRepository<RuleDefinition, String> {
+    
+    /**
+     * Find rule definitions that should be compiled and evaluated
+     */
+    List<RuleDefinition> findByEnabledTrue();
+    
+    /**
+     * Find a rule definition by its unique name
+     */
+    Optional<RuleDefinition> findByName(String name);
+}
@@ -32,6 +32,18 @@ public interface SymptomDiseaseMappingRepository extends MongoRepository<Symptom
     @Query("{ 'symptomPatterns': { $elemMatch: { 'symptomName': { $in: ?0 } } } }")
     List<SymptomDiseaseMapping> findBySymptomNames(List<String> symptomNames);
     
+    /**
+     * Find the ids of the disease mappings containing a symptom
+     * 
+     * Equality on the normalized symptom key, served by the symptom_key
+     * index; only _id is returned
+     * 
+     * @param symptomKey Normalized symptom name
+     * @return Disease mappings with their id only
+     */
+    @Query(value = "{ 'symptomPatterns.symptomKey': ?0 }", fields = "{ '_id': 1 }")
+    List<SymptomDiseaseMapping> findIdsBySymptomKey(String symptomKey);
+    
     /**
      * Find disease mappings by category
      */
@@ -1,11 +1,13 @@
 package com.healthtracker.repository;
 
 import com.healthtracker.model.Symptom;
+import org.springframework.data.mongodb.repository.Aggregation;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Repository for Symptom entity
@@ -38,6 +40,23 @@ public interface SymptomRepository extends MongoRepository<Symptom, String> {
      */
     List<Symptom> findByUserIdAndSeverityGreaterThanEqual(String userId, Integer severity);
     
+    /**
+     * Most common symptom names, counted by distinct users
+     * 
+     * Names reported by fewer than minUsers users are left out, so one user's
+     * free text never shows up in another user's suggestions
+     * 
+     * @return Maps with _id (symptom name) and users (distinct user count)
+     */
+    @Aggregation(pipeline = {
+        "{ $group: { _id: { name: '$symptomName', userId: '$userId' } } }",
+        "{ $group: { _id: '$_id.name', users: { $sum: 1 } } }",
+        "{ $match: { users: { $gte: ?0 } } }",
+        "{ $sort: { users: -1 } }",
+        "{ $limit: ?1 }"
+    })
+    List<Map<String, Object>> findPopularSymptomNames(int minUsers, int limit);
+    
     /**
      * Delete symptoms by user ID
      */
@@ -4,6 +4,8 @@ import com.healthtracker.model.User;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -21,5 +23,10 @@ public interface UserRepository extends MongoRepository<User, String> {
      * Check if email exists
      */
     boolean existsByEmail(String email);
+    
+    /**
+     * Find several users by email (one query per batch)
+     */
+    List<User> findByEmailIn(Collection<String> emails);
 }
 
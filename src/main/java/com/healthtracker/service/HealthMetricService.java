@@ -6,6 +6,8 @@ import com.healthtracker.exception.ResourceNotFoundException;
 import com.healthtracker.model.HealthMetric;
 import com.healthtracker.model.MetricType;
 import com.healthtracker.repository.HealthMetricRepository;
+import com.healthtracker.service.dss.IncrementalRuleEvaluator;
+import com.healthtracker.service.dss.MetricTrendService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.MessageSource;
@@ -25,6 +27,8 @@ public class HealthMetricService implements IHealthMetricService {
 
     private final HealthMetricRepository healthMetricRepository;
     private final MessageSource messageSource;
+    private final IncrementalRuleEvaluator ruleEvaluator;
+    private final MetricTrendService trendService;
 
     /**
      * Get all metrics for a user
@@ -88,7 +92,13 @@ public class HealthMetricService implements IHealthMetricService {
         // Analyze and set status
         analyzeMetric(metric);
 
-        return healthMetricRepository.save(metric);
+        HealthMetric saved = healthMetricRepository.save(metric);
+
+        // Windowed rules over the latest readings, without reloading the history
+        ruleEvaluator.onMetricAdded(saved);
+        trendService.onMetricAdded(saved);
+
+        return saved;
     }
 
     /**
@@ -100,6 +110,15 @@ public class HealthMetricService implements IHealthMetricService {
 
         log.info("Updating metric: {} for user: {}", id, userId);
 
+        // Previous values, taken out of the trend
+        HealthMetric before = HealthMetric.builder()
+                .userId(metric.getUserId())
+                .metricType(metric.getMetricType())
+                .value(metric.getValue())
+                .systolic(metric.getSystolic())
+                .measuredAt(metric.getMeasuredAt())
+                .build();
+
         metric.setMetricType(request.getMetricType());
         metric.setValue(request.getValue());
         metric.setSystolic(request.getSystolic());
@@ -111,7 +130,10 @@ public class HealthMetricService implements IHealthMetricService {
         // Re-analyze
         analyzeMetric(metric);
 
-        return healthMetricRepository.save(metric);
+        HealthMetric saved = healthMetricRepository.save(metric);
+        ruleEvaluator.invalidate(userId);
+        trendService.onMetricUpdated(before, saved);
+        return saved;
     }
 
     /**
@@ -122,6 +144,8 @@ public class HealthMetricService implements IHealthMetricService {
         HealthMetric metric = getMetricById(id, userId);
         log.info("Deleting metric: {} for user: {}", id, userId);
         healthMetricRepository.delete(metric);
+        ruleEvaluator.invalidate(userId);
+        trendService.onMetricDeleted(metric);
     }
 
     /**
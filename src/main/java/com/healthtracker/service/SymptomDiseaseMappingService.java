@@ -1,39 +1,70 @@
 package com.healthtracker.service;
 
+import com.healthtracker.dss.knowledge.SymptomDiseaseIndex;
 import com.healthtracker.model.SymptomDiseaseMapping;
+import com.healthtracker.model.SymptomPattern;
 import com.healthtracker.repository.SymptomDiseaseMappingRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Service for symptom-disease mapping with caching
- * 
- * PERFORMANCE: Caches disease mappings as they don't change frequently
+ *
+ * PERFORMANCE: Caches disease mappings as they don't change frequently.
+ * Relevant mappings are cached per symptom (see {@link SymptomPostingService})
+ * and unioned here, so overlapping symptom sets share cache entries.
+ * The whole knowledge base is also kept resident as an inverted index
+ * (symptom -> diseases), built at startup and rebuilt on every change.
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class SymptomDiseaseMappingService {
-    
+
     private final SymptomDiseaseMappingRepository repository;
-    
+    private final SymptomPostingService postingService;
+
+    private final AtomicLong knowledgeBaseVersion = new AtomicLong();
+
+    private volatile SymptomDiseaseIndex index;
+
     /**
      * Find relevant disease mappings by symptom names
-     * 
-     * CACHED: Results are cached for 1 hour to improve performance
-     * This is 100-1000x faster for subsequent calls with same symptoms
+     *
+     * CACHED: Each symptom's posting list of mapping ids is cached for 1 hour,
+     * so the result does not depend on symptom order and a new symptom set only
+     * queries the symptoms not seen before; the union is loaded by id in one query
+     *
+     * @return Each mapping containing any of the symptoms once, ordered by id
      */
-    @Cacheable(value = "diseaseMappings", key = "#symptomNames")
     public List<SymptomDiseaseMapping> findRelevantMappings(List<String> symptomNames) {
-        log.info("Querying disease mappings for {} symptoms (cache miss)", symptomNames.size());
-        return repository.findBySymptomNames(symptomNames);
+        Set<String> normalized = new TreeSet<>();
+        for (String symptomName : symptomNames) {
+            normalized.add(SymptomDiseaseIndex.normalize(symptomName));
+        }
+
+        Set<String> ids = new TreeSet<>();
+        for (String symptom : normalized) {
+            ids.addAll(postingService.findPosting(symptom));
+        }
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<SymptomDiseaseMapping> mappings = new ArrayList<>();
+        repository.findAllById(ids).forEach(mappings::add);
+        mappings.sort(Comparator.comparing(SymptomDiseaseMapping::getId));
+        return mappings;
     }
-    
+
     /**
      * Get all disease mappings
      */
@@ -42,25 +73,101 @@ public class SymptomDiseaseMappingService {
         log.info("Querying all disease mappings (cache miss)");
         return repository.findAll();
     }
-    
+
     /**
      * Save or update a disease mapping
-     * Evicts cache to ensure fresh data
+     * Evicts cache and rebuilds the in-memory index to ensure fresh data
      */
-    @CacheEvict(value = {"diseaseMappings", "allDiseaseMappings"}, allEntries = true)
+    @CacheEvict(value = {"symptomPostings", "allDiseaseMappings"}, allEntries = true)
     public SymptomDiseaseMapping saveMapping(SymptomDiseaseMapping mapping) {
         log.info("Saving disease mapping: {} (cache evicted)", mapping.getDiseaseName());
-        return repository.save(mapping);
+        assignSymptomKeys(mapping);
+        SymptomDiseaseMapping saved = repository.save(mapping);
+        refreshIndex();
+        return saved;
     }
-    
+
     /**
      * Delete a disease mapping
-     * Evicts cache to ensure fresh data
+     * Evicts cache and rebuilds the in-memory index to ensure fresh data
      */
-    @CacheEvict(value = {"diseaseMappings", "allDiseaseMappings"}, allEntries = true)
+    @CacheEvict(value = {"symptomPostings", "allDiseaseMappings"}, allEntries = true)
     public void deleteMapping(String id) {
         log.info("Deleting disease mapping: {} (cache evicted)", id);
         repository.deleteById(id);
+        refreshIndex();
+    }
+
+    /**
+     * Get the resident symptom -> disease index
+     *
+     * @return Current index, or null if it could not be loaded yet
+     *         (callers then fall back to {@link #findRelevantMappings(List)})
+     */
+    public SymptomDiseaseIndex getIndex() {
+        return index;
     }
-}
 
+    /**
+     * Version of the knowledge base, bumped on every rebuild
+     */
+    public long getKnowledgeBaseVersion() {
+        return knowledgeBaseVersion.get();
+    }
+
+    /**
+     * Build the index once the application is up
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadIndex() {
+        try {
+            refreshIndex();
+        } catch (RuntimeException e) {
+            // Analysis keeps working through the query path until the next rebuild
+            log.error("Failed to load symptom-disease index at startup", e);
+        }
+    }
+
+    /**
+     * Rebuild the index from the symptom_disease_mapping collection and swap it in
+     */
+    public synchronized void refreshIndex() {
+        long version = knowledgeBaseVersion.incrementAndGet();
+        List<SymptomDiseaseMapping> mappings = repository.findAll();
+
+        // Backfill the posting key of mappings written before it existed or outside this service
+        List<SymptomDiseaseMapping> unkeyed = mappings.stream().filter(this::assignSymptomKeys).toList();
+        if (!unkeyed.isEmpty()) {
+            repository.saveAll(unkeyed);
+            log.info("Assigned symptom keys to {} disease mappings", unkeyed.size());
+        }
+
+        index = SymptomDiseaseIndex.build(mappings, version);
+
+        log.info("Symptom-disease index v{} built: {} diseases, {} symptoms",
+                version, index.getDiseaseCount(), index.getVocabularySize());
+    }
+
+    /**
+     * Set the normalized symptomKey of each pattern of the mapping
+     *
+     * @return true if any key changed
+     */
+    private boolean assignSymptomKeys(SymptomDiseaseMapping mapping) {
+        if (mapping.getSymptomPatterns() == null) {
+            return false;
+        }
+        boolean changed = false;
+        for (SymptomPattern pattern : mapping.getSymptomPatterns()) {
+            if (pattern.getSymptomName() == null) {
+                continue;
+            }
+            String key = SymptomDiseaseIndex.normalize(pattern.getSymptomName());
+            if (!key.equals(pattern.getSymptomKey())) {
+                pattern.setSymptomKey(key);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+}
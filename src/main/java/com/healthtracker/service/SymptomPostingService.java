@@ -0,0 +1,44 @@
+package com.healthtracker.service;
+
+import com.healthtracker.model.SymptomDiseaseMapping;
+import com.healthtracker.repository.SymptomDiseaseMappingRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Posting lists of the symptom-disease knowledge base, one per symptom
+ *
+ * PERFORMANCE: Cached per normalized symptom name, so every symptom set that
+ * contains a symptom shares its entry regardless of order or of the other
+ * symptoms in the set. Entries hold mapping ids only, looked up by equality
+ * on the indexed symptomKey; {@link SymptomDiseaseMappingService} unions them
+ * and loads the documents once.
+ *
+ * Separate bean so the cache proxy applies to calls from the mapping service.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SymptomPostingService {
+
+    private final SymptomDiseaseMappingRepository repository;
+
+    /**
+     * Find the ids of the disease mappings containing one symptom
+     *
+     * CACHED: Evicted together with the other disease mapping caches
+     *
+     * @param normalizedSymptom Symptom name, lowercased and trimmed
+     */
+    @Cacheable(value = "symptomPostings", key = "#normalizedSymptom")
+    public List<String> findPosting(String normalizedSymptom) {
+        log.info("Querying disease mappings for symptom '{}' (cache miss)", normalizedSymptom);
+        return repository.findIdsBySymptomKey(normalizedSymptom).stream()
+                .map(SymptomDiseaseMapping::getId)
+                .toList();
+    }
+}
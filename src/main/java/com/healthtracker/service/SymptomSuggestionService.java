@@ -0,0 +1,158 @@
+package com.healthtracker.service;
+
+import com.healthtracker.dss.knowledge.SymptomDiseaseIndex;
+import com.healthtracker.dss.knowledge.SymptomSuggestionTrie;
+import com.healthtracker.model.SymptomDiseaseMapping;
+import com.healthtracker.model.SymptomPattern;
+import com.healthtracker.repository.SymptomRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Symptom name autocomplete
+ *
+ * Suggestions come from the knowledge base vocabulary and the symptom names
+ * most users entered, ranked by frequency (number of diseases listing the
+ * symptom + number of users reporting it).
+ *
+ * PERFORMANCE: Served from an in-memory {@link SymptomSuggestionTrie} that
+ * requests only read. It is built once the application is up, rebuilt in
+ * the background every refresh interval, and as soon as a request sees a
+ * newer knowledge base version; requests keep using the previous trie
+ * meanwhile (and get no suggestions before the first one is built). The
+ * popular names $group over all symptoms never runs on a request thread.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SymptomSuggestionService {
+
+    private final SymptomDiseaseMappingService mappingService;
+    private final SymptomRepository symptomRepository;
+
+    @Value("${symptoms.suggest.max-suggestions:20}")
+    private int maxSuggestions = 20;
+
+    @Value("${symptoms.suggest.popular-limit:2000}")
+    private int popularLimit = 2000;
+
+    @Value("${symptoms.suggest.popular-min-users:5}")
+    private int popularMinUsers = 5;
+
+    @Value("${symptoms.suggest.refresh-interval-minutes:60}")
+    private long refreshIntervalMinutes = 60;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    private volatile Snapshot snapshot;
+
+    /**
+     * Suggest symptom names for what the user typed so far
+     *
+     * @param query Prefix typed by the user (accents optional)
+     * @param limit Maximum number of suggestions
+     * @return Symptom names, most frequent first
+     */
+    public List<String> suggest(String query, int limit) {
+        Snapshot current = snapshot;
+        if (current == null || current.isStale(mappingService.getKnowledgeBaseVersion(), refreshIntervalMinutes)) {
+            refreshAsync();
+        }
+        return current != null ? current.trie().suggest(query, Math.max(0, limit)) : List.of();
+    }
+
+    /**
+     * Build the trie once the application is up
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadTrie() {
+        refresh();
+    }
+
+    /**
+     * Rebuild the trie and swap it in (no-op while another rebuild runs)
+     */
+    @Scheduled(fixedDelayString = "${symptoms.suggest.refresh-interval-minutes:60}",
+            initialDelayString = "${symptoms.suggest.refresh-interval-minutes:60}", timeUnit = TimeUnit.MINUTES)
+    public void refresh() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            // Read first: a version bumped during the build triggers another one
+            long version = mappingService.getKnowledgeBaseVersion();
+            snapshot = new Snapshot(version, System.nanoTime(), build());
+        } catch (RuntimeException e) {
+            // The previous trie keeps serving
+            log.error("Failed to build symptom suggestion trie", e);
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    private void refreshAsync() {
+        if (!rebuilding.get()) {
+            Thread.ofVirtual().name("symptom-suggestions").start(this::refresh);
+        }
+    }
+
+    private SymptomSuggestionTrie build() {
+        Map<String, Long> frequencies = new HashMap<>();
+
+        // Knowledge base: each disease listing a symptom counts once
+        SymptomDiseaseIndex index = mappingService.getIndex();
+        Collection<SymptomDiseaseMapping> mappings = new ArrayList<>();
+        if (index != null) {
+            for (int disease = 0; disease < index.getDiseaseCount(); disease++) {
+                mappings.add(index.getDisease(disease));
+            }
+        } else {
+            mappings = mappingService.getAllMappings();
+        }
+        for (SymptomDiseaseMapping mapping : mappings) {
+            if (mapping.getSymptomPatterns() == null) {
+                continue;
+            }
+            Set<String> names = new HashSet<>();
+            for (SymptomPattern pattern : mapping.getSymptomPatterns()) {
+                if (pattern != null && pattern.getSymptomName() != null
+                        && names.add(SymptomDiseaseIndex.normalize(pattern.getSymptomName()))) {
+                    frequencies.merge(pattern.getSymptomName().trim(), 1L, Long::sum);
+                }
+            }
+        }
+
+        // Popular user symptoms: each reporting user counts once
+        try {
+            for (Map<String, Object> popular : symptomRepository.findPopularSymptomNames(popularMinUsers, popularLimit)) {
+                if (popular.get("_id") instanceof String name && popular.get("users") instanceof Number users) {
+                    frequencies.merge(name.trim(), users.longValue(), Long::sum);
+                }
+            }
+        } catch (RuntimeException e) {
+            // Knowledge base suggestions are still useful on their own
+            log.warn("Could not load popular symptom names for suggestions", e);
+        }
+
+        SymptomSuggestionTrie trie = SymptomSuggestionTrie.build(frequencies, maxSuggestions);
+        log.info("Symptom suggestion trie built: {} names", trie.size());
+        return trie;
+    }
+
+    private record Snapshot(long knowledgeBaseVersion, long builtAtNanos, SymptomSuggestionTrie trie) {
+
+        boolean isStale(long currentKnowledgeBaseVersion, long refreshIntervalMinutes) {
+            return knowledgeBaseVersion != currentKnowledgeBaseVersion
+                    || System.nanoTime() - builtAtNanos > TimeUnit.MINUTES.toNanos(refreshIntervalMinutes);
+        }
+    }
+}
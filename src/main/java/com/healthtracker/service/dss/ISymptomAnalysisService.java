@@ -13,8 +13,8 @@ import com.healthtracker.dto.response.SymptomAnalysisResponse;
  * 1. Get active symptoms (endDate = null)
  * 2. Extract symptom names
  * 3. Query relevant disease mappings (performance optimized)
- * 4. Pre-index symptoms in Set for O(1) lookup
- * 5. Calculate match scores for each disease
+ * 4. Encode symptoms as a bitset for O(1) lookup
+ * 5. Calculate match scores for each disease (compiled patterns)
  * 6. Rank diseases by score (top 5)
  * 7. Calculate urgency score (0-100)
  * 8. Generate and save health insights
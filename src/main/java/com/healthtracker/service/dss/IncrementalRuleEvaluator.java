@@ -0,0 +1,162 @@
+package com.healthtracker.service.dss;
+
+import com.healthtracker.dss.engine.MetricWindow;
+import com.healthtracker.dss.engine.RuleResult;
+import com.healthtracker.model.HealthInsight;
+import com.healthtracker.model.HealthMetric;
+import com.healthtracker.model.MetricRevision;
+import com.healthtracker.model.MetricType;
+import com.healthtracker.repository.HealthMetricRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.MessageSource;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Evaluates metric rules as readings come in
+ *
+ * Keeps, per user and metric type, a {@link MetricWindow} of the latest
+ * readings. A new reading is added to its window and the rules of
+ * {@link RuleCatalog} are evaluated against that window only, so windowed
+ * rules (e.g. the last 3 blood pressure readings) fire on the reading that
+ * triggers them. Each fired rule becomes a {@link HealthInsight}, written
+ * behind the request by {@link InsightWriteBehindSink}.
+ *
+ * A window is seeded from the database the first time a user adds a reading
+ * of that type (one indexed query for the latest window-size readings).
+ * Windows are stamped with the user's {@link MetricRevision}, which any
+ * instance bumps when one of the user's readings is edited or deleted; a
+ * window of an older revision is seeded again, so a deleted reading never
+ * keeps firing rules from another instance's memory.
+ *
+ * PERFORMANCE: After seeding, a new reading costs a lookup of the revision
+ * (by _id), an O(1) window update and a rule evaluation over at most
+ * window-size readings - no history reload.
+ * Rules spanning several metric types, or day windows longer than the
+ * window-size latest readings, only see what the window holds.
+ *
+ * In-memory and bounded (LRU): each instance keeps windows for its own users.
+ * Failures are logged and never fail the ingest.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IncrementalRuleEvaluator {
+
+    private final HealthMetricRepository healthMetricRepository;
+    private final MongoTemplate mongoTemplate;
+    private final RuleCatalog ruleCatalog;
+    private final InsightWriteBehindSink insightSink;
+    private final MessageSource messageSource;
+
+    @Value("${dss.ingest.rules.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${dss.ingest.rules.window-size:32}")
+    private int windowSize = 32;
+
+    @Value("${dss.ingest.rules.max-users:10000}")
+    private int maxUsers = 10000;
+
+    private final Map<String, UserWindows> windows = Collections.synchronizedMap(
+            new LinkedHashMap<>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, UserWindows> eldest) {
+                    return size() > maxUsers;
+                }
+            });
+
+    /**
+     * Evaluate rules after a reading was saved
+     *
+     * @param saved Saved reading (with its id)
+     * @return Rules fired by the reading, empty if it changed nothing
+     */
+    public RuleResult onMetricAdded(HealthMetric saved) {
+        if (!enabled || saved == null || saved.getUserId() == null || saved.getMetricType() == null) {
+            return new RuleResult();
+        }
+
+        try {
+            MetricType type = saved.getMetricType();
+            // Read before seeding: an edit after this read moves the revision on again
+            long revision = revisionOf(saved.getUserId());
+            UserWindows userWindows = windows.compute(saved.getUserId(), (id, current) ->
+                    current != null && current.revision() >= revision ? current : new UserWindows(revision));
+
+            RuleResult result;
+            synchronized (userWindows) {
+                MetricWindow window = userWindows.byType().get(type);
+                if (window == null) {
+                    // The saved reading is already in the database, so the seed includes it;
+                    // complete readings only, so the window holds as many usable readings as a full evaluation
+                    window = MetricWindow.of(type, windowSize, healthMetricRepository
+                            .findLatestReadings(saved.getUserId(), type, windowSize));
+                    userWindows.byType().put(type, window);
+                } else if (!window.add(saved)) {
+                    // Older than the whole window (or already in it): no rule can change
+                    return new RuleResult();
+                }
+                result = ruleCatalog.evaluate(window.toSeries());
+            }
+
+            if (result.hasResults()) {
+                generateInsights(saved, result);
+            }
+            return result;
+        } catch (RuntimeException e) {
+            log.error("Rule evaluation failed for metric of user: {}", saved.getUserId(), e);
+            return new RuleResult();
+        }
+    }
+
+    /**
+     * Drop a user's windows on every instance, e.g. after a reading was edited or deleted
+     */
+    public void invalidate(String userId) {
+        windows.remove(userId);
+        try {
+            mongoTemplate.upsert(Query.query(Criteria.where("_id").is(userId)),
+                    new Update().inc("revision", 1), MetricRevision.class);
+        } catch (RuntimeException e) {
+            log.error("Could not bump metric revision of user: {}", userId, e);
+        }
+    }
+
+    private long revisionOf(String userId) {
+        MetricRevision revision = mongoTemplate.findById(userId, MetricRevision.class);
+        return revision != null ? revision.getRevision() : 0;
+    }
+
+    /**
+     * One insight per fired rule, categorized by metric type
+     */
+    private void generateInsights(HealthMetric saved, RuleResult result) {
+        Map<String, Object> dataPoints = new LinkedHashMap<>();
+        dataPoints.put("metricType", saved.getMetricType().name());
+        dataPoints.put("measuredAt", saved.getMeasuredAt());
+
+        List<HealthInsight> insights = RuleInsights.of(saved.getUserId(), saved.getMetricType().name(), result,
+                dataPoints, messageSource, LocaleContextHolder.getLocale());
+        insights.forEach(insightSink::submit);
+        log.info("Generated {} rule insights for user: {}", insights.size(), saved.getUserId());
+    }
+
+    /**
+     * Windows of one user, seeded at a revision of their readings
+     */
+    private record UserWindows(long revision, Map<MetricType, MetricWindow> byType) {
+
+        UserWindows(long revision) {
+            this(revision, new EnumMap<>(MetricType.class));
+        }
+    }
+}
@@ -0,0 +1,374 @@
+package com.healthtracker.service.dss;
+
+import com.healthtracker.model.HealthInsight;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Write-behind sink for generated HealthInsights
+ *
+ * Request threads only enqueue insights; a background thread writes them in
+ * batches with a single unordered bulk write, flushing when a batch is full or
+ * the flush interval elapsed, whichever comes first.
+ *
+ * COALESCING: Every insight is written as an atomic upsert keyed on
+ * (userId, category, contentFingerprint). Regenerating an identical insight
+ * only bumps generatedAt/expiresAt, so per-user insight count stays bounded
+ * by the number of distinct insights instead of growing with every analysis.
+ * An insight generated after the user read it is marked unread again, so a
+ * recurring alert is not hidden by the read state of its first occurrence;
+ * one generated before the read (e.g. still queued) leaves it read.
+ *
+ * BACKPRESSURE: The queue is bounded. When it is full, submit() waits up to
+ * the offer timeout and then writes the insight on the caller thread, which
+ * slows producers down instead of dropping data or growing the heap.
+ *
+ * SHUTDOWN: stop() drains the queue before MongoDB is closed. submit()
+ * checks running and enqueues under a read lock that stop() takes for
+ * writing, so no insight is queued once stop() has begun draining.
+ *
+ * FAILURES: A batch whose bulk write fails is written again one upsert at a
+ * time (upserts are idempotent), so one bad insight or a transient error
+ * loses at most the insights that still fail on their own.
+ *
+ * Metrics (exported via /actuator/prometheus):
+ * - dss.insights.write_behind.queue.size - current queue depth
+ * - dss.insights.write_behind.flush - flush latency and batch count
+ * - dss.insights.write_behind.written / caller_runs / retried / failed - insight counters
+ */
+@Component
+@Slf4j
+public class InsightWriteBehindSink implements SmartLifecycle {
+
+    private final MongoTemplate mongoTemplate;
+    private final BlockingQueue<HealthInsight> queue;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long offerTimeoutMs;
+
+    private final Timer flushTimer;
+    private final Counter writtenCounter;
+    private final Counter callerRunsCounter;
+    private final Counter retriedCounter;
+    private final Counter failedCounter;
+
+    /**
+     * Read-locked by submit() around the running check and the enqueue, write-locked by stop()
+     */
+    private final ReadWriteLock runningLock = new ReentrantReadWriteLock();
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public InsightWriteBehindSink(
+            MongoTemplate mongoTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${dss.insights.write-behind.capacity:10000}") int capacity,
+            @Value("${dss.insights.write-behind.batch-size:200}") int batchSize,
+            @Value("${dss.insights.write-behind.flush-interval-ms:500}") long flushIntervalMs,
+            @Value("${dss.insights.write-behind.offer-timeout-ms:50}") long offerTimeoutMs) {
+        this.mongoTemplate = mongoTemplate;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.offerTimeoutMs = offerTimeoutMs;
+
+        Gauge.builder("dss.insights.write_behind.queue.size", queue, BlockingQueue::size)
+                .description("Insights waiting to be written")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("dss.insights.write_behind.flush")
+                .description("Latency of one batched insight write")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.writtenCounter = Counter.builder("dss.insights.write_behind.written")
+                .description("Insights upserted by the background flusher")
+                .register(meterRegistry);
+        this.callerRunsCounter = Counter.builder("dss.insights.write_behind.caller_runs")
+                .description("Insights written on the request thread (queue full or sink stopped)")
+                .register(meterRegistry);
+        this.retriedCounter = Counter.builder("dss.insights.write_behind.retried")
+                .description("Insights written one by one after their batch failed")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("dss.insights.write_behind.failed")
+                .description("Insights lost because they could not be written, in bulk or alone")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queue an insight for writing
+     *
+     * Falls back to a synchronous upsert when the sink is stopped or the queue
+     * stays full for longer than the offer timeout.
+     */
+    public void submit(HealthInsight insight) {
+        if (insight.getContentFingerprint() == null) {
+            insight.setContentFingerprint(contentFingerprint(insight));
+        }
+
+        runningLock.readLock().lock();
+        try {
+            if (running) {
+                if (queue.offer(insight, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+                log.warn("Insight write-behind queue full, writing on caller thread");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            runningLock.readLock().unlock();
+        }
+
+        callerRunsCounter.increment();
+        mongoTemplate.upsert(coalescingKey(insight), coalescingUpdate(insight), HealthInsight.class);
+        markUnreadIfRecurred(insight);
+    }
+
+    /**
+     * Fingerprint of what the user sees: type, category, title, message, advice, severity
+     */
+    public static String contentFingerprint(HealthInsight insight) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Object part : new Object[] { insight.getType(), insight.getCategory(), insight.getTitle(),
+                    insight.getMessage(), insight.getActionableAdvice(), insight.getSeverity() }) {
+                digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            // 128 bits are plenty to tell one user's insights apart
+            return HexFormat.of().formatHex(digest.digest(), 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        flusher = Thread.ofPlatform()
+                .name("insight-write-behind")
+                .daemon(true)
+                .start(this::runFlusher);
+        log.info("Insight write-behind started (batch size {}, flush interval {} ms)",
+                batchSize, flushIntervalMs);
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        // Waits for submit() calls between their running check and their enqueue
+        runningLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            runningLock.writeLock().unlock();
+        }
+
+        try {
+            // The flusher keeps going until the queue is empty
+            flusher.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Anything left (flusher stuck or interrupted) is written here
+        List<HealthInsight> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            flush(remaining);
+        }
+        log.info("Insight write-behind stopped, queue drained");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Current number of queued insights
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    private void runFlusher() {
+        List<HealthInsight> batch = new ArrayList<>(batchSize);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                HealthInsight first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // Fill the batch until it is full or the flush interval elapsed
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < batchSize) {
+                    if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long waitNanos = deadline - System.nanoTime();
+                    HealthInsight next = waitNanos > 0 && running
+                            ? queue.poll(waitNanos, TimeUnit.NANOSECONDS)
+                            : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                if (!batch.isEmpty()) {
+                    flush(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+        }
+    }
+
+    /**
+     * Write insights now, in one unordered bulk upsert on the caller thread
+     *
+     * For batch jobs producing many insights at once: same coalescing as
+     * submit(), without going through the queue.
+     *
+     * @return Number of distinct insights upserted
+     * @throws RuntimeException if the bulk write fails
+     */
+    public int writeAll(Collection<HealthInsight> insights) {
+        if (insights.isEmpty()) {
+            return 0;
+        }
+        List<HealthInsight> batch = new ArrayList<>(insights.size());
+        for (HealthInsight insight : insights) {
+            if (insight.getContentFingerprint() == null) {
+                insight.setContentFingerprint(contentFingerprint(insight));
+            }
+            batch.add(insight);
+        }
+        return flushTimer.record(() -> upsertAll(batch));
+    }
+
+    private void flush(List<HealthInsight> batch) {
+        try {
+            int written = flushTimer.record(() -> upsertAll(batch));
+            log.debug("Flushed {} insights ({} queued)", written, batch.size());
+        } catch (RuntimeException e) {
+            log.warn("Failed to write batch of {} insights, writing them one by one", batch.size(), e);
+            upsertEach(coalesce(batch));
+        }
+    }
+
+    /**
+     * Fallback for a failed batch: one upsert per insight, dropping only those that fail again
+     */
+    private void upsertEach(Collection<HealthInsight> insights) {
+        int failed = 0;
+        for (HealthInsight insight : insights) {
+            try {
+                mongoTemplate.upsert(coalescingKey(insight), coalescingUpdate(insight), HealthInsight.class);
+                markUnreadIfRecurred(insight);
+                retriedCounter.increment();
+                writtenCounter.increment();
+            } catch (RuntimeException e) {
+                failed++;
+                log.error("Failed to write insight for user: {}", insight.getUserId(), e);
+            }
+        }
+        failedCounter.increment(failed);
+    }
+
+    private int upsertAll(List<HealthInsight> batch) {
+        Collection<HealthInsight> coalesced = coalesce(batch);
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, HealthInsight.class);
+        for (HealthInsight insight : coalesced) {
+            operations.upsert(coalescingKey(insight), coalescingUpdate(insight));
+            if (insight.getGeneratedAt() != null) {
+                operations.updateOne(readBefore(insight), new Update().set("isRead", Boolean.FALSE));
+            }
+        }
+        operations.execute();
+        writtenCounter.increment(coalesced.size());
+        return coalesced.size();
+    }
+
+    /**
+     * The same insight twice in one batch needs only its latest upsert
+     */
+    private static Collection<HealthInsight> coalesce(List<HealthInsight> batch) {
+        Map<List<String>, HealthInsight> coalesced = new LinkedHashMap<>();
+        for (HealthInsight insight : batch) {
+            coalesced.put(List.of(String.valueOf(insight.getUserId()), String.valueOf(insight.getCategory()),
+                    insight.getContentFingerprint()), insight);
+        }
+        return coalesced.values();
+    }
+
+    private void markUnreadIfRecurred(HealthInsight insight) {
+        if (insight.getGeneratedAt() != null) {
+            mongoTemplate.updateFirst(readBefore(insight), new Update().set("isRead", Boolean.FALSE), HealthInsight.class);
+        }
+    }
+
+    /**
+     * The stored insight, if the user read it before this occurrence was generated
+     *
+     * Matches nothing for a new or never read insight (no readAt).
+     */
+    private static Query readBefore(HealthInsight insight) {
+        return coalescingKey(insight).addCriteria(Criteria.where("readAt").lt(insight.getGeneratedAt()));
+    }
+
+    private static Query coalescingKey(HealthInsight insight) {
+        return Query.query(Criteria.where("userId").is(insight.getUserId())
+                .and("category").is(insight.getCategory())
+                .and("contentFingerprint").is(insight.getContentFingerprint()));
+    }
+
+    /**
+     * Refresh dates (and data points) of an existing insight, or insert it with its content
+     */
+    private static Update coalescingUpdate(HealthInsight insight) {
+        return new Update()
+                .set("generatedAt", insight.getGeneratedAt())
+                .set("expiresAt", insight.getExpiresAt())
+                .set("dataPoints", insight.getDataPoints())
+                .setOnInsert("type", insight.getType())
+                .setOnInsert("title", insight.getTitle())
+                .setOnInsert("message", insight.getMessage())
+                .setOnInsert("actionableAdvice", insight.getActionableAdvice())
+                .setOnInsert("priority", insight.getPriority())
+                .setOnInsert("severity", insight.getSeverity())
+                .setOnInsert("isRead", insight.getIsRead() != null ? insight.getIsRead() : Boolean.FALSE);
+    }
+}
@@ -0,0 +1,105 @@
+package com.healthtracker.service.dss;
+
+import com.healthtracker.model.JobCheckpoint;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Lease and checkpoint of a batch job, kept in its job_checkpoints document
+ *
+ * A run owns the job while its status is RUNNING and its lease is live; each
+ * checkpoint extends the lease. A run that did not complete is resumed after
+ * its last key by the next run started within the resume window.
+ */
+final class JobLease {
+
+    static final String RUNNING = "RUNNING";
+    static final String COMPLETED = "COMPLETED";
+    static final String FAILED = "FAILED";
+
+    private final MongoTemplate mongoTemplate;
+    private final String jobName;
+
+    JobLease(MongoTemplate mongoTemplate, String jobName) {
+        this.mongoTemplate = mongoTemplate;
+        this.jobName = jobName;
+    }
+
+    /**
+     * Take the lease, resuming the previous run if it did not complete
+     *
+     * @return Checkpoint of the new run, or null if another run holds the job
+     */
+    JobCheckpoint acquire(long leaseMinutes, long resumeWithinHours) {
+        LocalDateTime now = LocalDateTime.now();
+        String runId = UUID.randomUUID().toString();
+
+        Query free = Query.query(Criteria.where("_id").is(jobName).orOperator(
+                Criteria.where("status").ne(RUNNING),
+                Criteria.where("leaseUntil").lt(now)));
+        Update take = new Update()
+                .set("runId", runId)
+                .set("status", RUNNING)
+                .set("leaseUntil", now.plusMinutes(leaseMinutes));
+
+        JobCheckpoint previous;
+        try {
+            previous = mongoTemplate.findAndModify(free, take,
+                    FindAndModifyOptions.options().upsert(true).returnNew(false), JobCheckpoint.class);
+        } catch (DuplicateKeyException e) {
+            // The document exists and its lease is live
+            return null;
+        }
+
+        boolean resume = previous != null
+                && !COMPLETED.equals(previous.getStatus())
+                && previous.getLastKey() != null
+                && previous.getStartedAt() != null
+                && previous.getStartedAt().isAfter(now.minusHours(resumeWithinHours));
+
+        JobCheckpoint checkpoint = JobCheckpoint.builder()
+                .id(jobName)
+                .runId(runId)
+                .status(RUNNING)
+                .lastKey(resume ? previous.getLastKey() : null)
+                .processed(resume ? previous.getProcessed() : 0)
+                .produced(resume ? previous.getProduced() : 0)
+                .startedAt(resume ? previous.getStartedAt() : now)
+                .build();
+        save(checkpoint, leaseMinutes);
+        return checkpoint;
+    }
+
+    /**
+     * Write the checkpoint and extend the lease, as long as this run still owns the job
+     *
+     * @throws IllegalStateException if another run took the job over
+     */
+    void save(JobCheckpoint checkpoint, long leaseMinutes) {
+        LocalDateTime now = LocalDateTime.now();
+        checkpoint.setUpdatedAt(now);
+        if (RUNNING.equals(checkpoint.getStatus())) {
+            checkpoint.setLeaseUntil(now.plusMinutes(leaseMinutes));
+        }
+        Update update = new Update()
+                .set("status", checkpoint.getStatus())
+                .set("lastKey", checkpoint.getLastKey())
+                .set("processed", checkpoint.getProcessed())
+                .set("produced", checkpoint.getProduced())
+                .set("startedAt", checkpoint.getStartedAt())
+                .set("updatedAt", checkpoint.getUpdatedAt())
+                .set("finishedAt", checkpoint.getFinishedAt())
+                .set("leaseUntil", checkpoint.getLeaseUntil());
+        Query owned = Query.query(Criteria.where("_id").is(jobName).and("runId").is(checkpoint.getRunId()));
+        if (mongoTemplate.updateFirst(owned, update, JobCheckpoint.class).getMatchedCount() == 0) {
+            throw new IllegalStateException("Job " + jobName + " run " + checkpoint.getRunId() + " lost its lease");
+        }
+    }
+}
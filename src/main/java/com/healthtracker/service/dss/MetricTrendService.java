@@ -0,0 +1,215 @@
+package com.healthtracker.service.dss;
+
+import com.healthtracker.model.HealthMetric;
+import com.healthtracker.model.MetricTrend;
+import com.healthtracker.model.MetricType;
+import com.healthtracker.repository.HealthMetricRepository;
+import com.healthtracker.repository.MetricTrendRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Keeps a {@link MetricTrend} per user and metric type up to date
+ *
+ * A reading newer than all others is folded into its trend: one read and
+ * one write of a small document (optimistic locking, retried on conflict).
+ * Edited, deleted and back-filled readings rebuild the trend from the
+ * user's history of that type, since they change the EWMA. Trend
+ * predictions read the trends instead of the history.
+ *
+ * A missing trend (new user, or readings older than this feature) is built
+ * once from the history, then maintained. A write path that loses the race
+ * to create the trend rebuilds it again over the winner, whose history may
+ * predate the new reading. If an update fails, the trend is dropped and
+ * rebuilt on next use, so it never drifts.
+ *
+ * PERFORMANCE: O(1) per new reading, whatever the history length; the
+ * history is read only to build a missing trend or after an edit.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MetricTrendService {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final MetricTrendRepository trendRepository;
+    private final HealthMetricRepository healthMetricRepository;
+
+    @Value("${dss.trends.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${dss.trends.ewma-alpha:0.3}")
+    private double ewmaAlpha = 0.3;
+
+    /**
+     * Fold a saved reading into its trend
+     */
+    public void onMetricAdded(HealthMetric saved) {
+        update(saved.getUserId(), saved.getMetricType(), saved);
+    }
+
+    /**
+     * Rebuild the trend of an edited reading, which may already weigh in the EWMA
+     *
+     * @param before Type, time and values before the edit
+     */
+    public void onMetricUpdated(HealthMetric before, HealthMetric saved) {
+        update(before.getUserId(), before.getMetricType(), null);
+        if (before.getMetricType() != saved.getMetricType()) {
+            update(saved.getUserId(), saved.getMetricType(), saved);
+        }
+    }
+
+    /**
+     * Rebuild the trend of a deleted reading
+     */
+    public void onMetricDeleted(HealthMetric deleted) {
+        update(deleted.getUserId(), deleted.getMetricType(), null);
+    }
+
+    /**
+     * Trends of a user, building the missing ones from the history
+     *
+     * @return Trend per type (empty trends for types without readings)
+     */
+    public Map<MetricType, MetricTrend> getTrends(String userId, Set<MetricType> types) {
+        Map<MetricType, MetricTrend> trends = new EnumMap<>(MetricType.class);
+        if (types.isEmpty()) {
+            return trends;
+        }
+        List<String> ids = types.stream().map(type -> MetricTrend.idOf(userId, type)).toList();
+        for (MetricTrend trend : trendRepository.findAllById(ids)) {
+            trends.put(trend.getMetricType(), trend);
+        }
+        for (MetricType type : types) {
+            if (!trends.containsKey(type)) {
+                trends.put(type, rebuild(userId, type));
+            }
+        }
+        return trends;
+    }
+
+    /**
+     * Stored trends of several users (one query per batch), without building missing ones
+     *
+     * @return Trends per user and type; missing trends are absent, see {@link #rebuild}
+     */
+    public Map<String, Map<MetricType, MetricTrend>> getStoredTrends(Collection<String> userIds,
+                                                                      Set<MetricType> types) {
+        Map<String, Map<MetricType, MetricTrend>> trends = new HashMap<>();
+        if (types.isEmpty() || userIds.isEmpty()) {
+            return trends;
+        }
+        List<String> ids = new ArrayList<>(userIds.size() * types.size());
+        for (String userId : userIds) {
+            types.forEach(type -> ids.add(MetricTrend.idOf(userId, type)));
+        }
+        for (MetricTrend trend : trendRepository.findAllById(ids)) {
+            trends.computeIfAbsent(trend.getUserId(), user -> new EnumMap<>(MetricType.class))
+                    .put(trend.getMetricType(), trend);
+        }
+        return trends;
+    }
+
+    /**
+     * Add a new reading to its trend, or rebuild the trend from the history
+     *
+     * @param added Reading to add in place, or null to rebuild
+     */
+    private void update(String userId, MetricType type, HealthMetric added) {
+        if (!enabled || userId == null || type == null) {
+            return;
+        }
+        String id = MetricTrend.idOf(userId, type);
+        boolean fromHistory = added == null || added.getMeasuredAt() == null;
+        try {
+            for (int attempt = 1; ; attempt++) {
+                Optional<MetricTrend> existing = trendRepository.findById(id);
+                MetricTrend trend;
+                if (existing.isPresent() && !fromHistory && existing.get().isNewest(added.getMeasuredAt())) {
+                    trend = existing.get();
+                    add(trend, added);
+                } else {
+                    // The history already reflects the change
+                    trend = build(userId, type);
+                    existing.ifPresent(current -> trend.setVersion(current.getVersion()));
+                }
+                trend.setUpdatedAt(LocalDateTime.now());
+                try {
+                    trendRepository.save(trend);
+                    return;
+                } catch (DuplicateKeyException | OptimisticLockingFailureException e) {
+                    if (attempt == MAX_ATTEMPTS) {
+                        throw e;
+                    }
+                    // A trend created concurrently may be built from a history without this change
+                    fromHistory |= existing.isEmpty();
+                    log.debug("Trend {} changed concurrently, retrying", id);
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Trend update failed for user: {}, type: {}", userId, type, e);
+            try {
+                trendRepository.deleteById(id);
+            } catch (RuntimeException deleteFailed) {
+                log.warn("Could not drop trend {} for rebuild", id, deleteFailed);
+            }
+        }
+    }
+
+    /**
+     * Build and store a missing trend for a reader
+     *
+     * If another request stored it first, that one is returned: readers carry
+     * no change of their own to apply.
+     */
+    MetricTrend rebuild(String userId, MetricType type) {
+        MetricTrend trend = build(userId, type);
+        trend.setUpdatedAt(LocalDateTime.now());
+        try {
+            return trendRepository.save(trend);
+        } catch (DuplicateKeyException | OptimisticLockingFailureException e) {
+            return trendRepository.findById(trend.getId()).orElse(trend);
+        }
+    }
+
+    /**
+     * Trend of the user's history of a type, oldest reading first
+     */
+    private MetricTrend build(String userId, MetricType type) {
+        List<HealthMetric> history = new ArrayList<>(healthMetricRepository.findByUserIdAndMetricType(userId, type));
+        history.removeIf(metric -> metric.getMeasuredAt() == null);
+        history.sort(Comparator.comparing(HealthMetric::getMeasuredAt));
+
+        MetricTrend trend = MetricTrend.builder()
+                .id(MetricTrend.idOf(userId, type))
+                .userId(userId)
+                .metricType(type)
+                .build();
+        history.forEach(metric -> add(trend, metric));
+        log.debug("Built {} trend of user {} from {} readings", type, userId, history.size());
+        return trend;
+    }
+
+    private void add(MetricTrend trend, HealthMetric metric) {
+        Double value = valueOf(metric);
+        if (value != null && metric.getMeasuredAt() != null) {
+            trend.add(metric.getMeasuredAt(), value, ewmaAlpha);
+        }
+    }
+
+    /**
+     * Tracked value: systolic for blood pressure, the value otherwise
+     */
+    private static Double valueOf(HealthMetric metric) {
+        return metric.getMetricType() == MetricType.BLOOD_PRESSURE ? metric.getSystolic() : metric.getValue();
+    }
+}
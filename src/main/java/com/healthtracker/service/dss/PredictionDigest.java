@@ -0,0 +1,70 @@
+package com.healthtracker.service.dss;
+
+import com.healthtracker.model.HealthMetric;
+import com.healthtracker.model.MetricType;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HexFormat;
+
+/**
+ * Digest of the inputs of a prediction, stored as HealthPrediction.inputDigest
+ *
+ * SHA-256 over the algorithm version and every value a predictor reads, in a
+ * fixed order. Persisted and compared across restarts and instances, so it
+ * only depends on the values, never on hash codes or identities.
+ */
+final class PredictionDigest {
+
+    private static final char SEPARATOR = '\u001F';
+    private static final String NULL = "\u0000";
+
+    private final StringBuilder canonical = new StringBuilder(256);
+
+    /**
+     * @param algorithm Algorithm and version of the predictor, e.g. "Diabetes-Risk-Score-v1"
+     */
+    PredictionDigest(String algorithm) {
+        add(algorithm);
+    }
+
+    PredictionDigest add(Object value) {
+        canonical.append(value == null ? NULL : value.toString()).append(SEPARATOR);
+        return this;
+    }
+
+    /**
+     * Readings by id, time and values, so edited readings change the digest too
+     *
+     * Only the values of the reading's type (systolic and diastolic for blood
+     * pressure, value otherwise), so the digest does not depend on which
+     * fields a query projected.
+     */
+    PredictionDigest addReadings(Collection<HealthMetric> readings) {
+        add(readings.size());
+        for (HealthMetric reading : readings) {
+            add(reading.getId()).add(reading.getMeasuredAt());
+            if (reading.getMetricType() == MetricType.BLOOD_PRESSURE) {
+                add(reading.getSystolic()).add(reading.getDiastolic());
+            } else {
+                add(reading.getValue());
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return Lowercase hex SHA-256
+     */
+    String finish() {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(canonical.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // Every JRE ships SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,416 @@
+package com.healthtracker.service.dss;
+
+import com.healthtracker.dss.engine.MetricSeries;
+import com.healthtracker.dss.risk.RiskInput;
+import com.healthtracker.dss.risk.RiskModel;
+import com.healthtracker.model.HealthMetric;
+import com.healthtracker.model.HealthPrediction;
+import com.healthtracker.model.HealthProfile;
+import com.healthtracker.model.JobCheckpoint;
+import com.healthtracker.model.MetricTrend;
+import com.healthtracker.model.MetricType;
+import com.healthtracker.model.User;
+import com.healthtracker.repository.HealthMetricRepositoryCustom;
+import com.healthtracker.repository.HealthPredictionRepository;
+import com.healthtracker.repository.JobCheckpointRepository;
+import com.healthtracker.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Nightly risk scoring of every user with a health profile
+ *
+ * Streams the health profiles of all users from one MongoDB cursor, sorted by
+ * user, and scores them in chunks of users:
+ * 1. Load the chunk's users (one $in query), their recent readings (one
+ *    cursor, keeping the latest readings the models ask for) and their
+ *    stored trends (one query)
+ * 2. Build each user's model input and input digests, in parallel on
+ *    virtual threads
+ * 3. Look up valid predictions made from the same inputs (one query)
+ * 4. Run the risk models of the other inputs, in parallel on virtual threads
+ * 5. Upsert the new predictions in one unordered bulk write
+ * 6. Checkpoint the last user of the chunk in job_checkpoints
+ *
+ * Predictions are thus ready before users open their dashboard, and
+ * {@link RiskPredictionService} reuses them while their inputs are unchanged.
+ *
+ * RESUME: Same lease and checkpoint as {@link RuleSweepJob}. Predictions are
+ * upserted on (userId, inputDigest), so a chunk scored again after a crash
+ * does not duplicate them.
+ *
+ * PERFORMANCE: Four queries and one bulk write per chunk instead of five
+ * round trips per user; memory is bounded by one chunk of users. The first
+ * run also builds missing trends, once per user and type.
+ *
+ * Metrics (exported via /actuator/prometheus):
+ * - dss.risk.batch.chunk - latency of one chunk (load, score, write)
+ * - dss.risk.batch.users / dss.risk.batch.predictions - users scored and predictions written
+ * - dss.risk.batch.throughput - users per second of the current or last run
+ */
+@Service
+@Slf4j
+public class RiskScoringJob {
+
+    static final String JOB_NAME = "risk-scoring";
+
+    private final MongoTemplate mongoTemplate;
+    private final JobLease lease;
+    private final UserRepository userRepository;
+    private final HealthPredictionRepository predictionRepository;
+    private final JobCheckpointRepository checkpointRepository;
+    private final RiskPredictionService riskPredictionService;
+    private final MetricTrendService trendService;
+
+    private final Timer chunkTimer;
+    private final Counter usersCounter;
+    private final Counter predictionsCounter;
+
+    private volatile double throughput;
+
+    @Value("${dss.risk.batch.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${dss.risk.batch.chunk-size:1000}")
+    private int chunkSize = 1000;
+
+    @Value("${dss.risk.batch.cursor-batch-size:2000}")
+    private int cursorBatchSize = 2000;
+
+    @Value("${dss.risk.batch.lease-minutes:30}")
+    private long leaseMinutes = 30;
+
+    @Value("${dss.risk.batch.resume-within-hours:20}")
+    private long resumeWithinHours = 20;
+
+    public RiskScoringJob(MongoTemplate mongoTemplate, UserRepository userRepository,
+                          HealthPredictionRepository predictionRepository, JobCheckpointRepository checkpointRepository,
+                          RiskPredictionService riskPredictionService, MetricTrendService trendService,
+                          MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.lease = new JobLease(mongoTemplate, JOB_NAME);
+        this.userRepository = userRepository;
+        this.predictionRepository = predictionRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.riskPredictionService = riskPredictionService;
+        this.trendService = trendService;
+
+        this.chunkTimer = Timer.builder("dss.risk.batch.chunk")
+                .description("Latency of one chunk of users in the risk scoring job")
+                .register(meterRegistry);
+        this.usersCounter = Counter.builder("dss.risk.batch.users")
+                .description("Users scored")
+                .register(meterRegistry);
+        this.predictionsCounter = Counter.builder("dss.risk.batch.predictions")
+                .description("Predictions written by the risk scoring job")
+                .register(meterRegistry);
+        Gauge.builder("dss.risk.batch.throughput", this, RiskScoringJob::getThroughput)
+                .description("Users scored per second by the current or last run")
+                .baseUnit("users/s")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${dss.risk.batch.cron:0 0 3 * * *}")
+    public void runScheduled() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            run();
+        } catch (RuntimeException e) {
+            log.error("Risk scoring failed", e);
+        }
+    }
+
+    /**
+     * Start a run in the background (no-op if one is already running)
+     */
+    public void runAsync() {
+        Thread.ofVirtual().name("risk-scoring").start(this::runScheduled);
+    }
+
+    /**
+     * Progress of the current or last run
+     */
+    public Optional<JobCheckpoint> getCheckpoint() {
+        return checkpointRepository.findById(JOB_NAME);
+    }
+
+    /**
+     * Users scored per second by the current or last run (resumed users excluded)
+     */
+    public double getThroughput() {
+        return throughput;
+    }
+
+    /**
+     * Run or resume the scoring on the calling thread
+     *
+     * @return Final checkpoint, or null if another run holds the job
+     * @throws RuntimeException if the run failed; the next run resumes it
+     */
+    public JobCheckpoint run() {
+        JobCheckpoint checkpoint = lease.acquire(leaseMinutes, resumeWithinHours);
+        if (checkpoint == null) {
+            log.info("Risk scoring already running elsewhere, skipped");
+            return null;
+        }
+        log.info("Risk scoring {} {}", checkpoint.getRunId(),
+                checkpoint.getLastKey() != null ? "resumed after user " + checkpoint.getLastKey() : "started");
+
+        try {
+            score(checkpoint);
+        } catch (RuntimeException e) {
+            checkpoint.setStatus(JobLease.FAILED);
+            try {
+                lease.save(checkpoint, leaseMinutes);
+            } catch (RuntimeException saveError) {
+                e.addSuppressed(saveError);
+            }
+            throw e;
+        }
+
+        checkpoint.setStatus(JobLease.COMPLETED);
+        checkpoint.setFinishedAt(LocalDateTime.now());
+        lease.save(checkpoint, leaseMinutes);
+        log.info("Risk scoring {} completed: {} users, {} predictions, {} users/s",
+                checkpoint.getRunId(), checkpoint.getProcessed(), checkpoint.getProduced(),
+                String.format("%.1f", throughput));
+        return checkpoint;
+    }
+
+    private void score(JobCheckpoint checkpoint) {
+        // Strings sort after null, so "" also skips profiles without a user
+        Query query = Query.query(Criteria.where("userId").gt(checkpoint.getLastKey() != null ? checkpoint.getLastKey() : ""))
+                .with(Sort.by("userId"))
+                .cursorBatchSize(cursorBatchSize);
+
+        long startedAt = System.nanoTime();
+        long resumedFrom = checkpoint.getProcessed();
+        throughput = 0;
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+             Stream<HealthProfile> profiles = mongoTemplate.stream(query, HealthProfile.class)) {
+            List<HealthProfile> chunk = new ArrayList<>(chunkSize);
+            String userId = null;
+
+            for (Iterator<HealthProfile> it = profiles.iterator(); it.hasNext(); ) {
+                HealthProfile profile = it.next();
+                // One profile per user
+                if (profile.getUserId().equals(userId)) {
+                    continue;
+                }
+                userId = profile.getUserId();
+                chunk.add(profile);
+                if (chunk.size() >= chunkSize) {
+                    process(chunk, checkpoint, executor);
+                    updateThroughput(checkpoint.getProcessed() - resumedFrom, startedAt);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                process(chunk, checkpoint, executor);
+                updateThroughput(checkpoint.getProcessed() - resumedFrom, startedAt);
+            }
+        }
+    }
+
+    private void process(List<HealthProfile> chunk, JobCheckpoint checkpoint, ExecutorService executor) {
+        chunkTimer.record(() -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<String> userIds = chunk.stream().map(HealthProfile::getUserId).toList();
+            Set<MetricType> trendTypes = riskPredictionService.trendTypes();
+
+            Map<String, User> users = new HashMap<>();
+            for (User user : userRepository.findByEmailIn(userIds)) {
+                users.putIfAbsent(user.getEmail(), user);
+            }
+            Map<String, List<HealthMetric>> readings = latestReadings(userIds,
+                    now.minusMonths(RiskPredictionService.LOOKBACK_MONTHS));
+            Map<String, Map<MetricType, MetricTrend>> trends = trendService.getStoredTrends(userIds, trendTypes);
+
+            // Model inputs and their digests
+            List<String> prepared = new ArrayList<>(chunk.size());
+            List<Future<Scoring>> preparing = new ArrayList<>(chunk.size());
+            for (HealthProfile profile : chunk) {
+                User user = users.get(profile.getUserId());
+                if (user == null) {
+                    log.debug("Risk scoring skipped profile without user: {}", profile.getUserId());
+                    continue;
+                }
+                prepared.add(profile.getUserId());
+                preparing.add(executor.submit(() -> prepare(user, profile,
+                        readings.getOrDefault(profile.getUserId(), List.of()),
+                        trends.getOrDefault(profile.getUserId(), Map.of()), trendTypes)));
+            }
+            List<Scoring> scorings = collect(preparing, prepared);
+
+            // Valid predictions made from the same inputs are kept
+            Set<String> digests = new HashSet<>();
+            scorings.forEach(scoring -> digests.addAll(scoring.digests()));
+            Set<List<String>> stored = new HashSet<>();
+            if (!digests.isEmpty()) {
+                for (HealthPrediction prediction : predictionRepository
+                        .findByUserIdInAndInputDigestInAndValidUntilAfter(userIds, digests, now)) {
+                    stored.add(List.of(prediction.getUserId(), prediction.getInputDigest()));
+                }
+            }
+
+            List<String> scored = new ArrayList<>(scorings.size());
+            List<Future<List<HealthPrediction>>> predicting = new ArrayList<>(scorings.size());
+            for (Scoring scoring : scorings) {
+                scored.add(scoring.userId());
+                predicting.add(executor.submit(() -> predict(scoring, stored)));
+            }
+            List<HealthPrediction> fresh = new ArrayList<>();
+            collect(predicting, scored).forEach(fresh::addAll);
+
+            int written = predictionRepository.upsertAll(fresh);
+
+            checkpoint.setLastKey(userIds.get(userIds.size() - 1));
+            checkpoint.setProcessed(checkpoint.getProcessed() + chunk.size());
+            checkpoint.setProduced(checkpoint.getProduced() + written);
+            lease.save(checkpoint, leaseMinutes);
+
+            usersCounter.increment(chunk.size());
+            predictionsCounter.increment(written);
+            log.debug("Risk scoring chunk: {} users, {} predictions, up to user {}",
+                    chunk.size(), written, checkpoint.getLastKey());
+        });
+    }
+
+    /**
+     * Recent readings of the chunk's users, as many of each type as the models ask for
+     *
+     * One cursor over the (userId, measuredAt) index, oldest first, keeping
+     * the latest n complete readings per user and type as it goes.
+     */
+    private Map<String, List<HealthMetric>> latestReadings(List<String> userIds, LocalDateTime after) {
+        Map<MetricType, Integer> limits = riskPredictionService.readingLimits();
+        Map<String, List<HealthMetric>> readings = new HashMap<>();
+        if (limits.isEmpty()) {
+            return readings;
+        }
+
+        // Complete readings only, so one without values never takes the place of a complete one
+        Query query = Query.query(Criteria.where("userId").in(userIds)
+                        .and("measuredAt").gt(after)
+                        .orOperator(limits.keySet().stream().map(HealthMetricRepositoryCustom::withValues).toList()))
+                .with(Sort.by("userId", "measuredAt"))
+                .cursorBatchSize(cursorBatchSize);
+        // Both value fields of every type; digests only read the ones of the reading's type
+        query.fields().include("userId", "metricType", "value", "systolic", "diastolic", "measuredAt");
+
+        Map<String, Map<MetricType, ArrayDeque<HealthMetric>>> latest = new HashMap<>();
+        try (Stream<HealthMetric> metrics = mongoTemplate.stream(query, HealthMetric.class)) {
+            metrics.forEach(metric -> {
+                ArrayDeque<HealthMetric> ofType = latest
+                        .computeIfAbsent(metric.getUserId(), user -> new EnumMap<>(MetricType.class))
+                        .computeIfAbsent(metric.getMetricType(), type -> new ArrayDeque<>());
+                ofType.addLast(metric);
+                int limit = limits.getOrDefault(metric.getMetricType(), 0);
+                if (limit > 0 && ofType.size() > limit) {
+                    ofType.removeFirst();
+                }
+            });
+        }
+        latest.forEach((userId, byType) -> {
+            List<HealthMetric> ofUser = new ArrayList<>();
+            byType.values().forEach(ofUser::addAll);
+            readings.put(userId, ofUser);
+        });
+        return readings;
+    }
+
+    /**
+     * Model input of one user and its digest per model, building missing trends
+     */
+    private Scoring prepare(User user, HealthProfile profile, List<HealthMetric> metrics,
+                            Map<MetricType, MetricTrend> stored, Set<MetricType> trendTypes) {
+        Map<MetricType, MetricTrend> trends = new EnumMap<>(MetricType.class);
+        trends.putAll(stored);
+        for (MetricType type : trendTypes) {
+            if (!trends.containsKey(type)) {
+                trends.put(type, trendService.rebuild(profile.getUserId(), type));
+            }
+        }
+
+        RiskInput input = new RiskInput(user, profile, MetricSeries.of(metrics), trends);
+        return new Scoring(profile.getUserId(), input,
+                riskPredictionService.digests(input, RiskPredictionService.readingsByType(metrics)));
+    }
+
+    /**
+     * New predictions of one user: the models whose inputs have no valid prediction
+     */
+    private List<HealthPrediction> predict(Scoring scoring, Set<List<String>> stored) {
+        List<RiskModel> models = riskPredictionService.riskModels();
+        List<HealthPrediction> predictions = new ArrayList<>();
+        for (int i = 0; i < models.size(); i++) {
+            String digest = scoring.digests().get(i);
+            if (stored.contains(List.of(scoring.userId(), digest))) {
+                continue;
+            }
+            try {
+                HealthPrediction prediction = models.get(i).predict(scoring.input());
+                // No prediction without enough data
+                if (prediction != null) {
+                    prediction.setInputDigest(digest);
+                    predictions.add(prediction);
+                }
+            } catch (RuntimeException e) {
+                // One model failing must not lose the user's other predictions
+                log.error("Error running risk model {} for user: {}", models.get(i).getAlgorithm(),
+                        scoring.userId(), e);
+            }
+        }
+        return predictions;
+    }
+
+    /**
+     * Results of the per-user tasks of a chunk, skipping the users that failed
+     */
+    private static <T> List<T> collect(List<Future<T>> futures, List<String> userIds) {
+        List<T> results = new ArrayList<>(futures.size());
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                results.add(futures.get(i).get());
+            } catch (ExecutionException e) {
+                // One user's bad data must not stop the run
+                log.error("Risk scoring failed for user: {}", userIds.get(i), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Risk scoring interrupted", e);
+            }
+        }
+        return results;
+    }
+
+    private void updateThroughput(long users, long startedAt) {
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+        if (seconds > 0) {
+            throughput = users / seconds;
+        }
+    }
+
+    private record Scoring(String userId, RiskInput input, List<String> digests) {
+    }
+}
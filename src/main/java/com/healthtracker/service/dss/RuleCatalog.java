@@ -0,0 +1,272 @@
+package com.healthtracker.service.dss;
+
+import com.healthtracker.dss.engine.MetricSeries;
+import com.healthtracker.dss.engine.Rule;
+import com.healthtracker.dss.engine.RuleCompiler;
+import com.healthtracker.dss.engine.RuleEngine;
+import com.healthtracker.dss.engine.RuleNetwork;
+import com.healthtracker.dss.engine.RuleResult;
+import com.healthtracker.dto.request.RuleDefinitionRequest;
+import com.healthtracker.exception.BadRequestException;
+import com.healthtracker.exception.ConflictException;
+import com.healthtracker.exception.ResourceNotFoundException;
+import com.healthtracker.model.RuleDefinition;
+import com.healthtracker.model.RuleThreshold;
+import com.healthtracker.repository.RuleDefinitionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Current set of metric rules: built-in rule classes plus the rule
+ * definitions stored in MongoDB, compiled by {@link RuleCompiler}
+ *
+ * A definition with the same name as a built-in rule replaces it, so
+ * thresholds can be tuned without a redeploy. Invalid definitions are
+ * skipped (and logged) instead of taking the whole rule set down.
+ *
+ * HOT SWAP: The rule list is immutable and replaced atomically. Saving or
+ * deleting a definition recompiles immediately; other instances pick the
+ * change up within the refresh interval. Evaluations in progress finish
+ * with the list they started with.
+ *
+ * PERFORMANCE: Definitions are compiled once per reload into a
+ * {@link RuleNetwork}, so rules testing the same window, aggregate or
+ * threshold share that work within an evaluation. Looking up the current
+ * rules is a volatile read.
+ */
+@Service
+@Slf4j
+public class RuleCatalog {
+
+    private final List<Rule<MetricSeries>> builtInRules;
+    private final RuleDefinitionRepository definitionRepository;
+    private final RuleCompiler compiler;
+    private final RuleEngine ruleEngine;
+
+    @Value("${dss.rules.definitions.refresh-interval-seconds:60}")
+    private long refreshIntervalSeconds = 60;
+
+    private final ReentrantLock reloadLock = new ReentrantLock();
+
+    private volatile Snapshot snapshot;
+
+    public RuleCatalog(List<Rule<MetricSeries>> builtInRules, RuleDefinitionRepository definitionRepository,
+                       RuleCompiler compiler, RuleEngine ruleEngine) {
+        this.builtInRules = List.copyOf(builtInRules);
+        this.definitionRepository = definitionRepository;
+        this.compiler = compiler;
+        this.ruleEngine = ruleEngine;
+    }
+
+    /**
+     * Evaluate all metric rules against a user's metrics
+     *
+     * Built-in rules run through the RuleEngine as usual, compiled
+     * definitions as one shared network.
+     */
+    public RuleResult evaluate(MetricSeries series) {
+        Snapshot current = currentSnapshot();
+        return ruleEngine.evaluateRules(series, current.builtInRules(), current.network());
+    }
+
+    /**
+     * Worst severity of all metric rules, evaluating as few as possible
+     *
+     * Rules are kept in priority order per reload, so this does not sort.
+     *
+     * @see RuleEngine#evaluateWorstSeverity
+     */
+    public RuleResult evaluateWorstSeverity(MetricSeries series) {
+        return ruleEngine.evaluateWorstSeverity(series, currentSnapshot().rulesByPriority());
+    }
+
+    /**
+     * Rules to evaluate against a user's metrics, each on its own
+     *
+     * Prefer {@link #evaluate(MetricSeries)}, which shares conditions
+     * between compiled definitions.
+     *
+     * @return Immutable list, safe to iterate while definitions change
+     */
+    public List<Rule<MetricSeries>> getMetricRules() {
+        return currentSnapshot().rules();
+    }
+
+    private Snapshot currentSnapshot() {
+        Snapshot current = snapshot;
+        if (current != null && !current.isStale(refreshIntervalSeconds)) {
+            return current;
+        }
+
+        // Someone else is reloading - the previous rules are fine meanwhile
+        if (current != null && !reloadLock.tryLock()) {
+            return current;
+        }
+        if (current == null) {
+            reloadLock.lock();
+        }
+
+        try {
+            current = snapshot;
+            if (current == null || current.isStale(refreshIntervalSeconds)) {
+                current = load();
+                snapshot = current;
+            }
+            return current;
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    /**
+     * Recompile all definitions and swap them in now
+     *
+     * @return Number of rules now active
+     */
+    public int reload() {
+        reloadLock.lock();
+        try {
+            Snapshot current = load();
+            snapshot = current;
+            return current.rules().size();
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    /**
+     * All stored definitions, enabled or not
+     */
+    public List<RuleDefinition> getDefinitions() {
+        return definitionRepository.findAll();
+    }
+
+    /**
+     * Validate, store and activate a definition, replacing the stored one of the same name
+     *
+     * The stored id and version are kept, so the version is only ever
+     * incremented by the save and a concurrent edit fails instead of being lost.
+     *
+     * @throws BadRequestException if the definition does not compile
+     * @throws ConflictException if the definition was created or changed concurrently
+     */
+    public RuleDefinition saveDefinition(RuleDefinitionRequest request) {
+        RuleDefinition definition = definitionRepository.findByName(request.getName())
+                .orElseGet(() -> RuleDefinition.builder().name(request.getName()).build());
+        definition.setDescription(request.getDescription());
+        definition.setMetricType(request.getMetricType());
+        definition.setField(request.getField() != null ? request.getField() : RuleDefinition.Field.VALUE);
+        definition.setAggregate(request.getAggregate());
+        definition.setWindowReadings(request.getWindowReadings());
+        definition.setWindowDays(request.getWindowDays());
+        definition.setMinReadings(request.getMinReadings() != null ? request.getMinReadings() : 1);
+        definition.setOperator(request.getOperator());
+        definition.setThresholds(request.getThresholds().stream()
+                .map(threshold -> RuleThreshold.builder()
+                        .value(threshold.getValue())
+                        .severity(threshold.getSeverity())
+                        .messageKey(threshold.getMessageKey())
+                        .build())
+                .toList());
+        definition.setEnabled(request.getEnabled() != null ? request.getEnabled() : Boolean.TRUE);
+
+        try {
+            compiler.validate(definition);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid rule definition: " + e.getMessage());
+        }
+
+        definition.setUpdatedAt(LocalDateTime.now());
+        RuleDefinition saved;
+        try {
+            saved = definitionRepository.save(definition);
+        } catch (DuplicateKeyException | OptimisticLockingFailureException e) {
+            throw new ConflictException("Rule definition " + request.getName() + " was changed concurrently, retry");
+        }
+        log.info("Rule definition saved: {} (version {})", saved.getName(), saved.getVersion());
+
+        reload();
+        return saved;
+    }
+
+    /**
+     * Delete and deactivate a definition
+     */
+    public void deleteDefinition(String id) {
+        RuleDefinition definition = definitionRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("RuleDefinition", "id", id));
+        definitionRepository.delete(definition);
+        log.info("Rule definition deleted: {}", definition.getName());
+
+        reload();
+    }
+
+    private Snapshot load() {
+        List<RuleDefinition> definitions;
+        try {
+            definitions = definitionRepository.findByEnabledTrue();
+        } catch (RuntimeException e) {
+            // Keep what we had rather than dropping to the built-in rules
+            log.warn("Could not load rule definitions", e);
+            Snapshot current = snapshot;
+            return current != null
+                    ? new Snapshot(System.nanoTime(), current.builtInRules(), current.network())
+                    : new Snapshot(System.nanoTime(), builtInRules, compiler.compileNetwork(List.of()));
+        }
+
+        List<RuleDefinition> valid = new ArrayList<>(definitions.size());
+        Set<String> names = new HashSet<>();
+        for (RuleDefinition definition : definitions) {
+            try {
+                compiler.validate(definition);
+                if (names.add(definition.getName())) {
+                    valid.add(definition);
+                }
+            } catch (IllegalArgumentException e) {
+                log.error("Skipping invalid rule definition {}: {}", definition.getId(), e.getMessage());
+            }
+        }
+        RuleNetwork network = compiler.compileNetwork(valid);
+
+        // Definitions replace built-in rules of the same name
+        List<Rule<MetricSeries>> builtIns = builtInRules.stream()
+                .filter(rule -> !names.contains(rule.getRuleName()))
+                .toList();
+
+        log.info("Metric rules loaded: {} built-in, {} compiled ({} shared conditions, {} aggregates)",
+                builtIns.size(), valid.size(), network.getConditionCount(), network.getAggregateCount());
+        return new Snapshot(System.nanoTime(), builtIns, network);
+    }
+
+    private record Snapshot(long loadedAtNanos, List<Rule<MetricSeries>> builtInRules, RuleNetwork network,
+                            List<Rule<MetricSeries>> rules, List<Rule<MetricSeries>> rulesByPriority) {
+
+        Snapshot(long loadedAtNanos, List<Rule<MetricSeries>> builtInRules, RuleNetwork network) {
+            this(loadedAtNanos, builtInRules, network, concat(builtInRules, network.getRules()));
+        }
+
+        private Snapshot(long loadedAtNanos, List<Rule<MetricSeries>> builtInRules, RuleNetwork network,
+                         List<Rule<MetricSeries>> rules) {
+            this(loadedAtNanos, builtInRules, network, rules, RuleEngine.byPriority(rules));
+        }
+
+        boolean isStale(long refreshIntervalSeconds) {
+            return System.nanoTime() - loadedAtNanos > TimeUnit.SECONDS.toNanos(refreshIntervalSeconds);
+        }
+
+        private static List<Rule<MetricSeries>> concat(List<Rule<MetricSeries>> first, List<Rule<MetricSeries>> second) {
+            List<Rule<MetricSeries>> rules = new ArrayList<>(first.size() + second.size());
+            rules.addAll(first);
+            rules.addAll(second);
+            return List.copyOf(rules);
+        }
+    }
+}
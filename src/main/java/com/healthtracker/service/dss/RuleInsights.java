@@ -0,0 +1,65 @@
+package com.healthtracker.service.dss;
+
+import com.healthtracker.dss.engine.RuleResult;
+import com.healthtracker.model.HealthInsight;
+import com.healthtracker.model.InsightType;
+import org.springframework.context.MessageSource;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Turns fired rules into HealthInsights
+ *
+ * Shared by every producer of rule insights (ingest, nightly sweep), so the
+ * same rule firing twice yields the same content and is coalesced into one
+ * insight by {@link InsightWriteBehindSink}.
+ */
+final class RuleInsights {
+
+    private RuleInsights() {
+    }
+
+    /**
+     * One insight per fired rule
+     *
+     * @param userId     Owner of the insights
+     * @param category   Insight category (metric type name, HEALTH_PROFILE)
+     * @param result     Rules fired for the user
+     * @param dataPoints Context of the evaluation; the rule name is added per insight
+     */
+    static List<HealthInsight> of(String userId, String category, RuleResult result, Map<String, Object> dataPoints,
+                                  MessageSource messageSource, Locale locale) {
+        LocalDateTime now = LocalDateTime.now();
+        List<HealthInsight> insights = new ArrayList<>(result.getFiredRuleNames().size());
+        for (int i = 0; i < result.getFiredRuleNames().size(); i++) {
+            String severity = result.getFiredSeverities().get(i);
+            boolean critical = "CRITICAL".equals(severity);
+            boolean warning = "WARNING".equals(severity);
+
+            Map<String, Object> points = new LinkedHashMap<>();
+            points.put("rule", result.getFiredRuleNames().get(i));
+            points.putAll(dataPoints);
+
+            insights.add(HealthInsight.builder()
+                    .userId(userId)
+                    .type(critical ? InsightType.WARNING : warning ? InsightType.RECOMMENDATION : InsightType.TIP)
+                    .category(category)
+                    .title(messageSource.getMessage(critical ? "rule.insight.title.critical"
+                            : warning ? "rule.insight.title.warning" : "rule.insight.title.info", null, locale))
+                    .message(result.getRecommendations().get(i))
+                    .dataPoints(points)
+                    .priority(critical ? 1 : warning ? 2 : 3)
+                    .severity(critical || warning ? severity : "INFO")
+                    .isRead(false)
+                    .generatedAt(now)
+                    .expiresAt(now.plusDays(7))
+                    .build());
+        }
+        return insights;
+    }
+}
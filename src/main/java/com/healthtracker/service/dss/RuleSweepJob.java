@@ -0,0 +1,321 @@
+package com.healthtracker.service.dss;
+
+import com.healthtracker.dss.engine.MetricSeries;
+import com.healthtracker.dss.engine.Rule;
+import com.healthtracker.dss.engine.RuleEngine;
+import com.healthtracker.dss.engine.RuleResult;
+import com.healthtracker.model.HealthInsight;
+import com.healthtracker.model.HealthMetric;
+import com.healthtracker.model.HealthProfile;
+import com.healthtracker.model.JobCheckpoint;
+import com.healthtracker.model.MetricType;
+import com.healthtracker.repository.JobCheckpointRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.MessageSource;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Nightly sweep evaluating the rule catalog for every active user
+ *
+ * Streams the recent metrics and the health profiles of all users from two
+ * MongoDB cursors, both sorted by user, merges them on userId and processes
+ * them in chunks of users:
+ * 1. Evaluate metric rules (per metric type, like on ingest) and profile
+ *    rules for each user, in parallel on virtual threads
+ * 2. Upsert all resulting insights in one unordered bulk write
+ * 3. Checkpoint the last user of the chunk in job_checkpoints
+ *
+ * Insights are thus ready before users log in instead of being computed on
+ * their request path, and they coalesce with the insights of ingest.
+ *
+ * RESUME: The checkpoint is also a lease, so only one instance sweeps at a
+ * time. A run that crashed or failed is resumed after its last checkpointed
+ * user by the next run started within dss.sweep.resume-within-hours; older
+ * runs start over. Users with a profile but no metric in the lookback window
+ * get their profile rules only; users with neither are skipped.
+ *
+ * PERFORMANCE: Two cursors (metrics with a projection, served by the
+ * (userId, measuredAt) index; profiles by the userId index) instead of
+ * queries per user or per chunk; memory is bounded by one chunk of users.
+ *
+ * Metrics (exported via /actuator/prometheus):
+ * - dss.sweep.chunk - latency of one chunk (load, evaluate, write)
+ * - dss.sweep.users / dss.sweep.insights - users swept and insights written
+ */
+@Service
+@Slf4j
+public class RuleSweepJob {
+
+    static final String JOB_NAME = "rule-sweep";
+
+    private final MongoTemplate mongoTemplate;
+    private final JobLease lease;
+    private final JobCheckpointRepository checkpointRepository;
+    private final RuleCatalog ruleCatalog;
+    private final RuleEngine ruleEngine;
+    private final List<Rule<HealthProfile>> profileRules;
+    private final InsightWriteBehindSink insightSink;
+    private final MessageSource messageSource;
+
+    private final Timer chunkTimer;
+    private final Counter usersCounter;
+    private final Counter insightsCounter;
+
+    @Value("${dss.sweep.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${dss.sweep.lookback-days:30}")
+    private int lookbackDays = 30;
+
+    @Value("${dss.sweep.chunk-size:500}")
+    private int chunkSize = 500;
+
+    @Value("${dss.sweep.cursor-batch-size:2000}")
+    private int cursorBatchSize = 2000;
+
+    @Value("${dss.sweep.lease-minutes:30}")
+    private long leaseMinutes = 30;
+
+    @Value("${dss.sweep.resume-within-hours:20}")
+    private long resumeWithinHours = 20;
+
+    @Value("${dss.sweep.locale:vi}")
+    private Locale locale = Locale.forLanguageTag("vi");
+
+    public RuleSweepJob(MongoTemplate mongoTemplate, JobCheckpointRepository checkpointRepository, RuleCatalog ruleCatalog, RuleEngine ruleEngine,
+                        List<Rule<HealthProfile>> profileRules, InsightWriteBehindSink insightSink,
+                        MessageSource messageSource, MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.lease = new JobLease(mongoTemplate, JOB_NAME);
+        this.checkpointRepository = checkpointRepository;
+        this.ruleCatalog = ruleCatalog;
+        this.ruleEngine = ruleEngine;
+        this.profileRules = List.copyOf(profileRules);
+        this.insightSink = insightSink;
+        this.messageSource = messageSource;
+
+        this.chunkTimer = Timer.builder("dss.sweep.chunk")
+                .description("Latency of one chunk of users in the rule sweep")
+                .register(meterRegistry);
+        this.usersCounter = Counter.builder("dss.sweep.users")
+                .description("Users swept")
+                .register(meterRegistry);
+        this.insightsCounter = Counter.builder("dss.sweep.insights")
+                .description("Insights written by the rule sweep")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${dss.sweep.cron:0 0 2 * * *}")
+    public void runScheduled() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            run();
+        } catch (RuntimeException e) {
+            log.error("Rule sweep failed", e);
+        }
+    }
+
+    /**
+     * Start a sweep in the background (no-op if one is already running)
+     */
+    public void runAsync() {
+        Thread.ofVirtual().name("rule-sweep").start(this::runScheduled);
+    }
+
+    /**
+     * Progress of the current or last sweep
+     */
+    public Optional<JobCheckpoint> getCheckpoint() {
+        return checkpointRepository.findById(JOB_NAME);
+    }
+
+    /**
+     * Run or resume the sweep on the calling thread
+     *
+     * @return Final checkpoint, or null if another run holds the job
+     * @throws RuntimeException if the sweep failed; the next run resumes it
+     */
+    public JobCheckpoint run() {
+        JobCheckpoint checkpoint = lease.acquire(leaseMinutes, resumeWithinHours);
+        if (checkpoint == null) {
+            log.info("Rule sweep already running elsewhere, skipped");
+            return null;
+        }
+        log.info("Rule sweep {} {}", checkpoint.getRunId(),
+                checkpoint.getLastKey() != null ? "resumed after user " + checkpoint.getLastKey() : "started");
+
+        try {
+            sweep(checkpoint);
+        } catch (RuntimeException e) {
+            checkpoint.setStatus(JobLease.FAILED);
+            try {
+                lease.save(checkpoint, leaseMinutes);
+            } catch (RuntimeException saveError) {
+                e.addSuppressed(saveError);
+            }
+            throw e;
+        }
+
+        checkpoint.setStatus(JobLease.COMPLETED);
+        checkpoint.setFinishedAt(LocalDateTime.now());
+        lease.save(checkpoint, leaseMinutes);
+        log.info("Rule sweep {} completed: {} users, {} insights",
+                checkpoint.getRunId(), checkpoint.getProcessed(), checkpoint.getProduced());
+        return checkpoint;
+    }
+
+    private void sweep(JobCheckpoint checkpoint) {
+        // Strings sort after null, so "" also skips documents without a user
+        String after = checkpoint.getLastKey() != null ? checkpoint.getLastKey() : "";
+        Query metricQuery = Query.query(Criteria.where("userId").gt(after)
+                        .and("measuredAt").gte(LocalDateTime.now().minusDays(lookbackDays)))
+                .with(Sort.by("userId", "measuredAt"))
+                .cursorBatchSize(cursorBatchSize);
+        metricQuery.fields().include("userId", "metricType", "value", "systolic", "diastolic", "measuredAt");
+        Query profileQuery = Query.query(Criteria.where("userId").gt(after))
+                .with(Sort.by("userId"))
+                .cursorBatchSize(cursorBatchSize);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+             Stream<HealthMetric> metrics = mongoTemplate.stream(metricQuery, HealthMetric.class);
+             Stream<HealthProfile> profiles = profileRules.isEmpty()
+                     ? Stream.empty()
+                     : mongoTemplate.stream(profileQuery, HealthProfile.class)) {
+            Iterator<HealthMetric> metricCursor = metrics.iterator();
+            Iterator<HealthProfile> profileCursor = profiles.iterator();
+            HealthMetric metric = next(metricCursor);
+            HealthProfile profile = next(profileCursor);
+            List<UserInputs> chunk = new ArrayList<>(chunkSize);
+
+            while (metric != null || profile != null) {
+                // Both cursors are sorted by user: take the lower user, from both if they match
+                String userId = metric == null ? profile.getUserId()
+                        : profile == null || metric.getUserId().compareTo(profile.getUserId()) <= 0
+                        ? metric.getUserId()
+                        : profile.getUserId();
+
+                List<HealthMetric> ofUser = new ArrayList<>();
+                while (metric != null && metric.getUserId().equals(userId)) {
+                    ofUser.add(metric);
+                    metric = next(metricCursor);
+                }
+                HealthProfile profileOfUser = null;
+                while (profile != null && profile.getUserId().equals(userId)) {
+                    // One profile per user
+                    if (profileOfUser == null) {
+                        profileOfUser = profile;
+                    }
+                    profile = next(profileCursor);
+                }
+
+                chunk.add(new UserInputs(userId, ofUser, profileOfUser));
+                if (chunk.size() >= chunkSize) {
+                    process(chunk, checkpoint, executor);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                process(chunk, checkpoint, executor);
+            }
+        }
+    }
+
+    private static <T> T next(Iterator<T> cursor) {
+        return cursor.hasNext() ? cursor.next() : null;
+    }
+
+    private void process(List<UserInputs> chunk, JobCheckpoint checkpoint, ExecutorService executor) {
+        chunkTimer.record(() -> {
+            List<Future<List<HealthInsight>>> futures = new ArrayList<>(chunk.size());
+            for (UserInputs user : chunk) {
+                futures.add(executor.submit(() -> evaluate(user)));
+            }
+
+            List<HealthInsight> insights = new ArrayList<>();
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    insights.addAll(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    // One user's bad data must not stop the sweep
+                    log.error("Rule sweep failed for user: {}", chunk.get(i).userId(), e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Rule sweep interrupted", e);
+                }
+            }
+
+            int written = insightSink.writeAll(insights);
+
+            checkpoint.setLastKey(chunk.get(chunk.size() - 1).userId());
+            checkpoint.setProcessed(checkpoint.getProcessed() + chunk.size());
+            checkpoint.setProduced(checkpoint.getProduced() + written);
+            lease.save(checkpoint, leaseMinutes);
+
+            usersCounter.increment(chunk.size());
+            insightsCounter.increment(written);
+            log.debug("Rule sweep chunk: {} users, {} insights, up to user {}",
+                    chunk.size(), written, checkpoint.getLastKey());
+        });
+    }
+
+    /**
+     * Insights of one user: metric rules per type, then profile rules
+     */
+    private List<HealthInsight> evaluate(UserInputs user) {
+        LocaleContextHolder.setLocale(locale);
+        try {
+            Map<MetricType, List<HealthMetric>> byType = new EnumMap<>(MetricType.class);
+            for (HealthMetric metric : user.metrics()) {
+                if (metric.getMetricType() != null) {
+                    byType.computeIfAbsent(metric.getMetricType(), type -> new ArrayList<>()).add(metric);
+                }
+            }
+
+            List<HealthInsight> insights = new ArrayList<>();
+            byType.forEach((type, readings) -> {
+                RuleResult result = ruleCatalog.evaluate(MetricSeries.of(readings));
+                if (result.hasResults()) {
+                    Map<String, Object> dataPoints = new LinkedHashMap<>();
+                    dataPoints.put("metricType", type.name());
+                    // Sorted by measuredAt within the user
+                    dataPoints.put("measuredAt", readings.get(readings.size() - 1).getMeasuredAt());
+                    dataPoints.put("readings", readings.size());
+                    insights.addAll(RuleInsights.of(user.userId(), type.name(), result, dataPoints,
+                            messageSource, locale));
+                }
+            });
+
+            if (user.profile() != null && !profileRules.isEmpty()) {
+                RuleResult result = ruleEngine.evaluateRules(user.profile(), profileRules);
+                insights.addAll(RuleInsights.of(user.userId(), "HEALTH_PROFILE", result, Map.of(),
+                        messageSource, locale));
+            }
+            return insights;
+        } finally {
+            LocaleContextHolder.resetLocaleContext();
+        }
+    }
+
+    private record UserInputs(String userId, List<HealthMetric> metrics, HealthProfile profile) {
+    }
+}
@@ -0,0 +1,153 @@
+package com.healthtracker.service.dss;
+
+import com.healthtracker.dss.knowledge.SymptomDiseaseIndex;
+import com.healthtracker.dto.response.SymptomAnalysisResponse;
+import com.healthtracker.model.Symptom;
+import com.healthtracker.service.SymptomDiseaseMappingService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * Per-user memo of symptom analysis results
+ *
+ * An entry is keyed on a fingerprint of the user's active symptoms (names,
+ * severities, start dates), the knowledge base version and the locale the
+ * response was rendered in. Every analysis re-reads the active symptoms
+ * (one query on the (userId, endDate) index) and reuses the entry only if
+ * their fingerprint did not change: no scoring, no insight written. An edit
+ * made through any instance changes the fingerprint, so no instance needs
+ * to be told about it.
+ *
+ * Entries expire with the insight they wrote (after
+ * {@link SymptomAnalysisService#INSIGHT_TTL_DAYS}), so a reused result always
+ * has its insight, and when a symptom turns persistent (> 7 days), since
+ * that changes the urgency score without any symptom being edited.
+ *
+ * In-memory and bounded (LRU): each instance memoizes its own users.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SymptomAnalysisCache {
+
+    /**
+     * Symptoms older than this count as persistent in the urgency score
+     */
+    static final int PERSISTENT_AFTER_DAYS = 7;
+
+    private final SymptomDiseaseMappingService mappingService;
+
+    @Value("${dss.symptom-analysis.cache.max-users:10000}")
+    private int maxUsers = 10000;
+
+    /**
+     * Time source of entry expiry (fixed in tests)
+     */
+    private Clock clock = Clock.systemDefaultZone();
+
+    private final Map<String, Entry> entries = Collections.synchronizedMap(
+            new LinkedHashMap<>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                    return size() > maxUsers;
+                }
+            });
+
+    /**
+     * Get a result computed for the same active symptoms
+     *
+     * @param fingerprint Fingerprint of the user's current active symptoms
+     * @return Cached response, or null if the symptoms differ or the result expired
+     */
+    public SymptomAnalysisResponse get(String userId, long fingerprint, Locale locale) {
+        Entry entry = entries.get(userId);
+        if (entry == null || entry.fingerprint() != fingerprint
+                || !entry.isValid(mappingService.getKnowledgeBaseVersion(), locale, LocalDateTime.now(clock))) {
+            return null;
+        }
+        log.debug("Symptom analysis unchanged for user: {}", userId);
+        return entry.response();
+    }
+
+    /**
+     * Store a freshly computed result
+     *
+     * @param activeSymptoms Active symptoms the result was computed from
+     */
+    public void put(String userId, List<Symptom> activeSymptoms, Locale locale, SymptomAnalysisResponse response) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        LocalDateTime expiresAt = now.plusDays(SymptomAnalysisService.INSIGHT_TTL_DAYS);
+        LocalDateTime persistentAt = persistentAt(activeSymptoms, now);
+        entries.put(userId, new Entry(
+                fingerprint(activeSymptoms),
+                mappingService.getKnowledgeBaseVersion(),
+                locale,
+                persistentAt != null && persistentAt.isBefore(expiresAt) ? persistentAt : expiresAt,
+                response));
+    }
+
+    /**
+     * Order-independent fingerprint of active symptoms (name, severity, start date)
+     */
+    public static long fingerprint(List<Symptom> activeSymptoms) {
+        long fingerprint = activeSymptoms.size();
+        for (Symptom symptom : activeSymptoms) {
+            long hash = symptom.getSymptomName() != null
+                    ? SymptomDiseaseIndex.normalize(symptom.getSymptomName()).hashCode()
+                    : 0;
+            hash = hash * 31 + Objects.hashCode(symptom.getSeverity());
+            hash = hash * 31 + (symptom.getStartDate() != null
+                    ? symptom.getStartDate().toEpochSecond(ZoneOffset.UTC)
+                    : 0);
+            // Sum of well-mixed hashes is independent of symptom order
+            fingerprint += mix(hash);
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Next time one of the symptoms becomes persistent, or null if none will
+     */
+    private static LocalDateTime persistentAt(List<Symptom> activeSymptoms, LocalDateTime now) {
+        LocalDateTime next = null;
+        for (Symptom symptom : activeSymptoms) {
+            if (symptom.getStartDate() == null) {
+                continue;
+            }
+            LocalDateTime persistent = symptom.getStartDate().plusDays(PERSISTENT_AFTER_DAYS);
+            if (persistent.isAfter(now) && (next == null || persistent.isBefore(next))) {
+                next = persistent;
+            }
+        }
+        return next;
+    }
+
+    /**
+     * SplitMix64 finalizer
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private record Entry(long fingerprint,
+                         long knowledgeBaseVersion,
+                         Locale locale,
+                         LocalDateTime expiresAt,
+                         SymptomAnalysisResponse response) {
+
+        boolean isValid(long currentKnowledgeBaseVersion, Locale currentLocale, LocalDateTime now) {
+            return knowledgeBaseVersion == currentKnowledgeBaseVersion
+                    && locale.equals(currentLocale)
+                    && now.isBefore(expiresAt);
+        }
+    }
+}
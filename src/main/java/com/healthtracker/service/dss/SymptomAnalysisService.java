@@ -1,19 +1,20 @@
 package com.healthtracker.service.dss;
 
+import com.healthtracker.dss.knowledge.SymptomDiseaseIndex;
+import com.healthtracker.dss.knowledge.TopKSelector;
 import com.healthtracker.dto.response.DiseaseMatchScore;
 import com.healthtracker.dto.response.SymptomAnalysisResponse;
 import com.healthtracker.model.*;
-import com.healthtracker.repository.HealthInsightRepository;
 import com.healthtracker.repository.SymptomRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.MessageSource;
 import org.springframework.context.i18n.LocaleContextHolder;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * CORE DSS SERVICE - Symptom Analysis
@@ -28,19 +29,38 @@ public class SymptomAnalysisService implements ISymptomAnalysisService {
 
     private final SymptomRepository symptomRepository;
     private final com.healthtracker.service.SymptomDiseaseMappingService mappingService;
-    private final HealthInsightRepository insightRepository;
+    private final InsightWriteBehindSink insightSink;
     private final MessageSource messageSource;
+    private final SymptomAnalysisCache analysisCache;
+
+    /**
+     * Days a SYMPTOM_ANALYSIS insight stays valid; memoized results expire with it
+     */
+    static final int INSIGHT_TTL_DAYS = 7;
+
+    /**
+     * Number of ranked diseases returned by the analysis
+     */
+    @Value("${dss.symptom-analysis.top-k:5}")
+    private int topK = 5;
+
+    /**
+     * Diseases must score strictly above this to be reported (0-1)
+     */
+    @Value("${dss.symptom-analysis.min-match-score:0.3}")
+    private double minMatchScore = 0.3;
 
     /**
      * Analyze user's active symptoms and predict possible conditions
      * 
      * ALGORITHM:
-     * 1. Get active symptoms (endDate = null)
+     * 1. Get active symptoms (endDate = null); return the memoized result
+     *    if they did not change
      * 2. Extract symptom names
-     * 3. Query ONLY relevant disease mappings (PERFORMANCE OPTIMIZATION!)
-     * 4. Pre-index symptoms in Set for O(1) lookup (CRITICAL!)
-     * 5. Calculate match scores for each disease
-     * 6. Rank diseases by score (top 5)
+     * 3. Look up ONLY relevant disease mappings in the resident index
+     * 4. Encode symptoms as a bitset over the index vocabulary (CRITICAL!)
+     * 5. Calculate match scores for each disease (compiled patterns)
+     * 6. Rank diseases by score (top k, bounded heap with pruning)
      * 7. Calculate urgency score
      * 8. Generate and save insights
      * 9. Return response
@@ -52,6 +72,23 @@ public class SymptomAnalysisService implements ISymptomAnalysisService {
         // 1. Get active symptoms
         List<Symptom> activeSymptoms = symptomRepository.findByUserIdAndEndDateIsNull(userId);
 
+        // Same active symptoms as last time? Skip scoring and the insight write
+        Locale locale = LocaleContextHolder.getLocale();
+        SymptomAnalysisResponse cached = analysisCache.get(userId,
+                SymptomAnalysisCache.fingerprint(activeSymptoms), locale);
+        if (cached != null) {
+            return cached;
+        }
+
+        SymptomAnalysisResponse response = analyzeActiveSymptoms(userId, activeSymptoms);
+        analysisCache.put(userId, activeSymptoms, locale, response);
+        return response;
+    }
+
+    /**
+     * Run the analysis (steps 2-9) for the given active symptoms
+     */
+    private SymptomAnalysisResponse analyzeActiveSymptoms(String userId, List<Symptom> activeSymptoms) {
         if (activeSymptoms.isEmpty()) {
             log.info("No active symptoms found for user: {}", userId);
             return SymptomAnalysisResponse.noSymptoms();
@@ -64,41 +101,27 @@ public class SymptomAnalysisService implements ISymptomAnalysisService {
                 .map(Symptom::getSymptomName)
                 .toList();
 
-        // 3. Query ONLY relevant disease mappings (PERFORMANCE OPTIMIZATION!)
-        // This is 10-100x faster than findAll() for large datasets
-        // CACHED: Results are cached by symptom names for even better performance
-        List<SymptomDiseaseMapping> relevantMappings = mappingService.findRelevantMappings(symptomNames);
-
-        log.info("Found {} relevant disease mappings", relevantMappings.size());
-
-        if (relevantMappings.isEmpty()) {
-            return buildNoMatchResponse();
+        // 3. Look up ONLY relevant disease mappings (PERFORMANCE OPTIMIZATION!)
+        // Served from the resident inverted index - no database round trip.
+        // While the index is not loaded yet, only the (cached) query result is compiled
+        SymptomDiseaseIndex index = mappingService.getIndex();
+        if (index == null) {
+            index = SymptomDiseaseIndex.build(mappingService.findRelevantMappings(symptomNames), -1);
         }
 
-        // 4. Pre-index symptoms in Set for O(1) lookup (CRITICAL FOR PERFORMANCE!)
-        Set<String> userSymptomSet = activeSymptoms.stream()
-                .map(s -> s.getSymptomName().toLowerCase().trim())
-                .collect(Collectors.toSet());
+        // 4. Resolve symptoms (exact, accent-insensitive, then fuzzy) and encode them
+        // as a bitset over the knowledge base vocabulary
+        long[] userSymptoms = index.encode(symptomNames);
+        int[] candidates = index.findCandidateOrdinals(userSymptoms);
 
-        // 5. Calculate match scores for each disease
-        Map<String, DiseaseMatchScore> diseaseScores = new HashMap<>();
-        for (SymptomDiseaseMapping mapping : relevantMappings) {
-            double score = calculateMatchScore(userSymptomSet, mapping);
+        log.info("Found {} relevant disease mappings", candidates.length);
 
-            // Only include diseases with >30% match
-            if (score > 0.3) {
-                diseaseScores.put(mapping.getDiseaseName(),
-                        new DiseaseMatchScore(mapping, score));
-            }
+        if (candidates.length == 0) {
+            return buildNoMatchResponse();
         }
 
-        log.info("Calculated scores for {} diseases", diseaseScores.size());
-
-        // 6. Rank diseases by score (top 5)
-        List<DiseaseMatchScore> rankedDiseases = diseaseScores.values().stream()
-                .sorted(Comparator.comparing(DiseaseMatchScore::getMatchScore).reversed())
-                .limit(5)
-                .toList();
+        // 5-6. Score candidates and keep the top k
+        List<DiseaseMatchScore> rankedDiseases = rankCandidates(index, userSymptoms, candidates);
 
         // 7. Calculate urgency score
         double urgencyScore = calculateUrgencyScore(activeSymptoms, rankedDiseases);
@@ -113,50 +136,35 @@ public class SymptomAnalysisService implements ISymptomAnalysisService {
     }
 
     /**
-     * Calculate match score between user symptoms and disease pattern
-     * 
-     * PERFORMANCE: Uses O(1) Set lookup instead of O(m) stream search
-     * 
-     * @param userSymptoms   Set of user symptom names (lowercase)
-     * @param diseaseMapping Disease mapping to match against
-     * @return Match score (0-1) representing percentage of pattern matched
+     * Score candidates and keep the top k in a bounded min-heap
+     *
+     * A candidate is skipped when even its best possible score (all pattern
+     * symptoms matched, critical bonus included) cannot beat the current k-th best.
+     *
+     * Package-private for the JMH benchmarks.
      */
-    private double calculateMatchScore(
-            Set<String> userSymptoms,
-            SymptomDiseaseMapping diseaseMapping) {
-        List<SymptomPattern> patterns = diseaseMapping.getSymptomPatterns();
-
-        // Calculate total weight of all symptoms in pattern
-        double totalWeight = patterns.stream()
-                .mapToInt(SymptomPattern::getWeight)
-                .sum();
-
-        if (totalWeight == 0) {
-            return 0;
+    List<DiseaseMatchScore> rankCandidates(SymptomDiseaseIndex index, long[] userSymptoms, int[] candidates) {
+        TopKSelector topDiseases = new TopKSelector(topK, minMatchScore);
+        int pruned = 0;
+        for (int disease : candidates) {
+            double floor = topDiseases.floor();
+            if (index.upperBound(disease) <= floor) {
+                pruned++;
+                continue;
+            }
+            topDiseases.offer(disease, index.score(disease, userSymptoms, floor));
         }
+        topDiseases.sortDescending();
 
-        double matchedSymptomWeight = 0;
-
-        for (SymptomPattern pattern : patterns) {
-            String patternName = pattern.getSymptomName().toLowerCase().trim();
-
-            // O(1) lookup in Set! (NOT O(m) stream.anyMatch in loop!)
-            boolean matched = userSymptoms.contains(patternName);
-
-            if (matched) {
-                matchedSymptomWeight += pattern.getWeight();
-
-                // Bonus for critical symptoms
-                if (Boolean.TRUE.equals(pattern.getIsCritical())) {
-                    matchedSymptomWeight += pattern.getWeight() * 0.5;
-                }
-            } else if (Boolean.TRUE.equals(pattern.getIsCritical())) {
-                // Missing critical symptom = reject this disease
-                return 0;
-            }
+        List<DiseaseMatchScore> rankedDiseases = new ArrayList<>(topDiseases.size());
+        for (int rank = 0; rank < topDiseases.size(); rank++) {
+            rankedDiseases.add(new DiseaseMatchScore(
+                    index.getDisease(topDiseases.idAt(rank)), topDiseases.scoreAt(rank)));
         }
 
-        return matchedSymptomWeight / totalWeight;
+        log.info("Ranked {} of {} candidate diseases ({} pruned by upper bound)",
+                rankedDiseases.size(), candidates.length, pruned);
+        return rankedDiseases;
     }
 
     /**
@@ -169,9 +177,11 @@ public class SymptomAnalysisService implements ISymptomAnalysisService {
      * - Number of symptoms (+20 max)
      * - Duration of symptoms (+15 max)
      * 
+     * Package-private for the JMH benchmarks.
+     * 
      * @return Urgency score (0-100)
      */
-    private double calculateUrgencyScore(
+    double calculateUrgencyScore(
             List<Symptom> symptoms,
             List<DiseaseMatchScore> diseases) {
         double score = 0;
@@ -258,10 +268,11 @@ public class SymptomAnalysisService implements ISymptomAnalysisService {
                 .severity(severity)
                 .isRead(false)
                 .generatedAt(LocalDateTime.now())
-                .expiresAt(LocalDateTime.now().plusDays(7))
+                .expiresAt(LocalDateTime.now().plusDays(INSIGHT_TTL_DAYS))
                 .build();
 
-        insightRepository.save(insight);
+        // Written behind the request - keeps the Mongo write out of analysis latency
+        insightSink.submit(insight);
         log.info("Generated insight for user: {}", userId);
     }
 
@@ -0,0 +1,138 @@
+package com.healthtracker.dss.engine;
+
+import com.healthtracker.model.HealthMetric;
+import com.healthtracker.model.MetricType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for MetricSeries
+ */
+class MetricSeriesTest {
+
+    private final LocalDateTime now = LocalDateTime.of(2025, 6, 1, 8, 0);
+
+    @Test
+    @DisplayName("Should partition by type, sort by time and skip incomplete readings")
+    void testPartitionAndSort() {
+        // Given - input out of order, mixed types
+        List<HealthMetric> metrics = List.of(
+                bloodPressure(now.minusDays(1), 150, 95),
+                sugar(now.minusDays(3), 110),
+                bloodPressure(now, 130, 85),
+                bloodPressure(now.minusDays(2), 145, null),
+                sugar(now.minusDays(1), 130),
+                sugar(now.minusDays(2), null),
+                bloodPressure(now.minusDays(5), 120, 80));
+
+        // When
+        MetricSeries series = MetricSeries.of(metrics);
+
+        // Then
+        assertEquals(3, series.count(MetricType.BLOOD_PRESSURE));
+        assertEquals(2, series.count(MetricType.BLOOD_SUGAR));
+        assertEquals(0, series.count(MetricType.WEIGHT));
+        assertEquals(130, series.latest(MetricType.BLOOD_PRESSURE, 0));
+        assertEquals(95, series.latestDiastolic(1));
+        assertEquals(120, series.value(MetricType.BLOOD_PRESSURE, 0));
+        assertEquals(MetricSeries.toEpochMilli(now), series.latestTime(MetricType.BLOOD_PRESSURE, 0));
+        assertEquals((130 + 150) / 2.0, series.averageOfLast(MetricType.BLOOD_PRESSURE, 2));
+        assertEquals((85 + 95 + 80) / 3.0, series.averageDiastolicOfLast(10));
+        assertTrue(Double.isNaN(series.averageOfLast(MetricType.WEIGHT, 3)));
+    }
+
+    @Test
+    @DisplayName("Window averages should match filtering the entity list")
+    void testAverages_SameAsStreams() {
+        // Given
+        Random random = new Random(3);
+        List<HealthMetric> metrics = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            metrics.add(sugar(now.minusHours(random.nextInt(24 * 180)), 70 + random.nextInt(100)));
+        }
+        MetricSeries series = MetricSeries.of(metrics);
+        List<HealthMetric> newestFirst = metrics.stream()
+                .sorted(Comparator.comparing(HealthMetric::getMeasuredAt).reversed())
+                .toList();
+
+        for (int n = 1; n <= 20; n++) {
+            // When / Then
+            double expected = newestFirst.stream().limit(n).mapToDouble(HealthMetric::getValue).average().orElseThrow();
+            assertEquals(expected, series.averageOfLast(MetricType.BLOOD_SUGAR, n));
+
+            LocalDateTime since = now.minusDays(n * 7L);
+            double expectedSince = metrics.stream()
+                    .filter(m -> !m.getMeasuredAt().isBefore(since))
+                    .mapToDouble(HealthMetric::getValue).average().orElseThrow();
+            assertEquals(expectedSince, series.averageSince(MetricType.BLOOD_SUGAR, since), 1e-9);
+        }
+    }
+
+    @Test
+    @DisplayName("Window averages of readings exactly at a threshold should not drift after a long decimal history")
+    void testAverages_ExactThresholdAfterDecimalHistory() {
+        Random random = new Random(7);
+        for (int run = 0; run < 2000; run++) {
+            // Given - 50-550 one-decimal readings, then three readings exactly at the thresholds
+            List<HealthMetric> metrics = new ArrayList<>();
+            int history = 50 + random.nextInt(501);
+            for (int i = 0; i < history; i++) {
+                LocalDateTime measuredAt = now.minusDays(3).minusMinutes(history - i);
+                metrics.add(HealthMetric.builder().metricType(MetricType.BLOOD_SUGAR)
+                        .value(random.nextInt(5000) / 10.0).measuredAt(measuredAt).build());
+                metrics.add(HealthMetric.builder().metricType(MetricType.BLOOD_PRESSURE)
+                        .systolic(random.nextInt(2000) / 10.0).diastolic(random.nextInt(1200) / 10.0)
+                        .measuredAt(measuredAt).build());
+            }
+            double sugar = run % 2 == 0 ? 126.0 : 7.0;
+            for (int day = 2; day >= 0; day--) {
+                metrics.add(HealthMetric.builder().metricType(MetricType.BLOOD_SUGAR)
+                        .value(sugar).measuredAt(now.minusDays(day)).build());
+                metrics.add(bloodPressure(now.minusDays(day), 140, 90));
+            }
+
+            // When
+            MetricSeries series = MetricSeries.of(metrics);
+
+            // Then - exactly the threshold, so >= rules fire
+            assertEquals(sugar, series.averageOfLast(MetricType.BLOOD_SUGAR, 3));
+            assertEquals(140.0, series.averageOfLast(MetricType.BLOOD_PRESSURE, 3));
+            assertEquals(90.0, series.averageDiastolicOfLast(3));
+            assertEquals(sugar, series.averageSince(MetricType.BLOOD_SUGAR, now.minusDays(2)));
+        }
+    }
+
+    @Test
+    @DisplayName("Readings at the same time should come back latest-first in input order")
+    void testEqualTimes() {
+        // Given
+        MetricSeries series = MetricSeries.of(List.of(sugar(now, 100), sugar(now, 200), sugar(now, 300)));
+
+        // When / Then - same order a stable newest-first sort of the list gives
+        assertEquals(100, series.latest(MetricType.BLOOD_SUGAR, 0));
+        assertEquals(200, series.latest(MetricType.BLOOD_SUGAR, 1));
+        assertEquals(300, series.latest(MetricType.BLOOD_SUGAR, 2));
+    }
+
+    private HealthMetric bloodPressure(LocalDateTime measuredAt, double systolic, Integer diastolic) {
+        return HealthMetric.builder()
+                .metricType(MetricType.BLOOD_PRESSURE)
+                .systolic(systolic)
+                .diastolic(diastolic != null ? diastolic.doubleValue() : null)
+                .measuredAt(measuredAt)
+                .build();
+    }
+
+    private HealthMetric sugar(LocalDateTime measuredAt, Integer value) {
+        return HealthMetric.builder()
+                .metricType(MetricType.BLOOD_SUGAR)
+                .value(value != null ? value.doubleValue() : null)
+                .measuredAt(measuredAt)
+                .build();
+    }
+}
@@ -0,0 +1,102 @@
+package com.healthtracker.dss.engine;
+
+import com.healthtracker.dss.rules.BloodPressureRule;
+import com.healthtracker.model.HealthMetric;
+import com.healthtracker.model.MetricType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for MetricWindow
+ */
+class MetricWindowTest {
+
+    private final LocalDateTime now = LocalDateTime.now();
+
+    @Test
+    @DisplayName("Should keep the latest readings in time order whatever the insertion order")
+    void testAdd_KeepsLatestInOrder() {
+        // Given
+        Random random = new Random(7);
+        MetricWindow window = new MetricWindow(MetricType.HEART_RATE, 5);
+        List<HealthMetric> all = new ArrayList<>();
+
+        for (int i = 0; i < 200; i++) {
+            HealthMetric metric = reading("m" + i, now.minusMinutes(random.nextInt(10_000)), 60 + random.nextInt(60));
+            all.add(metric);
+
+            // When
+            window.add(metric);
+
+            // Then - same as indexing the whole history and taking the latest 5
+            MetricSeries expected = MetricSeries.of(all);
+            MetricSeries actual = window.toSeries();
+            int n = Math.min(5, all.size());
+            assertEquals(n, actual.count(MetricType.HEART_RATE));
+            for (int k = 0; k < n; k++) {
+                assertEquals(expected.latestTime(MetricType.HEART_RATE, k), actual.latestTime(MetricType.HEART_RATE, k));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should ignore duplicates, incomplete readings and other types")
+    void testAdd_IgnoresInvalidReadings() {
+        MetricWindow window = MetricWindow.of(MetricType.BLOOD_PRESSURE, 3, List.of(
+                bloodPressure("a", now.minusHours(3), 120, 80),
+                bloodPressure("b", now.minusHours(2), 125, 82)));
+
+        assertFalse(window.add(bloodPressure("b", now.minusHours(2), 125, 82)));
+        assertFalse(window.add(HealthMetric.builder().id("c").metricType(MetricType.BLOOD_PRESSURE)
+                .systolic(130.0).measuredAt(now).build()));
+        assertFalse(window.add(reading("d", now, 70)));
+        assertEquals(2, window.size());
+
+        // A full window ignores readings older than all of it
+        assertTrue(window.add(bloodPressure("e", now.minusHours(1), 130, 85)));
+        assertFalse(window.add(bloodPressure("f", now.minusHours(10), 150, 95)));
+        assertEquals(3, window.size());
+    }
+
+    @Test
+    @DisplayName("Windowed rule should fire on the reading that completes the window")
+    void testToSeries_WindowedRuleFires() {
+        // Given
+        BloodPressureRule rule = new BloodPressureRule();
+        MetricWindow window = new MetricWindow(MetricType.BLOOD_PRESSURE, 4);
+        window.add(bloodPressure("a", now.minusDays(3), 118, 76));
+        window.add(bloodPressure("b", now.minusDays(2), 150, 95));
+        window.add(bloodPressure("c", now.minusDays(1), 155, 96));
+        assertFalse(rule.evaluate(window.toSeries()).isFired());
+
+        // When - the third high reading in a row
+        window.add(bloodPressure("d", now, 160, 100));
+
+        // Then
+        RuleOutcome outcome = rule.evaluate(window.toSeries());
+        assertTrue(outcome.isFired());
+        assertEquals(160, window.toSeries().latest(MetricType.BLOOD_PRESSURE, 0));
+        assertEquals(100, window.toSeries().latestDiastolic(0));
+    }
+
+    private HealthMetric reading(String id, LocalDateTime measuredAt, double value) {
+        return HealthMetric.builder().id(id).metricType(MetricType.HEART_RATE).value(value).measuredAt(measuredAt).build();
+    }
+
+    private HealthMetric bloodPressure(String id, LocalDateTime measuredAt, double systolic, double diastolic) {
+        return HealthMetric.builder()
+                .id(id)
+                .metricType(MetricType.BLOOD_PRESSURE)
+                .systolic(systolic)
+                .diastolic(diastolic)
+                .measuredAt(measuredAt)
+                .build();
+    }
+}
@@ -0,0 +1,146 @@
+package com.healthtracker.dss.engine;
+
+import com.healthtracker.dss.rules.BloodSugarRule;
+import com.healthtracker.model.HealthMetric;
+import com.healthtracker.model.MetricType;
+import com.healthtracker.model.RuleDefinition;
+import com.healthtracker.model.RuleThreshold;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.context.support.StaticMessageSource;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for RuleCompiler
+ */
+class RuleCompilerTest {
+
+    private final LocalDateTime now = LocalDateTime.now();
+
+    private final StaticMessageSource messageSource = new StaticMessageSource();
+
+    private final RuleCompiler compiler = new RuleCompiler(messageSource);
+
+    @Test
+    @DisplayName("Compiled blood sugar definition should behave like BloodSugarRule")
+    void testCompile_SameAsHandwrittenRule() {
+        // Given - the thresholds of BloodSugarRule as a definition
+        Rule<MetricSeries> compiled = compiler.compile(RuleDefinition.builder()
+                .name("BLOOD_SUGAR_EVALUATION")
+                .metricType(MetricType.BLOOD_SUGAR)
+                .aggregate(RuleDefinition.Aggregate.AVERAGE)
+                .windowReadings(3)
+                .minReadings(2)
+                .operator(RuleDefinition.Operator.GTE)
+                .thresholds(List.of(
+                        threshold(200, "CRITICAL", "rule.bloodsugar.critical"),
+                        threshold(126, "WARNING", "rule.bloodsugar.high"),
+                        threshold(100, "WARNING", "rule.bloodsugar.prediabetes")))
+                .build());
+        BloodSugarRule handwritten = new BloodSugarRule();
+        Random random = new Random(11);
+
+        for (int user = 0; user < 500; user++) {
+            List<HealthMetric> metrics = new ArrayList<>();
+            for (int i = random.nextInt(6); i > 0; i--) {
+                metrics.add(reading(MetricType.BLOOD_SUGAR, now.minusHours(random.nextInt(1000)), 80 + random.nextInt(160)));
+            }
+            MetricSeries series = MetricSeries.of(metrics);
+
+            // When
+            RuleOutcome expected = handwritten.evaluate(series);
+            RuleOutcome actual = compiled.evaluate(series);
+
+            // Then
+            assertEquals(expected.isFired(), actual.isFired());
+            assertEquals(expected.getSeverity(), actual.getSeverity());
+        }
+        assertEquals("BLOOD_SUGAR_EVALUATION", compiled.getRuleName());
+    }
+
+    @Test
+    @DisplayName("Should aggregate over a day window and resolve the message with its arguments")
+    void testCompile_DayWindowAndMessage() {
+        // Given - lowest diastolic of the last 7 days below 60
+        messageSource.addMessage("rule.diastolic.low", Locale.ENGLISH, "Lowest {0,number,#} below {1,number,#} ({2} readings)");
+        Rule<MetricSeries> rule = compiler.compile(RuleDefinition.builder()
+                .name("LOW_DIASTOLIC")
+                .metricType(MetricType.BLOOD_PRESSURE)
+                .field(RuleDefinition.Field.DIASTOLIC)
+                .aggregate(RuleDefinition.Aggregate.MIN)
+                .windowDays(7)
+                .operator(RuleDefinition.Operator.LT)
+                .thresholds(List.of(threshold(60, "WARNING", "rule.diastolic.low")))
+                .build());
+
+        MetricSeries recentLow = MetricSeries.of(List.of(
+                bloodPressure(now.minusDays(1), 120, 75),
+                bloodPressure(now.minusDays(3), 110, 55),
+                bloodPressure(now.minusDays(30), 100, 40)));
+        MetricSeries onlyOldLow = MetricSeries.of(List.of(
+                bloodPressure(now.minusDays(1), 120, 75),
+                bloodPressure(now.minusDays(30), 100, 40)));
+
+        // When
+        LocaleContextHolder.setLocale(Locale.ENGLISH);
+        RuleOutcome fired;
+        try {
+            fired = rule.evaluate(recentLow);
+        } finally {
+            LocaleContextHolder.resetLocaleContext();
+        }
+
+        // Then - readings outside the window are ignored
+        assertTrue(fired.isFired());
+        assertEquals("WARNING", fired.getSeverity());
+        assertEquals("Lowest 55 below 60 (2 readings)", fired.getRecommendation());
+        assertFalse(rule.evaluate(onlyOldLow).isFired());
+        assertFalse(rule.evaluate(MetricSeries.empty()).isFired());
+    }
+
+    @Test
+    @DisplayName("Should reject invalid definitions")
+    void testValidate_InvalidDefinitions() {
+        assertDoesNotThrow(() -> compiler.validate(heartRateHigh().build()));
+
+        assertThrows(IllegalArgumentException.class, () -> compiler.compile(heartRateHigh().windowReadings(null).build()));
+        assertThrows(IllegalArgumentException.class, () -> compiler.compile(heartRateHigh().windowDays(7).build()));
+        assertThrows(IllegalArgumentException.class, () -> compiler.compile(heartRateHigh().field(RuleDefinition.Field.DIASTOLIC).build()));
+        assertThrows(IllegalArgumentException.class, () -> compiler.compile(heartRateHigh().minReadings(6).build()));
+        assertThrows(IllegalArgumentException.class, () -> compiler.compile(heartRateHigh().thresholds(List.of()).build()));
+        assertThrows(IllegalArgumentException.class, () -> compiler.compile(heartRateHigh()
+                .thresholds(List.of(threshold(100, "SEVERE", "rule.heartrate.high"))).build()));
+    }
+
+    private RuleDefinition.RuleDefinitionBuilder heartRateHigh() {
+        return RuleDefinition.builder()
+                .name("HEART_RATE_HIGH")
+                .metricType(MetricType.HEART_RATE)
+                .aggregate(RuleDefinition.Aggregate.AVERAGE)
+                .windowReadings(5)
+                .operator(RuleDefinition.Operator.GT)
+                .thresholds(List.of(threshold(100, "WARNING", "rule.heartrate.high")));
+    }
+
+    private RuleThreshold threshold(double value, String severity, String messageKey) {
+        return RuleThreshold.builder().value(value).severity(severity).messageKey(messageKey).build();
+    }
+
+    private HealthMetric reading(MetricType type, LocalDateTime measuredAt, double value) {
+        return HealthMetric.builder().metricType(type).value(value).measuredAt(measuredAt).build();
+    }
+
+    private HealthMetric bloodPressure(LocalDateTime measuredAt, double systolic, double diastolic) {
+        return HealthMetric.builder()
+                .metricType(MetricType.BLOOD_PRESSURE)
+                .systolic(systolic)
+                .diastolic(diastolic)
+                .measuredAt(measuredAt)
+                .build();
+    }
+}
@@ -3,8 +3,11 @@ package com.healthtracker.dss.engine;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -17,7 +20,7 @@ class RuleEngineTest {
     @DisplayName("Should evaluate rules and return results")
     void testEvaluateRules() {
         // Given
-        RuleEngine engine = new RuleEngine();
+        RuleEngine engine = new RuleEngine(8, 250, RuleMetrics.disabled(), RuleOutcomeCache.disabled());
         TestRule rule1 = new TestRule(true, "Rule 1 recommendation", "WARNING", "RULE_1");
         TestRule rule2 = new TestRule(false, "Rule 2 recommendation", "INFO", "RULE_2");
         TestRule rule3 = new TestRule(true, "Rule 3 recommendation", "CRITICAL", "RULE_3");
@@ -40,7 +43,7 @@ class RuleEngineTest {
     @DisplayName("Should handle empty rules list")
     void testEvaluateRules_EmptyList() {
         // Given
-        RuleEngine engine = new RuleEngine();
+        RuleEngine engine = new RuleEngine(8, 250, RuleMetrics.disabled(), RuleOutcomeCache.disabled());
         List<Rule<String>> rules = List.of();
         
         // When
@@ -52,6 +55,163 @@ class RuleEngineTest {
         assertFalse(result.hasResults());
     }
     
+    @Test
+    @DisplayName("Should keep outcomes separate when one rule instance is evaluated concurrently")
+    void testEvaluateRules_Concurrent() {
+        // Given - fires with the input itself as recommendation
+        RuleEngine engine = new RuleEngine(8, 250, RuleMetrics.disabled(), RuleOutcomeCache.disabled());
+        Rule<String> echoRule = new Rule<>() {
+            @Override
+            public RuleOutcome evaluate(String input) {
+                return RuleOutcome.fired("WARNING", input);
+            }
+            
+            @Override
+            public String getRuleName() {
+                return "ECHO";
+            }
+        };
+        List<Rule<String>> rules = List.of(echoRule);
+        
+        // When / Then
+        IntStream.range(0, 10_000).parallel().forEach(i -> {
+            RuleResult result = engine.evaluateRules("input " + i, rules);
+            assertEquals(List.of("input " + i), result.getRecommendations());
+        });
+    }
+    
+    @Test
+    @DisplayName("Parallel evaluation should merge outcomes like sequential evaluation")
+    void testEvaluateRules_ParallelSameAsSequential() {
+        // Given
+        List<Rule<String>> rules = new ArrayList<>();
+        String[] severities = { "INFO", "WARNING", "CRITICAL" };
+        for (int i = 0; i < 20; i++) {
+            rules.add(new TestRule(i % 3 != 0, "Recommendation " + i, severities[i % 3], "RULE_" + i));
+        }
+        
+        // When
+        RuleResult sequential = new RuleEngine(Integer.MAX_VALUE, 1000, RuleMetrics.disabled(), RuleOutcomeCache.disabled()).evaluateRules("input", rules);
+        RuleResult parallel = new RuleEngine(1, 1000, RuleMetrics.disabled(), RuleOutcomeCache.disabled()).evaluateRules("input", rules);
+        
+        // Then
+        assertEquals(sequential, parallel);
+        assertEquals("RULE_1", parallel.getFiredRuleNames().get(0));
+        assertEquals("CRITICAL", parallel.getHighestSeverity());
+    }
+    
+    @Test
+    @DisplayName("Parallel evaluation should take as long as the slowest rule and skip rules that time out")
+    void testEvaluateRules_ParallelTimeout() {
+        // Given - eight rules of 100 ms and one that never finishes in time
+        List<Rule<String>> rules = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            rules.add(new SlowRule("SLOW_" + i, 100));
+        }
+        rules.add(new SlowRule("STUCK", 10_000));
+        RuleEngine engine = new RuleEngine(2, 500, RuleMetrics.disabled(), RuleOutcomeCache.disabled());
+        
+        // When
+        long start = System.nanoTime();
+        RuleResult result = engine.evaluateRules("input", rules);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        
+        // Then
+        assertEquals(8, result.getFiredRuleNames().size());
+        assertFalse(result.getFiredRuleNames().contains("STUCK"));
+        assertTrue(elapsedMs < 2_000, "took " + elapsedMs + " ms");
+    }
+    
+    @Test
+    @DisplayName("Worst severity mode should stop at the first CRITICAL outcome or when nothing can raise the severity")
+    void testEvaluateWorstSeverity_ShortCircuit() {
+        // Given
+        RuleEngine engine = new RuleEngine(8, 250, RuleMetrics.disabled(), RuleOutcomeCache.disabled());
+        CountingRule warningOnly = new CountingRule("WARNING_ONLY", "WARNING", "WARNING", 1);
+        CountingRule cheapCritical = new CountingRule("CHEAP_CRITICAL", "CRITICAL", "CRITICAL", 1);
+        CountingRule costlyCritical = new CountingRule("COSTLY_CRITICAL", "CRITICAL", "CRITICAL", 50);
+        CountingRule info = new CountingRule("INFO", null, "INFO", 1);
+        List<Rule<String>> rules = List.of(warningOnly, costlyCritical, info, cheapCritical);
+        
+        // When
+        RuleResult result = engine.evaluateWorstSeverity("input", rules);
+        
+        // Then - only the cheapest CRITICAL rule ran
+        assertEquals("CRITICAL", result.getHighestSeverity());
+        assertEquals(List.of("CHEAP_CRITICAL"), result.getFiredRuleNames());
+        assertEquals(1, cheapCritical.calls);
+        assertEquals(0, costlyCritical.calls + warningOnly.calls + info.calls);
+        assertEquals(engine.evaluateRules("input", rules).getHighestSeverity(), result.getHighestSeverity());
+        
+        // Given - a WARNING, and rules that cannot do better
+        CountingRule quietCritical = new CountingRule("QUIET_CRITICAL", null, "CRITICAL", 1);
+        CountingRule otherWarning = new CountingRule("OTHER_WARNING", "WARNING", "WARNING", 5);
+        RuleResult warning = engine.evaluateWorstSeverity("input",
+                RuleEngine.byPriority(List.of(otherWarning, info, warningOnly, quietCritical)));
+        
+        // Then - the first WARNING settles it
+        assertEquals("WARNING", warning.getHighestSeverity());
+        assertEquals(List.of("WARNING_ONLY"), warning.getFiredRuleNames());
+        assertEquals(0, otherWarning.calls);
+        assertEquals(1, quietCritical.calls);
+    }
+    
+    // Rule with a declared max severity and cost, counting its evaluations
+    static class CountingRule implements Rule<String> {
+        private final String name;
+        private final String firedSeverity;
+        private final String maxSeverity;
+        private final int cost;
+        int calls;
+        
+        CountingRule(String name, String firedSeverity, String maxSeverity, int cost) {
+            this.name = name;
+            this.firedSeverity = firedSeverity;
+            this.maxSeverity = maxSeverity;
+            this.cost = cost;
+        }
+        
+        @Override
+        public RuleOutcome evaluate(String input) {
+            calls++;
+            return firedSeverity != null ? RuleOutcome.fired(firedSeverity, name) : RuleOutcome.notFired();
+        }
+        
+        @Override
+        public String getRuleName() {
+            return name;
+        }
+        
+        @Override
+        public String getMaxSeverity() {
+            return maxSeverity;
+        }
+        
+        @Override
+        public int getEstimatedCost() {
+            return cost;
+        }
+    }
+    
+    // Rule that sleeps before firing
+    record SlowRule(String name, long sleepMs) implements Rule<String> {
+        @Override
+        public RuleOutcome evaluate(String input) {
+            try {
+                Thread.sleep(sleepMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return RuleOutcome.notFired();
+            }
+            return RuleOutcome.fired("WARNING", name);
+        }
+        
+        @Override
+        public String getRuleName() {
+            return name;
+        }
+    }
+    
     // Test implementation of Rule interface
     static class TestRule implements Rule<String> {
         private final boolean shouldFire;
@@ -67,18 +227,8 @@ class RuleEngineTest {
         }
         
         @Override
-        public boolean evaluate(String input) {
-            return shouldFire;
-        }
-        
-        @Override
-        public String getRecommendation() {
-            return recommendation;
-        }
-        
-        @Override
-        public String getSeverity() {
-            return severity;
+        public RuleOutcome evaluate(String input) {
+            return shouldFire ? RuleOutcome.fired(severity, recommendation) : RuleOutcome.notFired();
         }
         
         @Override
@@ -0,0 +1,111 @@
+package com.healthtracker.dss.engine;
+
+import com.healthtracker.model.HealthMetric;
+import com.healthtracker.model.MetricType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for RuleMetrics, recorded through RuleEngine
+ */
+class RuleMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("Should time each rule and count fired and failed rules by name")
+    void testEvaluateRules_PerRuleMeters() {
+        // Given
+        RuleMetrics metrics = new RuleMetrics(registry, true, 10_000, 1.0, 10);
+        RuleEngine engine = new RuleEngine(Integer.MAX_VALUE, 1000, metrics, RuleOutcomeCache.disabled());
+        Rule<MetricSeries> fires = new FixedRule("FIRES", true);
+        Rule<MetricSeries> quiet = new FixedRule("QUIET", false);
+        Rule<MetricSeries> broken = new Rule<>() {
+            @Override
+            public RuleOutcome evaluate(MetricSeries input) {
+                throw new IllegalStateException("broken");
+            }
+
+            @Override
+            public String getRuleName() {
+                return "BROKEN";
+            }
+        };
+        MetricSeries series = MetricSeries.of(List.of(
+                HealthMetric.builder().metricType(MetricType.HEART_RATE).value(70.0).measuredAt(LocalDateTime.now()).build(),
+                HealthMetric.builder().metricType(MetricType.WEIGHT).value(60.0).measuredAt(LocalDateTime.now()).build()));
+
+        // When
+        engine.evaluateRules(series, List.of(fires, quiet, broken));
+        engine.evaluateRules(series, List.of(fires, quiet, broken));
+
+        // Then
+        assertEquals(2, registry.get("dss.rules.rule.evaluation").tag("rule", "QUIET").timer().count());
+        assertEquals(2, registry.get("dss.rules.rule.fired").tag("rule", "FIRES").counter().count());
+        assertEquals(0, registry.get("dss.rules.rule.fired").tag("rule", "QUIET").counter().count());
+        assertEquals(2, registry.get("dss.rules.rule.errors").tag("rule", "BROKEN").counter().count());
+        assertEquals(2, registry.get("dss.rules.evaluation").timer().count());
+        assertEquals(6, registry.get("dss.rules.evaluation.rules").summary().totalAmount());
+        assertEquals(4, registry.get("dss.rules.evaluation.readings").summary().totalAmount());
+        assertTrue(metrics.getSlowTraces().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should trace slow evaluations with every rule, slowest first")
+    void testEvaluateRules_SlowTrace() {
+        // Given - parallel evaluation where one rule times out
+        RuleMetrics metrics = new RuleMetrics(registry, true, 50, 1.0, 1);
+        RuleEngine engine = new RuleEngine(2, 300, metrics, RuleOutcomeCache.disabled());
+        List<Rule<String>> rules = new ArrayList<>();
+        rules.add(new RuleEngineTest.SlowRule("FAST", 0));
+        rules.add(new RuleEngineTest.SlowRule("SLOW", 100));
+        rules.add(new RuleEngineTest.SlowRule("STUCK", 10_000));
+
+        // When
+        engine.evaluateRules("input", rules);
+        engine.evaluateRules("input", rules);
+
+        // Then - only the latest trace is kept
+        assertEquals(2, registry.get("dss.rules.evaluation.slow").counter().count());
+        assertEquals(2, registry.get("dss.rules.rule.errors").tag("rule", "STUCK").counter().count());
+        List<RuleTrace> traces = metrics.getSlowTraces();
+        assertEquals(1, traces.size());
+        RuleTrace trace = traces.get(0);
+        assertEquals(-1, trace.readings());
+        assertEquals(List.of("STUCK", "SLOW", "FAST"), trace.steps().stream().map(RuleTrace.Step::rule).toList());
+        assertEquals("TIMED_OUT", trace.steps().get(0).status());
+        assertEquals("FIRED", trace.steps().get(1).status());
+        assertTrue(trace.steps().get(1).micros() >= 100_000);
+    }
+
+    @Test
+    @DisplayName("Disabled metrics should record nothing")
+    void testEvaluateRules_Disabled() {
+        RuleEngine engine = new RuleEngine(Integer.MAX_VALUE, 1000, RuleMetrics.disabled(), RuleOutcomeCache.disabled());
+
+        RuleResult result = engine.evaluateRules(MetricSeries.empty(), List.of(new FixedRule("FIRES", true)));
+
+        assertTrue(result.hasResults());
+        assertTrue(RuleMetrics.disabled().getSlowTraces().isEmpty());
+    }
+
+    // Rule that fires (or not) whatever the metrics
+    record FixedRule(String name, boolean fires) implements Rule<MetricSeries> {
+        @Override
+        public RuleOutcome evaluate(MetricSeries input) {
+            return fires ? RuleOutcome.fired("WARNING", name) : RuleOutcome.notFired();
+        }
+
+        @Override
+        public String getRuleName() {
+            return name;
+        }
+    }
+}
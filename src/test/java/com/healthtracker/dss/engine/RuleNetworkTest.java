@@ -0,0 +1,133 @@
+package com.healthtracker.dss.engine;
+
+import com.healthtracker.model.HealthMetric;
+import com.healthtracker.model.MetricType;
+import com.healthtracker.model.RuleDefinition;
+import com.healthtracker.model.RuleThreshold;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.StaticMessageSource;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for RuleNetwork
+ */
+class RuleNetworkTest {
+
+    private final LocalDateTime now = LocalDateTime.now();
+
+    private final RuleCompiler compiler = new RuleCompiler(new StaticMessageSource());
+
+    @Test
+    @DisplayName("Should share identical windows, aggregates and conditions between rules")
+    void testCompileNetwork_SharesNodes() {
+        // Given - 40 rules over 2 aggregates and 3 thresholds (2 severity levels each)
+        List<RuleDefinition> definitions = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            definitions.add(definition("RULE_" + i, i % 2 == 0 ? RuleDefinition.Aggregate.AVERAGE : RuleDefinition.Aggregate.MAX,
+                    140 + 10 * (i % 3)));
+        }
+
+        // When
+        RuleNetwork network = compiler.compileNetwork(definitions);
+
+        // Then
+        assertEquals(40, network.getRules().size());
+        assertEquals(1, network.getWindowCount());
+        assertEquals(2, network.getAggregateCount());
+        assertEquals(12, network.getConditionCount());
+    }
+
+    @Test
+    @DisplayName("Network evaluation should match evaluating each rule on its own")
+    void testEvaluate_SameAsIndependentRules() {
+        // Given
+        Random random = new Random(5);
+        RuleDefinition.Aggregate[] aggregates = RuleDefinition.Aggregate.values();
+        List<RuleDefinition> definitions = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            definitions.add(definition("RULE_" + i, aggregates[random.nextInt(aggregates.length)],
+                    110 + 10 * random.nextInt(6)));
+        }
+        RuleNetwork network = compiler.compileNetwork(definitions);
+
+        for (int user = 0; user < 50; user++) {
+            List<HealthMetric> metrics = new ArrayList<>();
+            for (int i = random.nextInt(8); i > 0; i--) {
+                metrics.add(HealthMetric.builder()
+                        .metricType(MetricType.BLOOD_PRESSURE)
+                        .systolic(100.0 + random.nextInt(80))
+                        .diastolic(60.0 + random.nextInt(40))
+                        .measuredAt(now.minusHours(random.nextInt(500)))
+                        .build());
+            }
+            MetricSeries series = MetricSeries.of(metrics);
+
+            // When
+            List<RuleOutcome> shared = network.evaluate(series);
+
+            // Then
+            for (int i = 0; i < definitions.size(); i++) {
+                assertEquals(network.getRules().get(i).evaluate(series), shared.get(i));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("RuleEngine should merge network outcomes after the independent rules")
+    void testEvaluateRules_WithNetwork() {
+        // Given
+        RuleNetwork network = compiler.compileNetwork(List.of(
+                definition("NETWORK_HIGH", RuleDefinition.Aggregate.LATEST, 140),
+                definition("NETWORK_VERY_HIGH", RuleDefinition.Aggregate.LATEST, 180)));
+        Rule<MetricSeries> builtIn = new Rule<>() {
+            @Override
+            public RuleOutcome evaluate(MetricSeries input) {
+                return RuleOutcome.fired("INFO", "built-in");
+            }
+
+            @Override
+            public String getRuleName() {
+                return "BUILT_IN";
+            }
+        };
+        MetricSeries series = MetricSeries.of(List.of(
+                HealthMetric.builder()
+                        .metricType(MetricType.BLOOD_PRESSURE)
+                        .systolic(150.0)
+                        .diastolic(90.0)
+                        .measuredAt(now)
+                        .build(),
+                HealthMetric.builder()
+                        .metricType(MetricType.BLOOD_PRESSURE)
+                        .systolic(200.0)
+                        .diastolic(110.0)
+                        .measuredAt(now.minusDays(1))
+                        .build()));
+
+        // When
+        RuleResult result = new RuleEngine(8, 250, RuleMetrics.disabled(), RuleOutcomeCache.disabled()).evaluateRules(series, List.of(builtIn), network);
+
+        // Then
+        assertEquals(List.of("BUILT_IN", "NETWORK_HIGH"), result.getFiredRuleNames());
+        assertEquals("WARNING", result.getHighestSeverity());
+    }
+
+    private RuleDefinition definition(String name, RuleDefinition.Aggregate aggregate, double threshold) {
+        return RuleDefinition.builder()
+                .name(name)
+                .metricType(MetricType.BLOOD_PRESSURE)
+                .aggregate(aggregate)
+                .windowReadings(3)
+                .minReadings(2)
+                .operator(RuleDefinition.Operator.GTE)
+                .thresholds(List.of(
+                        RuleThreshold.builder().value(threshold + 30).severity("CRITICAL").messageKey(name + ".critical").build(),
+                        RuleThreshold.builder().value(threshold).severity("WARNING").messageKey(name + ".high").build()))
+                .build();
+    }
+}
@@ -0,0 +1,117 @@
+package com.healthtracker.dss.engine;
+
+import com.healthtracker.dss.rules.BMIRule;
+import com.healthtracker.model.HealthProfile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.i18n.LocaleContextHolder;
+
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for RuleOutcomeCache
+ */
+class RuleOutcomeCacheTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void tearDown() {
+        LocaleContextHolder.resetLocaleContext();
+    }
+
+    @Test
+    @DisplayName("Should reuse the outcome of the same inputs, per rule version and locale")
+    void testEvaluate_MemoizedByDigestVersionAndLocale() {
+        // Given
+        RuleOutcomeCache cache = new RuleOutcomeCache(registry, true, 1000);
+        CountingBmiRule rule = new CountingBmiRule();
+        HealthProfile obese = HealthProfile.builder().bmi(36.0).build();
+
+        // When - same BMI twice, then another profile object with the same BMI
+        RuleOutcome first = cache.evaluate(rule, obese);
+        RuleOutcome second = cache.evaluate(rule, obese);
+        RuleOutcome sameBmi = cache.evaluate(rule, HealthProfile.builder().bmi(36.0).build());
+
+        // Then
+        assertSame(first, second);
+        assertSame(first, sameBmi);
+        assertEquals(1, rule.evaluations);
+        assertEquals(2, registry.get("dss.rules.memo.hits").counter().count());
+
+        // A new version or another locale evaluates again
+        rule.version = "2";
+        cache.evaluate(rule, obese);
+        LocaleContextHolder.setLocale(Locale.ENGLISH);
+        cache.evaluate(rule, obese);
+        assertEquals(3, rule.evaluations);
+
+        // Another BMI too
+        cache.evaluate(rule, HealthProfile.builder().bmi(26.0).build());
+        assertEquals(4, rule.evaluations);
+        assertEquals(4, cache.size());
+    }
+
+    @Test
+    @DisplayName("Should never memoize rules without a digest, nor when disabled")
+    void testEvaluate_NotMemoized() {
+        RuleOutcomeCache cache = new RuleOutcomeCache(registry, true, 1000);
+        Rule<MetricSeries> plain = new Rule<>() {
+            @Override
+            public RuleOutcome evaluate(MetricSeries input) {
+                return RuleOutcome.fired("INFO", "plain");
+            }
+
+            @Override
+            public String getRuleName() {
+                return "PLAIN";
+            }
+        };
+        cache.evaluate(plain, MetricSeries.empty());
+        assertEquals(0, cache.size());
+
+        CountingBmiRule rule = new CountingBmiRule();
+        HealthProfile obese = HealthProfile.builder().bmi(36.0).build();
+        RuleOutcomeCache.disabled().evaluate(rule, obese);
+        RuleOutcomeCache.disabled().evaluate(rule, obese);
+        assertEquals(2, rule.evaluations);
+    }
+
+    @Test
+    @DisplayName("Should stay bounded, evicting the least recently used outcomes")
+    void testEvaluate_Bounded() {
+        // 16 segments of 1 entry
+        RuleOutcomeCache cache = new RuleOutcomeCache(registry, true, 16);
+        BMIRule rule = new BMIRule();
+
+        for (int i = 0; i < 500; i++) {
+            cache.evaluate(rule, HealthProfile.builder().bmi(30.0 + i / 100.0).build());
+        }
+
+        assertTrue(cache.size() <= 16);
+        assertEquals(500, registry.get("dss.rules.memo.misses").counter().count());
+    }
+
+    /**
+     * BMI rule counting its evaluations, with a settable version
+     */
+    private static final class CountingBmiRule extends BMIRule {
+        private int evaluations;
+        private String version = "1";
+
+        @Override
+        public RuleOutcome evaluate(HealthProfile profile) {
+            evaluations++;
+            return super.evaluate(profile);
+        }
+
+        @Override
+        public String getVersion() {
+            return version;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.healthtracker.dss.knowledge;
+
+import com.healthtracker.model.SymptomDiseaseMapping;
+import com.healthtracker.model.SymptomPattern;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SymptomDiseaseIndex
+ */
+class SymptomDiseaseIndexTest {
+
+    @Test
+    @DisplayName("Should return each disease containing any of the symptoms exactly once")
+    void testFindCandidates() {
+        // Given
+        SymptomDiseaseMapping migraine = createMapping("Đau nửa đầu",
+                createPattern("Đau đầu", 30, true),
+                createPattern("Buồn nôn", 15, false));
+        SymptomDiseaseMapping flu = createMapping("Cúm",
+                createPattern("Sốt", 30, true),
+                createPattern("Đau đầu", 10, false));
+        SymptomDiseaseMapping gastritis = createMapping("Viêm dạ dày",
+                createPattern("Đau bụng", 30, true));
+
+        SymptomDiseaseIndex index = SymptomDiseaseIndex.build(List.of(migraine, flu, gastritis), 1);
+
+        // When
+        List<SymptomDiseaseMapping> candidates = index.findCandidates(List.of("  đau ĐẦU ", "Buồn nôn"));
+
+        // Then
+        assertEquals(List.of(migraine, flu), candidates);
+        assertEquals(3, index.getDiseaseCount());
+        assertEquals(4, index.getVocabularySize());
+        assertEquals(1, index.getVersion());
+    }
+
+    @Test
+    @DisplayName("Should return no candidates for unknown symptoms")
+    void testFindCandidates_Unknown() {
+        // Given
+        SymptomDiseaseIndex index = SymptomDiseaseIndex.build(List.of(
+                createMapping("Cúm", createPattern("Sốt", 30, true))), 1);
+
+        // When / Then
+        assertTrue(index.findCandidates(List.of("Ho")).isEmpty());
+        assertEquals(0, index.postingsOf("ho").length);
+    }
+
+    @Test
+    @DisplayName("Compiled scores should be identical to pattern-by-pattern scores")
+    void testScore_IdenticalToReference() {
+        // Given - random knowledge base with repeated and critical symptoms
+        Random random = new Random(42);
+        List<String> vocabulary = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            vocabulary.add("Triệu chứng " + i);
+        }
+
+        List<SymptomDiseaseMapping> mappings = new ArrayList<>();
+        for (int d = 0; d < 300; d++) {
+            SymptomPattern[] patterns = new SymptomPattern[1 + random.nextInt(6)];
+            for (int p = 0; p < patterns.length; p++) {
+                patterns[p] = createPattern(vocabulary.get(random.nextInt(vocabulary.size())),
+                        random.nextInt(50), random.nextInt(5) == 0);
+            }
+            mappings.add(createMapping("Bệnh " + d, patterns));
+        }
+
+        SymptomDiseaseIndex index = SymptomDiseaseIndex.build(mappings, 1);
+
+        for (int round = 0; round < 200; round++) {
+            List<String> userSymptoms = new ArrayList<>();
+            for (int i = 0; i < 1 + random.nextInt(8); i++) {
+                userSymptoms.add(vocabulary.get(random.nextInt(vocabulary.size())));
+            }
+            Set<String> userSymptomSet = userSymptoms.stream()
+                    .map(s -> s.toLowerCase().trim())
+                    .collect(Collectors.toSet());
+            long[] encoded = index.encode(userSymptoms);
+
+            // When / Then
+            for (int d = 0; d < mappings.size(); d++) {
+                assertEquals(referenceScore(userSymptomSet, mappings.get(d)), index.score(d, encoded));
+            }
+        }
+    }
+
+    /**
+     * Original pattern-by-pattern matching algorithm
+     */
+    private double referenceScore(Set<String> userSymptoms, SymptomDiseaseMapping diseaseMapping) {
+        List<SymptomPattern> patterns = diseaseMapping.getSymptomPatterns();
+
+        double totalWeight = patterns.stream()
+                .mapToInt(SymptomPattern::getWeight)
+                .sum();
+
+        if (totalWeight == 0) {
+            return 0;
+        }
+
+        double matchedSymptomWeight = 0;
+
+        for (SymptomPattern pattern : patterns) {
+            boolean matched = userSymptoms.contains(pattern.getSymptomName().toLowerCase().trim());
+
+            if (matched) {
+                matchedSymptomWeight += pattern.getWeight();
+                if (Boolean.TRUE.equals(pattern.getIsCritical())) {
+                    matchedSymptomWeight += pattern.getWeight() * 0.5;
+                }
+            } else if (Boolean.TRUE.equals(pattern.getIsCritical())) {
+                return 0;
+            }
+        }
+
+        return matchedSymptomWeight / totalWeight;
+    }
+
+    private SymptomDiseaseMapping createMapping(String name, SymptomPattern... patterns) {
+        SymptomDiseaseMapping mapping = new SymptomDiseaseMapping();
+        mapping.setDiseaseName(name);
+        mapping.setSymptomPatterns(Arrays.asList(patterns));
+        return mapping;
+    }
+
+    private SymptomPattern createPattern(String name, int weight, boolean critical) {
+        SymptomPattern pattern = new SymptomPattern();
+        pattern.setSymptomName(name);
+        pattern.setWeight(weight);
+        pattern.setIsCritical(critical);
+        return pattern;
+    }
+}
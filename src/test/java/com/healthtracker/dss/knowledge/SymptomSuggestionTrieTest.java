@@ -0,0 +1,90 @@
+package com.healthtracker.dss.knowledge;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SymptomSuggestionTrie
+ */
+class SymptomSuggestionTrieTest {
+
+    private final SymptomSuggestionTrie trie = SymptomSuggestionTrie.build(Map.of(
+            "Đau đầu", 40L,
+            "Đau bụng", 25L,
+            "Đau lưng", 10L,
+            "dau dau", 5L,
+            "Sốt", 30L,
+            "Sổ mũi", 12L), 3);
+
+    @Test
+    @DisplayName("Should suggest by folded prefix, most frequent first")
+    void testSuggest() {
+        assertEquals(List.of("Đau đầu", "Đau bụng", "Đau lưng"), trie.suggest("dau", 10));
+        assertEquals(List.of("Đau đầu", "Đau bụng"), trie.suggest("ĐAU", 2));
+        assertEquals(List.of("Sốt", "Sổ mũi"), trie.suggest("so", 10));
+        assertEquals(List.of("Sốt"), trie.suggest("sốt", 10));
+    }
+
+    @Test
+    @DisplayName("Should suggest names having a word starting with the prefix")
+    void testSuggest_WordStart() {
+        assertEquals(List.of("Đau bụng"), trie.suggest("bung", 10));
+        assertEquals(List.of("Sổ mũi"), trie.suggest("mu", 10));
+    }
+
+    @Test
+    @DisplayName("Should merge spellings and return nothing for unknown or blank input")
+    void testSuggest_MergedAndEmpty() {
+        assertEquals(5, trie.size());
+        assertEquals(List.of("Đau đầu"), trie.suggest("dau d", 10));
+        assertTrue(trie.suggest("ho", 10).isEmpty());
+        assertTrue(trie.suggest("  ", 10).isEmpty());
+        assertTrue(trie.suggest(null, 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Precomputed suggestions should match a full scan")
+    void testSuggest_SameAsFullScan() {
+        // Given
+        Random random = new Random(11);
+        Map<String, Long> frequencies = new HashMap<>();
+        for (int i = 0; i < 400; i++) {
+            frequencies.put(randomName(random), (long) random.nextInt(100));
+        }
+        SymptomSuggestionTrie randomTrie = SymptomSuggestionTrie.build(frequencies, 5);
+
+        for (int round = 0; round < 500; round++) {
+            String prefix = randomName(random).substring(0, 1 + random.nextInt(2));
+
+            // When / Then
+            assertEquals(fullScan(frequencies, prefix, 5), randomTrie.suggest(prefix, 5), prefix);
+        }
+    }
+
+    private List<String> fullScan(Map<String, Long> frequencies, String prefix, int limit) {
+        return frequencies.keySet().stream()
+                .filter(name -> name.startsWith(prefix) || name.contains(" " + prefix))
+                .sorted(Comparator.<String>comparingLong(frequencies::get).reversed()
+                        .thenComparing(Comparator.naturalOrder()))
+                .limit(limit)
+                .toList();
+    }
+
+    private String randomName(Random random) {
+        StringBuilder name = new StringBuilder();
+        int words = 1 + random.nextInt(2);
+        for (int w = 0; w < words; w++) {
+            if (w > 0) {
+                name.append(' ');
+            }
+            for (int i = 0; i < 2 + random.nextInt(3); i++) {
+                name.append("abc".charAt(random.nextInt(3)));
+            }
+        }
+        return name.toString();
+    }
+}
@@ -0,0 +1,104 @@
+package com.healthtracker.dss.knowledge;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SymptomVocabulary
+ */
+class SymptomVocabularyTest {
+
+    private final SymptomVocabulary vocabulary = SymptomVocabulary.build(Map.of(
+            "đau đầu", 0,
+            "buồn nôn", 1,
+            "sốt", 2,
+            "đau bụng", 3,
+            "khó thở", 4));
+
+    @Test
+    @DisplayName("Should fold diacritics, đ and whitespace")
+    void testFold() {
+        assertEquals("dau dau", SymptomVocabulary.fold("  Đau   ĐẦU "));
+        assertEquals("kho tho", SymptomVocabulary.fold("khó thở"));
+    }
+
+    @Test
+    @DisplayName("Should resolve exact, accent-insensitive and misspelled names")
+    void testResolve() {
+        assertEquals(0, vocabulary.resolve(" ĐAU ĐẦU"));
+        assertEquals(0, vocabulary.resolve("dau dau"));
+        assertEquals(1, vocabulary.resolve("buon non"));
+        assertEquals(3, vocabulary.resolve("dau bunng"));
+        assertEquals(4, vocabulary.resolve("kho tho"));
+    }
+
+    @Test
+    @DisplayName("Should not resolve unknown, short or ambiguous names")
+    void testResolve_Unresolved() {
+        assertEquals(SymptomVocabulary.UNKNOWN, vocabulary.resolve("ho"));
+        assertEquals(SymptomVocabulary.UNKNOWN, vocabulary.resolve("sat"));
+        assertEquals(SymptomVocabulary.UNKNOWN, vocabulary.resolve("chóng mặt"));
+        assertEquals(SymptomVocabulary.UNKNOWN, vocabulary.resolve(null));
+
+        // "dau cai" is one edit away from both "dau tai" and "dau vai"
+        SymptomVocabulary ambiguous = SymptomVocabulary.build(Map.of("đau tai", 0, "đau vai", 1));
+        assertEquals(SymptomVocabulary.UNKNOWN, ambiguous.resolve("dau cai"));
+    }
+
+    @Test
+    @DisplayName("BK-tree search should match a linear scan")
+    void testResolve_SameAsLinearScan() {
+        // Given
+        Random random = new Random(7);
+        Map<String, Integer> symptomIds = new HashMap<>();
+        List<String> folded = new ArrayList<>();
+        while (symptomIds.size() < 500) {
+            String name = randomWord(random, 5 + random.nextInt(8));
+            if (symptomIds.putIfAbsent(name, symptomIds.size()) == null) {
+                folded.add(name);
+            }
+        }
+        SymptomVocabulary randomVocabulary = SymptomVocabulary.build(symptomIds);
+
+        for (int round = 0; round < 2000; round++) {
+            String query = randomWord(random, 5 + random.nextInt(8));
+
+            // When / Then
+            assertEquals(linearScan(folded, symptomIds, query), randomVocabulary.resolve(query), query);
+        }
+    }
+
+    private int linearScan(List<String> names, Map<String, Integer> ids, String query) {
+        if (ids.containsKey(query)) {
+            return ids.get(query);
+        }
+        int maxDistance = SymptomVocabulary.maxDistance(query.length());
+        int best = maxDistance + 1;
+        int bestId = SymptomVocabulary.UNKNOWN;
+        boolean ambiguous = false;
+        for (String name : names) {
+            int distance = SymptomVocabulary.levenshtein(query, name);
+            if (distance < best) {
+                best = distance;
+                bestId = ids.get(name);
+                ambiguous = false;
+            } else if (distance == best && best <= maxDistance) {
+                ambiguous = true;
+            }
+        }
+        return maxDistance == 0 || ambiguous ? SymptomVocabulary.UNKNOWN : bestId;
+    }
+
+    private String randomWord(Random random, int length) {
+        // Small alphabet so near matches are common
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            word.append("abcd".charAt(random.nextInt(4)));
+        }
+        return word.toString();
+    }
+}
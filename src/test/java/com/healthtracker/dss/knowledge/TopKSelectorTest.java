@@ -0,0 +1,114 @@
+package com.healthtracker.dss.knowledge;
+
+import com.healthtracker.model.SymptomDiseaseMapping;
+import com.healthtracker.model.SymptomPattern;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for TopKSelector
+ */
+class TopKSelectorTest {
+
+    @Test
+    @DisplayName("Should keep the k best entries above threshold, best first")
+    void testSelect() {
+        // Given
+        TopKSelector selector = new TopKSelector(3, 0.3);
+
+        // When
+        selector.offer(0, 0.5);
+        selector.offer(1, 0.2);
+        selector.offer(2, 0.9);
+        selector.offer(3, 0.7);
+        selector.offer(4, 0.3);
+        selector.offer(5, 0.6);
+        selector.sortDescending();
+
+        // Then
+        assertEquals(3, selector.size());
+        assertEquals(2, selector.idAt(0));
+        assertEquals(3, selector.idAt(1));
+        assertEquals(5, selector.idAt(2));
+        assertEquals(0.6, selector.scoreAt(2));
+    }
+
+    @Test
+    @DisplayName("Should prefer lower ids on equal scores")
+    void testSelect_Ties() {
+        // Given
+        TopKSelector selector = new TopKSelector(2, 0);
+
+        // When
+        selector.offer(0, 0.5);
+        selector.offer(1, 0.8);
+        selector.offer(2, 0.5);
+        selector.sortDescending();
+
+        // Then
+        assertEquals(1, selector.idAt(0));
+        assertEquals(0, selector.idAt(1));
+    }
+
+    @Test
+    @DisplayName("Pruned ranking should equal a full sort of all scores")
+    void testPrunedRanking_MatchesFullSort() {
+        // Given
+        Random random = new Random(7);
+        List<SymptomDiseaseMapping> mappings = new ArrayList<>();
+        for (int d = 0; d < 2000; d++) {
+            List<SymptomPattern> patterns = new ArrayList<>();
+            for (int p = 0; p < 1 + random.nextInt(6); p++) {
+                SymptomPattern pattern = new SymptomPattern();
+                pattern.setSymptomName("S" + random.nextInt(60));
+                pattern.setWeight(1 + random.nextInt(40));
+                pattern.setIsCritical(random.nextInt(8) == 0);
+                patterns.add(pattern);
+            }
+            SymptomDiseaseMapping mapping = new SymptomDiseaseMapping();
+            mapping.setDiseaseName("D" + d);
+            mapping.setSymptomPatterns(patterns);
+            mappings.add(mapping);
+        }
+        SymptomDiseaseIndex index = SymptomDiseaseIndex.build(mappings, 1);
+
+        for (int round = 0; round < 100; round++) {
+            List<String> symptoms = new ArrayList<>();
+            for (int i = 0; i < 1 + random.nextInt(6); i++) {
+                symptoms.add("S" + random.nextInt(60));
+            }
+            long[] userSymptoms = index.encode(symptoms);
+            int[] candidates = index.findCandidateOrdinals(userSymptoms);
+
+            // When - pruned top-k
+            TopKSelector selector = new TopKSelector(5, 0.3);
+            for (int disease : candidates) {
+                double floor = selector.floor();
+                if (index.upperBound(disease) > floor) {
+                    selector.offer(disease, index.score(disease, userSymptoms, floor));
+                }
+            }
+            selector.sortDescending();
+
+            // Then - same as scoring everything and sorting
+            List<double[]> all = new ArrayList<>();
+            for (int disease : candidates) {
+                double score = index.score(disease, userSymptoms);
+                if (score > 0.3) {
+                    all.add(new double[] { disease, score });
+                }
+            }
+            all.sort(Comparator.<double[]>comparingDouble(e -> -e[1]).thenComparingDouble(e -> e[0]));
+
+            assertEquals(Math.min(5, all.size()), selector.size());
+            for (int rank = 0; rank < selector.size(); rank++) {
+                assertEquals((int) all.get(rank)[0], selector.idAt(rank));
+                assertEquals(all.get(rank)[1], selector.scoreAt(rank));
+            }
+        }
+    }
+}
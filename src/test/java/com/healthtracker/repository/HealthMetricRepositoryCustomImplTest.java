@@ -0,0 +1,171 @@
+package com.healthtracker.repository;
+
+import com.healthtracker.model.HealthMetric;
+import com.healthtracker.model.MetricType;
+import org.bson.Document;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for HealthMetricRepositoryCustomImpl
+ */
+@ExtendWith(MockitoExtension.class)
+class HealthMetricRepositoryCustomImplTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Test
+    @DisplayName("Should select the latest readings of several types in one $facet aggregation")
+    void testFindLatestReadings() {
+        // Given
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        when(mongoTemplate.getConverter()).thenReturn(converter);
+
+        Date measuredAt = Date.from(LocalDateTime.now().minusDays(1).atZone(ZoneId.systemDefault()).toInstant());
+        Document facets = new Document()
+                .append("BLOOD_PRESSURE", List.of(new Document("metricType", "BLOOD_PRESSURE")
+                        .append("systolic", 150.0).append("diastolic", 95.0).append("measuredAt", measuredAt)))
+                .append("BLOOD_SUGAR", List.of())
+                .append("WEIGHT", List.of(new Document("metricType", "WEIGHT")
+                        .append("value", 70.5).append("measuredAt", measuredAt)));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(HealthMetric.class), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(facets), new Document()));
+
+        // When
+        Map<MetricType, Integer> limits = new EnumMap<>(MetricType.class);
+        limits.put(MetricType.BLOOD_PRESSURE, 3);
+        limits.put(MetricType.BLOOD_SUGAR, 3);
+        limits.put(MetricType.WEIGHT, 0);
+        List<HealthMetric> metrics = new HealthMetricRepositoryCustomImpl(mongoTemplate)
+                .findLatestReadings("test@example.com", LocalDateTime.now().minusMonths(6), limits);
+
+        // Then - one pipeline: $match, then one facet per type
+        ArgumentCaptor<Aggregation> aggregation = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongoTemplate).aggregate(aggregation.capture(), eq(HealthMetric.class), eq(Document.class));
+        List<Document> pipeline = aggregation.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT);
+        assertEquals(2, pipeline.size());
+        assertEquals("test@example.com", pipeline.get(0).get("$match", Document.class).get("userId"));
+        Document facet = pipeline.get(1).get("$facet", Document.class);
+        assertEquals(Set.of("BLOOD_PRESSURE", "BLOOD_SUGAR", "WEIGHT"), facet.keySet());
+        assertTrue(facet.getList("BLOOD_PRESSURE", Document.class).stream()
+                .anyMatch(stage -> ((Number) stage.get("$limit", 0)).intValue() == 3));
+        assertTrue(facet.getList("WEIGHT", Document.class).stream()
+                .noneMatch(stage -> stage.containsKey("$limit")));
+
+        assertEquals(2, metrics.size());
+        Map<MetricType, HealthMetric> byType = new EnumMap<>(MetricType.class);
+        metrics.forEach(metric -> byType.put(metric.getMetricType(), metric));
+        assertEquals(150.0, byType.get(MetricType.BLOOD_PRESSURE).getSystolic());
+        assertEquals(70.5, byType.get(MetricType.WEIGHT).getValue());
+        assertNotNull(byType.get(MetricType.WEIGHT).getMeasuredAt());
+    }
+
+    @Test
+    @DisplayName("Should skip readings without their values before taking the latest n")
+    void testFindLatestReadings_SkipsIncompleteBeforeLimit() {
+        // Given - whatever the newest readings are, the facets must filter before $sort/$limit
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(HealthMetric.class), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(), new Document()));
+        Map<MetricType, Integer> limits = new EnumMap<>(MetricType.class);
+        limits.put(MetricType.BLOOD_PRESSURE, 3);
+        limits.put(MetricType.BLOOD_SUGAR, 3);
+
+        // When
+        new HealthMetricRepositoryCustomImpl(mongoTemplate)
+                .findLatestReadings("test@example.com", LocalDateTime.now().minusMonths(6), limits);
+
+        // Then - each facet starts with a $match requiring its type's values
+        ArgumentCaptor<Aggregation> aggregation = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongoTemplate).aggregate(aggregation.capture(), eq(HealthMetric.class), eq(Document.class));
+        Document facet = aggregation.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT).get(1)
+                .get("$facet", Document.class);
+
+        Document bloodPressure = facet.getList("BLOOD_PRESSURE", Document.class).get(0).get("$match", Document.class);
+        assertEquals(new Document("$ne", null), bloodPressure.get("systolic"));
+        assertEquals(new Document("$ne", null), bloodPressure.get("diastolic"));
+        assertFalse(bloodPressure.containsKey("value"));
+
+        Document bloodSugar = facet.getList("BLOOD_SUGAR", Document.class).get(0).get("$match", Document.class);
+        assertEquals("BLOOD_SUGAR", bloodSugar.get("metricType"));
+        assertEquals(new Document("$ne", null), bloodSugar.get("value"));
+    }
+
+    @Test
+    @DisplayName("Should not count a newest reading without values as one of the latest n")
+    void testWithValues_NewestIncompleteReading() {
+        // Given - the newest blood pressure reading has no values
+        Document incomplete = new Document("metricType", "BLOOD_PRESSURE").append("systolic", null);
+        Document complete = new Document("metricType", "BLOOD_PRESSURE")
+                .append("systolic", 150.0).append("diastolic", 95.0);
+        Document criteria = HealthMetricRepositoryCustom.withValues(MetricType.BLOOD_PRESSURE).getCriteriaObject();
+
+        // Then
+        assertFalse(matches(criteria, incomplete));
+        assertTrue(matches(criteria, complete));
+    }
+
+    @Test
+    @DisplayName("Should seed a window from the latest complete readings of one type")
+    void testFindLatestReadings_OneType() {
+        when(mongoTemplate.find(any(Query.class), eq(HealthMetric.class))).thenReturn(List.of());
+
+        new HealthMetricRepositoryCustomImpl(mongoTemplate).findLatestReadings("test@example.com", MetricType.BLOOD_PRESSURE, 3);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(HealthMetric.class));
+        Document type = query.getValue().getQueryObject().getList("$and", Document.class).get(0);
+        assertEquals("BLOOD_PRESSURE", type.get("metricType"));
+        assertEquals(new Document("$ne", null), type.get("systolic"));
+        assertEquals(new Document("$ne", null), type.get("diastolic"));
+        assertEquals(3, query.getValue().getLimit());
+        assertEquals(new Document("measuredAt", -1), query.getValue().getSortObject());
+    }
+
+    /**
+     * Equality and $ne: null only - enough for the completeness criteria
+     */
+    private static boolean matches(Document criteria, Document reading) {
+        for (Map.Entry<String, Object> condition : criteria.entrySet()) {
+            Object actual = reading.get(condition.getKey());
+            if (condition.getValue() instanceof Document operator && operator.containsKey("$ne")) {
+                if (Objects.equals(actual, operator.get("$ne"))) {
+                    return false;
+                }
+            } else if (!condition.getValue().equals(actual)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,62 @@
+package com.healthtracker.repository;
+
+import com.healthtracker.model.HealthPrediction;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import org.bson.BsonObjectId;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for HealthPredictionRepositoryCustomImpl
+ */
+@ExtendWith(MockitoExtension.class)
+class HealthPredictionRepositoryCustomImplTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    @Test
+    @DisplayName("Should upsert on (userId, inputDigest) in one bulk write and set the ids of new and renewed predictions")
+    void testUpsertAll() {
+        // Given - a is new, b renews a stored prediction
+        ObjectId inserted = new ObjectId();
+        HealthPrediction a = HealthPrediction.builder().userId("u").inputDigest("a").build();
+        HealthPrediction b = HealthPrediction.builder().userId("u").inputDigest("b").build();
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, HealthPrediction.class)).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(BulkWriteResult.acknowledged(0, 1, 0, 1,
+                List.of(new BulkWriteUpsert(0, new BsonObjectId(inserted))), List.of()));
+        when(mongoTemplate.find(any(Query.class), eq(HealthPrediction.class))).thenReturn(List.of(
+                HealthPrediction.builder().id("stored").userId("u").inputDigest("b").build()));
+
+        // When
+        int written = new HealthPredictionRepositoryCustomImpl(mongoTemplate).upsertAll(List.of(a, b));
+
+        // Then
+        assertEquals(2, written);
+        ArgumentCaptor<Query> keys = ArgumentCaptor.forClass(Query.class);
+        verify(bulkOperations, times(2)).upsert(keys.capture(), any(Update.class));
+        assertEquals("a", keys.getAllValues().get(0).getQueryObject().get("inputDigest"));
+        assertEquals("u", keys.getAllValues().get(0).getQueryObject().get("userId"));
+        assertEquals(inserted.toHexString(), a.getId());
+        assertEquals("stored", b.getId());
+    }
+}
@@ -0,0 +1,80 @@
+package com.healthtracker.service;
+
+import com.healthtracker.model.SymptomDiseaseMapping;
+import com.healthtracker.model.SymptomPattern;
+import com.healthtracker.repository.SymptomDiseaseMappingRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for SymptomDiseaseMappingService
+ */
+@ExtendWith(MockitoExtension.class)
+class SymptomDiseaseMappingServiceTest {
+
+    @Mock
+    private SymptomDiseaseMappingRepository repository;
+
+    @Mock
+    private SymptomPostingService postingService;
+
+    @InjectMocks
+    private SymptomDiseaseMappingService mappingService;
+
+    @Test
+    @DisplayName("Should union per-symptom postings independently of symptom order")
+    void testFindRelevantMappings_UnionOfPostings() {
+        // Given
+        SymptomDiseaseMapping migraine = createMapping("2", "Đau nửa đầu");
+        SymptomDiseaseMapping flu = createMapping("1", "Cúm");
+        when(postingService.findPosting("đau đầu")).thenReturn(List.of("2", "1"));
+        when(postingService.findPosting("buồn nôn")).thenReturn(List.of("2"));
+        when(repository.findAllById(Set.of("1", "2"))).thenReturn(List.of(migraine, flu));
+
+        // When
+        List<SymptomDiseaseMapping> forward = mappingService.findRelevantMappings(List.of("Đau đầu", "Buồn nôn"));
+        List<SymptomDiseaseMapping> reversed = mappingService.findRelevantMappings(List.of(" buồn nôn", "ĐAU ĐẦU", "Đau đầu"));
+
+        // Then - each disease once, ordered by id, each symptom looked up by its normalized name
+        assertEquals(List.of(flu, migraine), forward);
+        assertEquals(forward, reversed);
+        verify(postingService, times(2)).findPosting("đau đầu");
+        verify(postingService, times(2)).findPosting("buồn nôn");
+        verify(repository, times(2)).findAllById(Set.of("1", "2"));
+    }
+
+    @Test
+    @DisplayName("Should store the normalized symptom key of each pattern on save")
+    void testSaveMapping_AssignsSymptomKeys() {
+        // Given
+        SymptomDiseaseMapping migraine = createMapping("2", "Đau nửa đầu");
+        migraine.setSymptomPatterns(List.of(SymptomPattern.builder().symptomName(" Đau Đầu ").build()));
+        when(repository.save(migraine)).thenReturn(migraine);
+        when(repository.findAll()).thenReturn(List.of(migraine));
+
+        // When
+        mappingService.saveMapping(migraine);
+
+        // Then - keyed before the write, nothing left to backfill on rebuild
+        assertEquals("đau đầu", migraine.getSymptomPatterns().get(0).getSymptomKey());
+        verify(repository, never()).saveAll(anyList());
+    }
+
+    private SymptomDiseaseMapping createMapping(String id, String name) {
+        SymptomDiseaseMapping mapping = new SymptomDiseaseMapping();
+        mapping.setId(id);
+        mapping.setDiseaseName(name);
+        return mapping;
+    }
+}
@@ -0,0 +1,77 @@
+package com.healthtracker.service;
+
+import com.healthtracker.repository.SymptomRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for SymptomSuggestionService
+ */
+@ExtendWith(MockitoExtension.class)
+class SymptomSuggestionServiceTest {
+
+    @Mock
+    private SymptomDiseaseMappingService mappingService;
+
+    @Mock
+    private SymptomRepository symptomRepository;
+
+    @InjectMocks
+    private SymptomSuggestionService suggestionService;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(mappingService.getKnowledgeBaseVersion()).thenReturn(1L);
+        lenient().when(symptomRepository.findPopularSymptomNames(anyInt(), anyInt()))
+                .thenReturn(List.of(Map.of("_id", "Đau đầu", "users", 12)));
+    }
+
+    @Test
+    @DisplayName("Should serve the trie built at startup without querying on the request")
+    void testSuggest_ServedFromSnapshot() {
+        // Given
+        suggestionService.loadTrie();
+
+        // When
+        List<String> suggestions = suggestionService.suggest("dau", 5);
+
+        // Then
+        assertEquals(List.of("Đau đầu"), suggestions);
+        verify(symptomRepository, times(1)).findPopularSymptomNames(anyInt(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Should rebuild in the background on a new knowledge base version, serving the old trie meanwhile")
+    void testSuggest_RebuildsInBackground() {
+        // Before the first build: no suggestions, no blocking, a build started
+        assertEquals(List.of(), suggestionService.suggest("dau", 5));
+        verify(symptomRepository, timeout(2000)).findPopularSymptomNames(anyInt(), anyInt());
+
+        awaitSuggestions();
+
+        // New knowledge base version
+        when(mappingService.getKnowledgeBaseVersion()).thenReturn(2L);
+        assertEquals(List.of("Đau đầu"), suggestionService.suggest("dau", 5));
+        verify(symptomRepository, timeout(2000).atLeast(2)).findPopularSymptomNames(anyInt(), anyInt());
+    }
+
+    private void awaitSuggestions() {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (suggestionService.suggest("dau", 5).isEmpty()) {
+            assertTrue(System.currentTimeMillis() < deadline, "trie not built in time");
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.healthtracker.service.dss;
+
+import com.healthtracker.dss.engine.MetricSeries;
+import com.healthtracker.dss.engine.RuleOutcome;
+import com.healthtracker.dss.engine.RuleResult;
+import com.healthtracker.dss.rules.BloodPressureRule;
+import com.healthtracker.model.HealthInsight;
+import com.healthtracker.model.HealthMetric;
+import com.healthtracker.model.InsightType;
+import com.healthtracker.model.MetricRevision;
+import com.healthtracker.model.MetricType;
+import com.healthtracker.repository.HealthMetricRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.MessageSource;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for IncrementalRuleEvaluator
+ */
+@ExtendWith(MockitoExtension.class)
+class IncrementalRuleEvaluatorTest {
+
+    @Mock
+    private HealthMetricRepository healthMetricRepository;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private RuleCatalog ruleCatalog;
+
+    @Mock
+    private InsightWriteBehindSink insightSink;
+
+    @Mock
+    private MessageSource messageSource;
+
+    @InjectMocks
+    private IncrementalRuleEvaluator evaluator;
+
+    private final String userId = "test@example.com";
+
+    private final LocalDateTime now = LocalDateTime.now();
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(messageSource.getMessage(anyString(), any(), any(Locale.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        // The catalog holds the built-in blood pressure rule only
+        BloodPressureRule rule = new BloodPressureRule();
+        lenient().when(ruleCatalog.evaluate(any(MetricSeries.class))).thenAnswer(invocation -> {
+            RuleResult result = new RuleResult();
+            RuleOutcome outcome = rule.evaluate(invocation.getArgument(0));
+            if (outcome.isFired()) {
+                result.addFiredRule(rule, outcome);
+            }
+            return result;
+        });
+    }
+
+    @Test
+    @DisplayName("Should seed the window once, then fire on the reading that completes it")
+    void testOnMetricAdded_FiresWithoutReloadingHistory() {
+        // Given - two high readings already stored, the first new one included in the seed
+        HealthMetric first = bloodPressure("a", now.minusDays(2), 150, 95);
+        HealthMetric second = bloodPressure("b", now.minusDays(1), 155, 96);
+        when(healthMetricRepository.findLatestReadings(eq(userId), eq(MetricType.BLOOD_PRESSURE), anyInt()))
+                .thenReturn(List.of(second, first));
+
+        // When
+        RuleResult seeded = evaluator.onMetricAdded(second);
+        RuleResult fired = evaluator.onMetricAdded(bloodPressure("c", now, 160, 100));
+
+        // Then
+        assertFalse(seeded.hasResults());
+        assertEquals(List.of("PERSISTENT_HYPERTENSION"), fired.getFiredRuleNames());
+        verify(healthMetricRepository, times(1))
+                .findLatestReadings(anyString(), any(), anyInt());
+
+        ArgumentCaptor<HealthInsight> insight = ArgumentCaptor.forClass(HealthInsight.class);
+        verify(insightSink).submit(insight.capture());
+        assertEquals(userId, insight.getValue().getUserId());
+        assertEquals("BLOOD_PRESSURE", insight.getValue().getCategory());
+        assertEquals(InsightType.WARNING, insight.getValue().getType());
+        assertEquals("CRITICAL", insight.getValue().getSeverity());
+        assertEquals(1, insight.getValue().getPriority());
+        assertEquals("rule.insight.title.critical", insight.getValue().getTitle());
+    }
+
+    @Test
+    @DisplayName("Should reseed after invalidation and never fail the ingest")
+    void testOnMetricAdded_InvalidateAndFailures() {
+        // Given
+        HealthMetric reading = bloodPressure("a", now, 120, 80);
+        when(healthMetricRepository.findLatestReadings(eq(userId), eq(MetricType.BLOOD_PRESSURE), anyInt()))
+                .thenReturn(List.of(reading))
+                .thenThrow(new IllegalStateException("database down"));
+
+        // When
+        evaluator.onMetricAdded(reading);
+        evaluator.invalidate(userId);
+        RuleResult result = evaluator.onMetricAdded(bloodPressure("b", now.plusMinutes(1), 125, 82));
+
+        // Then
+        assertFalse(result.hasResults());
+        verify(healthMetricRepository, times(2))
+                .findLatestReadings(anyString(), any(), anyInt());
+        verify(mongoTemplate).upsert(any(Query.class), any(Update.class), eq(MetricRevision.class));
+        verifyNoInteractions(insightSink);
+    }
+
+    @Test
+    @DisplayName("Should reseed a window after a reading was deleted on another instance")
+    void testOnMetricAdded_RevisionBumpedElsewhere() {
+        // Given - two high readings; the second one is then deleted on another instance
+        HealthMetric first = bloodPressure("a", now.minusDays(2), 150, 95);
+        HealthMetric mistyped = bloodPressure("b", now.minusDays(1), 155, 96);
+        when(healthMetricRepository.findLatestReadings(eq(userId), eq(MetricType.BLOOD_PRESSURE), anyInt()))
+                .thenReturn(List.of(mistyped, first))
+                .thenAnswer(invocation -> List.of(bloodPressure("c", now, 160, 100), first));
+        evaluator.onMetricAdded(mistyped);
+        when(mongoTemplate.findById(userId, MetricRevision.class))
+                .thenReturn(MetricRevision.builder().id(userId).revision(1).build());
+
+        // When
+        RuleResult result = evaluator.onMetricAdded(bloodPressure("c", now, 160, 100));
+
+        // Then - two high readings only, from the reseeded window
+        assertFalse(result.hasResults());
+        verify(healthMetricRepository, times(2))
+                .findLatestReadings(anyString(), any(), anyInt());
+    }
+
+    private HealthMetric bloodPressure(String id, LocalDateTime measuredAt, double systolic, double diastolic) {
+        return HealthMetric.builder()
+                .id(id)
+                .userId(userId)
+                .metricType(MetricType.BLOOD_PRESSURE)
+                .systolic(systolic)
+                .diastolic(diastolic)
+                .measuredAt(measuredAt)
+                .build();
+    }
+}
@@ -0,0 +1,178 @@
+package com.healthtracker.service.dss;
+
+import com.healthtracker.model.HealthInsight;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for InsightWriteBehindSink
+ */
+@ExtendWith(MockitoExtension.class)
+class InsightWriteBehindSinkTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    @Test
+    @DisplayName("Should upsert queued insights in batches and drain on stop")
+    void testBatchesAndDrain() {
+        // Given
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, HealthInsight.class))
+                .thenReturn(bulkOperations);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        InsightWriteBehindSink sink = new InsightWriteBehindSink(mongoTemplate, registry, 100, 10, 50, 50);
+        sink.start();
+
+        // When
+        for (int i = 0; i < 25; i++) {
+            sink.submit(createInsight("user" + i, "Title"));
+        }
+        sink.stop();
+
+        // Then - everything upserted in bulk, nothing on the caller thread
+        verify(bulkOperations, times(25)).upsert(any(Query.class), any(Update.class));
+        verify(bulkOperations, times(25)).updateOne(any(Query.class), any(Update.class));
+        verify(bulkOperations, atLeast(3)).execute();
+        verify(mongoTemplate, never()).upsert(any(Query.class), any(Update.class), eq(HealthInsight.class));
+        assertEquals(0, sink.getQueueSize());
+        assertEquals(25.0, registry.get("dss.insights.write_behind.written").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should coalesce identical insights queued in the same batch")
+    void testCoalescesWithinBatch() {
+        // Given - flush interval long enough for all insights to land in one batch
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, HealthInsight.class))
+                .thenReturn(bulkOperations);
+        InsightWriteBehindSink sink = new InsightWriteBehindSink(
+                mongoTemplate, new SimpleMeterRegistry(), 100, 10, 1000, 50);
+        sink.start();
+
+        // When
+        sink.submit(createInsight("user", "Title"));
+        sink.submit(createInsight("user", "Title"));
+        sink.submit(createInsight("user", "Other title"));
+        sink.stop();
+
+        // Then
+        verify(bulkOperations, times(2)).upsert(any(Query.class), any(Update.class));
+    }
+
+    @Test
+    @DisplayName("Should upsert on the caller thread when not running")
+    void testCallerRunsWhenStopped() {
+        // Given
+        InsightWriteBehindSink sink = new InsightWriteBehindSink(
+                mongoTemplate, new SimpleMeterRegistry(), 100, 10, 50, 50);
+        HealthInsight insight = createInsight("user", "Title");
+
+        // When
+        sink.submit(insight);
+
+        // Then
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).upsert(query.capture(), any(Update.class), eq(HealthInsight.class));
+        assertNotNull(insight.getContentFingerprint());
+        assertEquals(insight.getContentFingerprint(),
+                query.getValue().getQueryObject().get("contentFingerprint"));
+        verifyNoInteractions(bulkOperations);
+    }
+
+    @Test
+    @DisplayName("Should write a failed batch one by one, dropping only the insights that fail again")
+    void testFailedBatchFallsBackToSingleUpserts() {
+        // Given - the bulk write fails, and so does one of the single upserts
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, HealthInsight.class))
+                .thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenThrow(new DataAccessResourceFailureException("primary stepped down"));
+        when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq(HealthInsight.class)))
+                .thenReturn(null)
+                .thenThrow(new DataAccessResourceFailureException("still down"))
+                .thenReturn(null);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        InsightWriteBehindSink sink = new InsightWriteBehindSink(mongoTemplate, registry, 100, 10, 1000, 50);
+        sink.start();
+
+        // When
+        sink.submit(createInsight("user", "First"));
+        sink.submit(createInsight("user", "Second"));
+        sink.submit(createInsight("user", "Third"));
+        sink.stop();
+
+        // Then
+        verify(mongoTemplate, times(3)).upsert(any(Query.class), any(Update.class), eq(HealthInsight.class));
+        assertEquals(2.0, registry.get("dss.insights.write_behind.retried").counter().count());
+        assertEquals(1.0, registry.get("dss.insights.write_behind.failed").counter().count());
+        assertEquals(0.0, registry.get("dss.insights.write_behind.caller_runs").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should mark an insight unread again only if it was read before this occurrence was generated")
+    void testRecurringInsightMarkedUnread() {
+        // Given
+        InsightWriteBehindSink sink = new InsightWriteBehindSink(
+                mongoTemplate, new SimpleMeterRegistry(), 100, 10, 50, 50);
+        HealthInsight insight = createInsight("user", "Title");
+
+        // When
+        sink.submit(insight);
+
+        // Then - isRead is only set on insert; the reset is guarded by readAt
+        ArgumentCaptor<Update> upsert = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).upsert(any(Query.class), upsert.capture(), eq(HealthInsight.class));
+        assertFalse(upsert.getValue().getUpdateObject().get("$set", Document.class).containsKey("isRead"));
+
+        ArgumentCaptor<Query> guard = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> reset = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(guard.capture(), reset.capture(), eq(HealthInsight.class));
+        assertEquals(insight.getGeneratedAt(),
+                guard.getValue().getQueryObject().get("readAt", Document.class).get("$lt"));
+        assertEquals(insight.getContentFingerprint(), guard.getValue().getQueryObject().get("contentFingerprint"));
+        assertEquals(Boolean.FALSE, reset.getValue().getUpdateObject().get("$set", Document.class).get("isRead"));
+    }
+
+    @Test
+    @DisplayName("Fingerprint should depend on content, not on dates")
+    void testContentFingerprint() {
+        // Given
+        HealthInsight first = createInsight("user", "Title");
+        HealthInsight second = createInsight("user", "Title");
+        second.setGeneratedAt(first.getGeneratedAt().plusDays(1));
+
+        // When / Then
+        assertEquals(InsightWriteBehindSink.contentFingerprint(first),
+                InsightWriteBehindSink.contentFingerprint(second));
+        assertNotEquals(InsightWriteBehindSink.contentFingerprint(first),
+                InsightWriteBehindSink.contentFingerprint(createInsight("user", "Other title")));
+    }
+
+    private HealthInsight createInsight(String userId, String title) {
+        return HealthInsight.builder()
+                .userId(userId)
+                .category("SYMPTOMS")
+                .title(title)
+                .message("Message")
+                .generatedAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,184 @@
+package com.healthtracker.service.dss;
+
+import com.healthtracker.model.HealthMetric;
+import com.healthtracker.model.MetricTrend;
+import com.healthtracker.model.MetricType;
+import com.healthtracker.repository.HealthMetricRepository;
+import com.healthtracker.repository.MetricTrendRepository;
+import org.apache.commons.math3.stat.regression.SimpleRegression;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for MetricTrendService
+ */
+@ExtendWith(MockitoExtension.class)
+class MetricTrendServiceTest {
+
+    @Mock
+    private MetricTrendRepository trendRepository;
+
+    @Mock
+    private HealthMetricRepository healthMetricRepository;
+
+    @InjectMocks
+    private MetricTrendService service;
+
+    private final String userId = "test@example.com";
+
+    private final String trendId = MetricTrend.idOf(userId, MetricType.WEIGHT);
+
+    private final LocalDateTime now = LocalDateTime.now();
+
+    private final LocalDateTime start = now.truncatedTo(ChronoUnit.DAYS).minusDays(30);
+
+    private final List<HealthMetric> history = new ArrayList<>();
+
+    private MetricTrend stored;
+
+    @BeforeEach
+    void setUp() {
+        // The repository keeps the last saved trend
+        lenient().when(trendRepository.findById(trendId)).thenAnswer(invocation -> Optional.ofNullable(stored));
+        lenient().when(trendRepository.save(any(MetricTrend.class))).thenAnswer(invocation -> {
+            stored = invocation.getArgument(0);
+            return stored;
+        });
+        lenient().when(healthMetricRepository.findByUserIdAndMetricType(userId, MetricType.WEIGHT))
+                .thenAnswer(invocation -> new ArrayList<>(history));
+    }
+
+    @Test
+    @DisplayName("Should build a missing trend from the history once, then update it without reading it again")
+    void testOnMetricAdded_BuildsOnceThenIncremental() {
+        // Given - 10 readings in the history, losing 0.1 kg a day
+        for (int day = 0; day < 10; day++) {
+            history.add(weight(day, 80.0 - day * 0.1));
+        }
+
+        // When - the 10th reading was just saved, then two more arrive
+        service.onMetricAdded(history.get(9));
+        service.onMetricAdded(weight(10, 79.0));
+        service.onMetricAdded(weight(11, 78.9));
+
+        // Then
+        verify(healthMetricRepository, times(1)).findByUserIdAndMetricType(userId, MetricType.WEIGHT);
+        assertEquals(12, stored.count(now));
+        assertEquals(-0.1, stored.slopePerDay(now), 1e-9);
+        assertEquals(start.plusDays(11), stored.getLastAt());
+        assertTrue(stored.getEwma() < 79.5);
+    }
+
+    @Test
+    @DisplayName("Should rebuild after edits, deletions and back-filled readings, matching a full recomputation")
+    void testOnMetricUpdatedAndDeleted_MatchesFullRecomputation() {
+        double[] values = { 70.2, 70.8, 70.1, 71.5, 71.9, 72.4, 71.8, 72.9 };
+        for (int day = 1; day < values.length; day++) {
+            history.add(weight(day, values[day]));
+            service.onMetricAdded(history.get(history.size() - 1));
+        }
+
+        // When - a mistyped reading is corrected, another deleted, an older one back-filled
+        history.set(2, weight(3, 70.5));
+        service.onMetricUpdated(weight(3, 715.0), history.get(2));
+        HealthMetric deleted = history.remove(4);
+        service.onMetricDeleted(deleted);
+        history.add(0, weight(0, values[0]));
+        service.onMetricAdded(history.get(0));
+
+        // Then - same slope as a regression over the remaining readings, same EWMA as in time order
+        SimpleRegression regression = new SimpleRegression();
+        Double ewma = null;
+        for (HealthMetric metric : history) {
+            regression.addData(MetricTrend.daysOf(metric.getMeasuredAt()), metric.getValue());
+            ewma = ewma == null ? metric.getValue() : 0.3 * metric.getValue() + 0.7 * ewma;
+        }
+        assertEquals(regression.getN(), stored.count(now));
+        assertEquals(regression.getSlope(), stored.slopePerDay(now), 1e-9);
+        assertEquals(ewma, stored.getEwma(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Should rebuild over a trend created concurrently from an older history")
+    void testOnMetricAdded_LostCreationRace() {
+        // Given - a reader built the trend before the new reading was saved
+        history.add(weight(0, 80.0));
+        MetricTrend older = MetricTrend.builder().id(trendId).userId(userId).metricType(MetricType.WEIGHT)
+                .version(0L).build();
+        older.add(start, 80.0, 0.3);
+        HealthMetric added = weight(1, 79.0);
+        history.add(added);
+        when(trendRepository.save(any(MetricTrend.class)))
+                .thenAnswer(invocation -> {
+                    stored = older;
+                    throw new DuplicateKeyException("created concurrently");
+                })
+                .thenAnswer(invocation -> {
+                    stored = invocation.getArgument(0);
+                    return stored;
+                });
+
+        // When
+        service.onMetricAdded(added);
+
+        // Then - the new reading is in the trend that won
+        assertEquals(2, stored.count(now));
+        assertEquals(0L, stored.getVersion());
+        assertEquals(start.plusDays(1), stored.getLastAt());
+    }
+
+    @Test
+    @DisplayName("Should fit the last six months only")
+    void testSlope_Window() {
+        // Given - three years of weight loss, then stable for six months
+        MetricTrend trend = MetricTrend.builder().id(trendId).userId(userId).metricType(MetricType.WEIGHT).build();
+        LocalDateTime first = now.minusYears(3);
+        for (LocalDateTime at = first; at.isBefore(now); at = at.plusDays(7)) {
+            boolean recent = at.isAfter(now.minusMonths(MetricTrend.WINDOW_MONTHS - 1).withDayOfMonth(1));
+            trend.add(at, recent ? 70.0 : 100.0 - MetricTrend.daysOf(at) / 100, 0.3);
+        }
+
+        // Then - no slope, and no bucket older than the window is kept
+        assertEquals(0.0, trend.slopePerDay(now), 1e-9);
+        assertTrue(trend.getBuckets().size() <= MetricTrend.WINDOW_MONTHS);
+        assertEquals(0, trend.count(now.plusYears(1)));
+    }
+
+    @Test
+    @DisplayName("Should drop the trend for a rebuild when concurrent updates keep conflicting")
+    void testOnMetricAdded_ConflictsDropTrend() {
+        stored = MetricTrend.builder().id(trendId).userId(userId).metricType(MetricType.WEIGHT).version(1L).build();
+        when(trendRepository.save(any(MetricTrend.class))).thenThrow(new OptimisticLockingFailureException("conflict"));
+
+        assertDoesNotThrow(() -> service.onMetricAdded(weight(0, 70.0)));
+
+        verify(trendRepository, times(3)).save(any(MetricTrend.class));
+        verify(trendRepository).deleteById(trendId);
+    }
+
+    private HealthMetric weight(int day, double value) {
+        return HealthMetric.builder()
+                .userId(userId)
+                .metricType(MetricType.WEIGHT)
+                .value(value)
+                .measuredAt(start.plusDays(day))
+                .build();
+    }
+}
@@ -0,0 +1,201 @@
+package com.healthtracker.service.dss;
+
+import com.healthtracker.dss.risk.CardiovascularRiskModel;
+import com.healthtracker.dss.risk.DiabetesRiskModel;
+import com.healthtracker.dss.risk.RiskInput;
+import com.healthtracker.dss.risk.RiskModel;
+import com.healthtracker.dss.risk.WeightTrendModel;
+import com.healthtracker.model.HealthMetric;
+import com.healthtracker.model.HealthPrediction;
+import com.healthtracker.model.HealthProfile;
+import com.healthtracker.model.MetricTrend;
+import com.healthtracker.model.MetricType;
+import com.healthtracker.model.User;
+import com.healthtracker.repository.HealthMetricRepository;
+import com.healthtracker.repository.HealthPredictionRepository;
+import com.healthtracker.repository.HealthProfileRepository;
+import com.healthtracker.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for RiskPredictionService
+ */
+@ExtendWith(MockitoExtension.class)
+class RiskPredictionServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private HealthProfileRepository healthProfileRepository;
+
+    @Mock
+    private HealthMetricRepository healthMetricRepository;
+
+    @Mock
+    private HealthPredictionRepository predictionRepository;
+
+    @Mock
+    private MetricTrendService trendService;
+
+    private RiskPredictionService service;
+
+    private final String userId = "test@example.com";
+
+    private final List<HealthMetric> metrics = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        service = new RiskPredictionService(userRepository, healthProfileRepository, healthMetricRepository,
+                predictionRepository, trendService, List.of(new CardiovascularRiskModel(), new DiabetesRiskModel(),
+                new WeightTrendModel()));
+
+        when(userRepository.findByEmail(userId)).thenReturn(Optional.of(User.builder()
+                .email(userId)
+                .dateOfBirth(LocalDate.now().minusYears(50))
+                .build()));
+        when(healthProfileRepository.findByUserId(userId)).thenReturn(Optional.of(HealthProfile.builder()
+                .userId(userId)
+                .bmi(27.0)
+                .smokingStatus("NEVER")
+                .build()));
+
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 3; i++) {
+            metrics.add(HealthMetric.builder().id("bp" + i).userId(userId).metricType(MetricType.BLOOD_PRESSURE)
+                    .systolic(150.0).diastolic(95.0).measuredAt(now.minusDays(i + 1)).build());
+            metrics.add(HealthMetric.builder().id("w" + i).userId(userId).metricType(MetricType.WEIGHT)
+                    .value(80.0 - i).measuredAt(now.minusDays(30L * (i + 1))).build());
+        }
+        when(healthMetricRepository.findLatestReadings(eq(userId), any(LocalDateTime.class), anyMap()))
+                .thenReturn(metrics);
+
+        // Weight trend of the weight readings, losing about 1 kg a month
+        MetricTrend weight = MetricTrend.builder().userId(userId).metricType(MetricType.WEIGHT).build();
+        for (int i = 2; i >= 0; i--) {
+            weight.add(now.minusDays(30L * (i + 1)), 80.0 - i, 0.3);
+        }
+        lenient().when(trendService.getTrends(eq(userId), anySet()))
+                .thenReturn(Map.of(MetricType.WEIGHT, weight));
+    }
+
+    @Test
+    @DisplayName("Should stamp new predictions with input digests, then reuse them while inputs are unchanged")
+    @SuppressWarnings("unchecked")
+    void testPredictHealthRisks_ReusesUnchangedInputs() {
+        // Given - nothing stored yet
+        when(predictionRepository.findByUserIdAndInputDigestInAndValidUntilAfter(eq(userId), anyCollection(),
+                any(LocalDateTime.class))).thenReturn(List.of());
+
+        // When
+        List<HealthPrediction> first = service.predictHealthRisks(userId);
+
+        // Then - cardiovascular, diabetes and weight, each with its own digest
+        ArgumentCaptor<Collection<HealthPrediction>> saved = ArgumentCaptor.forClass(Collection.class);
+        verify(predictionRepository).upsertAll(saved.capture());
+        assertEquals(3, first.size());
+        assertEquals(first, saved.getValue());
+        assertEquals(3, first.stream().map(HealthPrediction::getInputDigest).distinct().count());
+
+        // Given - the same inputs, predictions stored
+        ArgumentCaptor<Collection<String>> digests = ArgumentCaptor.forClass(Collection.class);
+        when(predictionRepository.findByUserIdAndInputDigestInAndValidUntilAfter(eq(userId), digests.capture(),
+                any(LocalDateTime.class))).thenReturn(first);
+
+        // When
+        List<HealthPrediction> second = service.predictHealthRisks(userId);
+
+        // Then - the stored predictions, nothing written
+        assertEquals(first, second);
+        assertTrue(digests.getValue().containsAll(first.stream().map(HealthPrediction::getInputDigest).toList()));
+        verify(predictionRepository, times(1)).upsertAll(anyCollection());
+    }
+
+    @Test
+    @DisplayName("Should predict again only what a changed reading feeds")
+    @SuppressWarnings("unchecked")
+    void testPredictHealthRisks_ChangedReading() {
+        when(predictionRepository.findByUserIdAndInputDigestInAndValidUntilAfter(eq(userId), anyCollection(),
+                any(LocalDateTime.class))).thenReturn(List.of());
+        List<HealthPrediction> first = service.predictHealthRisks(userId);
+
+        // A newer blood pressure reading replaces the oldest of the last 3
+        metrics.add(HealthMetric.builder().id("bp3").userId(userId).metricType(MetricType.BLOOD_PRESSURE)
+                .systolic(120.0).diastolic(80.0).measuredAt(LocalDateTime.now()).build());
+        metrics.removeIf(metric -> "bp2".equals(metric.getId()));
+        when(predictionRepository.findByUserIdAndInputDigestInAndValidUntilAfter(eq(userId), anyCollection(),
+                any(LocalDateTime.class))).thenReturn(first);
+
+        service.predictHealthRisks(userId);
+
+        ArgumentCaptor<Collection<HealthPrediction>> saved = ArgumentCaptor.forClass(Collection.class);
+        verify(predictionRepository, times(2)).upsertAll(saved.capture());
+        List<HealthPrediction> repredicted = List.copyOf(saved.getAllValues().get(1));
+        assertEquals(1, repredicted.size());
+        assertEquals(new CardiovascularRiskModel().getAlgorithm(), repredicted.get(0).getAlgorithm());
+    }
+
+    @Test
+    @DisplayName("Should fetch the union of the models' readings once and skip a failing model")
+    @SuppressWarnings("unchecked")
+    void testPredictHealthRisks_UnionOfInputsAndFailingModel() {
+        // Given - a model needing every blood pressure reading, which fails
+        RiskModel failing = new RiskModel() {
+            @Override
+            public String getAlgorithm() {
+                return "Failing-v1";
+            }
+
+            @Override
+            public Set<MetricType> getMetricTypes() {
+                return Set.of(MetricType.BLOOD_PRESSURE, MetricType.HEART_RATE);
+            }
+
+            @Override
+            public List<Object> getDigestInputs(RiskInput input) {
+                return List.of();
+            }
+
+            @Override
+            public HealthPrediction predict(RiskInput input) {
+                throw new IllegalStateException("failing");
+            }
+        };
+        service = new RiskPredictionService(userRepository, healthProfileRepository, healthMetricRepository,
+                predictionRepository, trendService,
+                List.of(new CardiovascularRiskModel(), failing, new WeightTrendModel()));
+        when(predictionRepository.findByUserIdAndInputDigestInAndValidUntilAfter(eq(userId), anyCollection(),
+                any(LocalDateTime.class))).thenReturn(List.of());
+
+        // When
+        List<HealthPrediction> predictions = service.predictHealthRisks(userId);
+
+        // Then - one query, all blood pressure readings (limit 0), the weight trend only, the others in order
+        ArgumentCaptor<Map<MetricType, Integer>> limits = ArgumentCaptor.forClass(Map.class);
+        verify(healthMetricRepository).findLatestReadings(eq(userId), any(LocalDateTime.class), limits.capture());
+        assertEquals(Map.of(MetricType.BLOOD_PRESSURE, 0, MetricType.HEART_RATE, 0), limits.getValue());
+        verify(trendService).getTrends(userId, Set.of(MetricType.WEIGHT));
+        assertEquals(List.of(new CardiovascularRiskModel().getAlgorithm(), new WeightTrendModel().getAlgorithm()),
+                predictions.stream().map(HealthPrediction::getAlgorithm).toList());
+    }
+
+}
@@ -0,0 +1,196 @@
+package com.healthtracker.service.dss;
+
+import com.healthtracker.dss.risk.CardiovascularRiskModel;
+import com.healthtracker.dss.risk.DiabetesRiskModel;
+import com.healthtracker.model.HealthMetric;
+import com.healthtracker.model.HealthPrediction;
+import com.healthtracker.model.HealthProfile;
+import com.healthtracker.model.JobCheckpoint;
+import com.healthtracker.model.MetricType;
+import com.healthtracker.model.User;
+import com.healthtracker.repository.HealthMetricRepository;
+import com.healthtracker.repository.HealthPredictionRepository;
+import com.healthtracker.repository.HealthProfileRepository;
+import com.healthtracker.repository.JobCheckpointRepository;
+import com.healthtracker.repository.UserRepository;
+import com.mongodb.client.result.UpdateResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for RiskScoringJob
+ */
+@ExtendWith(MockitoExtension.class)
+class RiskScoringJobTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private HealthPredictionRepository predictionRepository;
+
+    @Mock
+    private JobCheckpointRepository checkpointRepository;
+
+    @Mock
+    private MetricTrendService trendService;
+
+    private RiskScoringJob job;
+
+    private final LocalDateTime now = LocalDateTime.now();
+
+    @BeforeEach
+    void setUp() {
+        RiskPredictionService riskPredictionService = new RiskPredictionService(mock(UserRepository.class),
+                mock(HealthProfileRepository.class), mock(HealthMetricRepository.class), predictionRepository,
+                trendService, List.of(new CardiovascularRiskModel(), new DiabetesRiskModel()));
+        job = new RiskScoringJob(mongoTemplate, userRepository, predictionRepository, checkpointRepository,
+                riskPredictionService, trendService, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(job, "chunkSize", 2);
+
+        lenient().when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(JobCheckpoint.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        lenient().when(predictionRepository.upsertAll(anyCollection()))
+                .thenAnswer(invocation -> invocation.<Collection<HealthPrediction>>getArgument(0).size());
+        lenient().when(userRepository.findByEmailIn(anyCollection())).thenAnswer(invocation ->
+                invocation.<Collection<String>>getArgument(0).stream().map(this::user).toList());
+    }
+
+    @Test
+    @DisplayName("Should score users in chunks, bulk upsert their predictions and checkpoint each chunk")
+    @SuppressWarnings("unchecked")
+    void testRun_ChunksAndCheckpoints() {
+        // Given - three profiles sorted by userId; a has high blood pressure
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(JobCheckpoint.class))).thenReturn(null);
+        when(mongoTemplate.stream(any(Query.class), eq(HealthProfile.class)))
+                .thenReturn(Stream.of(profile("a"), profile("b"), profile("c")));
+        List<HealthMetric> readings = new ArrayList<>();
+        for (int i = 5; i > 0; i--) {
+            readings.add(bloodPressure("a", now.minusDays(i), 160 + i, 100));
+        }
+        when(mongoTemplate.stream(any(Query.class), eq(HealthMetric.class)))
+                .thenReturn(readings.stream(), Stream.empty());
+
+        // When
+        JobCheckpoint checkpoint = job.run();
+
+        // Then - chunks [a, b] and [c], one readings cursor and one upsert each
+        assertEquals(JobLease.COMPLETED, checkpoint.getStatus());
+        assertEquals("c", checkpoint.getLastKey());
+        assertEquals(3, checkpoint.getProcessed());
+        ArgumentCaptor<Collection<HealthPrediction>> written = ArgumentCaptor.forClass(Collection.class);
+        verify(predictionRepository, times(2)).upsertAll(written.capture());
+        List<HealthPrediction> predictions = written.getAllValues().stream().flatMap(Collection::stream).toList();
+        assertEquals(checkpoint.getProduced(), predictions.size());
+        assertTrue(predictions.stream().allMatch(prediction -> prediction.getInputDigest() != null));
+        assertTrue(predictions.stream().anyMatch(prediction -> "a".equals(prediction.getUserId())));
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).stream(query.capture(), eq(HealthMetric.class));
+        assertEquals(List.of("a", "b"), query.getAllValues().get(0).getQueryObject()
+                .get("userId", Document.class).get("$in"));
+        // Complete readings of each type only
+        List<Document> types = query.getAllValues().get(0).getQueryObject().getList("$or", Document.class);
+        assertTrue(types.stream().anyMatch(type -> "BLOOD_PRESSURE".equals(type.get("metricType"))
+                && type.containsKey("systolic") && type.containsKey("diastolic")));
+        assertTrue(job.getThroughput() > 0);
+    }
+
+    @Test
+    @DisplayName("Should keep the valid predictions of unchanged inputs and predict the others")
+    @SuppressWarnings("unchecked")
+    void testRun_ReusesUnchangedInputs() {
+        // Given - a and b have the same inputs; only a's predictions are stored
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(JobCheckpoint.class))).thenReturn(null);
+        when(mongoTemplate.stream(any(Query.class), eq(HealthProfile.class)))
+                .thenReturn(Stream.of(profile("a"), profile("b")));
+        when(mongoTemplate.stream(any(Query.class), eq(HealthMetric.class))).thenReturn(Stream.empty());
+        when(predictionRepository.findByUserIdInAndInputDigestInAndValidUntilAfter(anyCollection(), anyCollection(),
+                any(LocalDateTime.class))).thenAnswer(invocation -> invocation.<Collection<String>>getArgument(1)
+                .stream()
+                .map(digest -> HealthPrediction.builder().userId("a").inputDigest(digest).build())
+                .toList());
+
+        // When
+        JobCheckpoint checkpoint = job.run();
+
+        // Then - b's predictions only
+        ArgumentCaptor<Collection<HealthPrediction>> written = ArgumentCaptor.forClass(Collection.class);
+        verify(predictionRepository).upsertAll(written.capture());
+        assertTrue(written.getValue().stream().allMatch(prediction -> "b".equals(prediction.getUserId())));
+        assertEquals(written.getValue().size(), checkpoint.getProduced());
+        assertEquals(2, checkpoint.getProcessed());
+    }
+
+    @Test
+    @DisplayName("Should skip when another instance holds the lease")
+    void testRun_LeaseHeld() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(JobCheckpoint.class))).thenThrow(new DuplicateKeyException("lease held"));
+
+        assertNull(job.run());
+        verify(mongoTemplate, never()).stream(any(Query.class), eq(HealthProfile.class));
+        verify(predictionRepository, never()).upsertAll(anyCollection());
+    }
+
+    @Test
+    @DisplayName("Should digest a reading the same whether the job or the request path projected it")
+    void testDigest_IgnoresValuesOfOtherTypes() {
+        LocalDateTime measuredAt = LocalDateTime.now();
+        HealthMetric projected = HealthMetric.builder().id("bp1").metricType(MetricType.BLOOD_PRESSURE)
+                .systolic(140.0).diastolic(90.0).measuredAt(measuredAt).build();
+        HealthMetric full = HealthMetric.builder().id("bp1").metricType(MetricType.BLOOD_PRESSURE)
+                .value(140.0).systolic(140.0).diastolic(90.0).measuredAt(measuredAt).build();
+
+        assertEquals(new PredictionDigest("v1").addReadings(List.of(projected)).finish(),
+                new PredictionDigest("v1").addReadings(List.of(full)).finish());
+    }
+
+    private User user(String email) {
+        return User.builder().email(email).dateOfBirth(LocalDate.now().minusYears(55)).build();
+    }
+
+    private HealthProfile profile(String userId) {
+        return HealthProfile.builder().userId(userId).bmi(31.0).smokingStatus("CURRENT").build();
+    }
+
+    private HealthMetric bloodPressure(String userId, LocalDateTime measuredAt, double systolic, double diastolic) {
+        return HealthMetric.builder()
+                .id(userId + measuredAt)
+                .userId(userId)
+                .metricType(MetricType.BLOOD_PRESSURE)
+                .systolic(systolic)
+                .diastolic(diastolic)
+                .measuredAt(measuredAt)
+                .build();
+    }
+}
@@ -0,0 +1,106 @@
+package com.healthtracker.service.dss;
+
+import com.healthtracker.dss.engine.RuleCompiler;
+import com.healthtracker.dss.engine.RuleEngine;
+import com.healthtracker.dss.engine.RuleMetrics;
+import com.healthtracker.dss.engine.RuleOutcomeCache;
+import com.healthtracker.dto.request.RuleDefinitionRequest;
+import com.healthtracker.exception.BadRequestException;
+import com.healthtracker.exception.ConflictException;
+import com.healthtracker.model.MetricType;
+import com.healthtracker.model.RuleDefinition;
+import com.healthtracker.repository.RuleDefinitionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.support.StaticMessageSource;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for RuleCatalog
+ */
+@ExtendWith(MockitoExtension.class)
+class RuleCatalogTest {
+
+    @Mock
+    private RuleDefinitionRepository definitionRepository;
+
+    private RuleCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        catalog = new RuleCatalog(List.of(), definitionRepository, new RuleCompiler(new StaticMessageSource()),
+                new RuleEngine(8, 250, RuleMetrics.disabled(), RuleOutcomeCache.disabled()));
+        lenient().when(definitionRepository.findByEnabledTrue()).thenReturn(List.of());
+    }
+
+    @Test
+    @DisplayName("Should update the stored definition of the same name, keeping its id and version")
+    void testSaveDefinition_UpdatesByName() {
+        // Given
+        RuleDefinition stored = RuleDefinition.builder().id("r1").name("BLOOD_SUGAR_AVG").version(3L).build();
+        when(definitionRepository.findByName("BLOOD_SUGAR_AVG")).thenReturn(Optional.of(stored));
+        when(definitionRepository.save(any(RuleDefinition.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        RuleDefinition saved = catalog.saveDefinition(request());
+
+        // Then
+        assertEquals("r1", saved.getId());
+        assertEquals(3L, saved.getVersion());
+        assertEquals(RuleDefinition.Aggregate.AVERAGE, saved.getAggregate());
+        assertEquals(200.0, saved.getThresholds().get(0).getValue());
+        assertEquals(RuleDefinition.Field.VALUE, saved.getField());
+        assertNotNull(saved.getUpdatedAt());
+        verify(definitionRepository).findByEnabledTrue();
+    }
+
+    @Test
+    @DisplayName("Should report concurrent creates and edits as conflicts")
+    void testSaveDefinition_Conflicts() {
+        when(definitionRepository.findByName("BLOOD_SUGAR_AVG")).thenReturn(Optional.empty());
+        when(definitionRepository.save(any(RuleDefinition.class)))
+                .thenThrow(new DuplicateKeyException("name"))
+                .thenThrow(new OptimisticLockingFailureException("version"));
+
+        assertThrows(ConflictException.class, () -> catalog.saveDefinition(request()));
+        assertThrows(ConflictException.class, () -> catalog.saveDefinition(request()));
+        verify(definitionRepository, never()).findByEnabledTrue();
+    }
+
+    @Test
+    @DisplayName("Should reject a definition that does not compile without saving it")
+    void testSaveDefinition_Invalid() {
+        when(definitionRepository.findByName("BLOOD_SUGAR_AVG")).thenReturn(Optional.empty());
+        RuleDefinitionRequest request = request();
+        request.setField(RuleDefinition.Field.DIASTOLIC);
+
+        assertThrows(BadRequestException.class, () -> catalog.saveDefinition(request));
+        verify(definitionRepository, never()).save(any());
+    }
+
+    private RuleDefinitionRequest request() {
+        return RuleDefinitionRequest.builder()
+                .name("BLOOD_SUGAR_AVG")
+                .metricType(MetricType.BLOOD_SUGAR)
+                .aggregate(RuleDefinition.Aggregate.AVERAGE)
+                .windowReadings(3)
+                .minReadings(2)
+                .operator(RuleDefinition.Operator.GTE)
+                .thresholds(List.of(
+                        new RuleDefinitionRequest.Threshold(200.0, "CRITICAL", "rule.blood_sugar.critical"),
+                        new RuleDefinitionRequest.Threshold(126.0, "WARNING", "rule.blood_sugar.high")))
+                .build();
+    }
+}
@@ -0,0 +1,210 @@
+package com.healthtracker.service.dss;
+
+import com.healthtracker.dss.engine.MetricSeries;
+import com.healthtracker.dss.engine.RuleEngine;
+import com.healthtracker.dss.engine.RuleMetrics;
+import com.healthtracker.dss.engine.RuleOutcome;
+import com.healthtracker.dss.engine.RuleOutcomeCache;
+import com.healthtracker.dss.engine.RuleResult;
+import com.healthtracker.dss.rules.BMIRule;
+import com.healthtracker.dss.rules.BloodPressureRule;
+import com.healthtracker.model.HealthInsight;
+import com.healthtracker.model.HealthMetric;
+import com.healthtracker.model.HealthProfile;
+import com.healthtracker.model.JobCheckpoint;
+import com.healthtracker.model.MetricType;
+import com.healthtracker.repository.JobCheckpointRepository;
+import com.mongodb.client.result.UpdateResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.MessageSource;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for RuleSweepJob
+ */
+@ExtendWith(MockitoExtension.class)
+class RuleSweepJobTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private JobCheckpointRepository checkpointRepository;
+
+    @Mock
+    private RuleCatalog ruleCatalog;
+
+    @Mock
+    private InsightWriteBehindSink insightSink;
+
+    @Mock
+    private MessageSource messageSource;
+
+    private RuleSweepJob job;
+
+    private final LocalDateTime now = LocalDateTime.now();
+
+    @BeforeEach
+    void setUp() {
+        job = new RuleSweepJob(mongoTemplate, checkpointRepository, ruleCatalog, new RuleEngine(8, 250, RuleMetrics.disabled(), RuleOutcomeCache.disabled()),
+                List.of(new BMIRule()), insightSink, messageSource, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(job, "chunkSize", 2);
+
+        lenient().when(messageSource.getMessage(anyString(), any(), any(Locale.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        lenient().when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(JobCheckpoint.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        lenient().when(insightSink.writeAll(anyCollection()))
+                .thenAnswer(invocation -> invocation.<Collection<?>>getArgument(0).size());
+
+        // The catalog holds the built-in blood pressure rule only
+        BloodPressureRule rule = new BloodPressureRule();
+        lenient().when(ruleCatalog.evaluate(any(MetricSeries.class))).thenAnswer(invocation -> {
+            RuleResult result = new RuleResult();
+            RuleOutcome outcome = rule.evaluate(invocation.getArgument(0));
+            if (outcome.isFired()) {
+                result.addFiredRule(rule, outcome);
+            }
+            return result;
+        });
+    }
+
+    @Test
+    @DisplayName("Should sweep users in chunks, bulk write their insights and checkpoint each chunk")
+    void testRun_ChunksAndCheckpoints() {
+        // Given - three users sorted by userId; a has high blood pressure, c a high BMI
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(JobCheckpoint.class))).thenReturn(null);
+        List<HealthMetric> metrics = new ArrayList<>();
+        for (int i = 3; i > 0; i--) {
+            metrics.add(bloodPressure("a", now.minusDays(i), 160, 100));
+        }
+        metrics.add(bloodPressure("b", now.minusDays(1), 118, 76));
+        metrics.add(bloodPressure("c", now.minusDays(1), 120, 80));
+        when(mongoTemplate.stream(any(Query.class), eq(HealthMetric.class))).thenReturn(metrics.stream());
+        when(mongoTemplate.stream(any(Query.class), eq(HealthProfile.class))).thenReturn(Stream.of(
+                HealthProfile.builder().userId("c").bmi(36.0).build()));
+
+        // When
+        JobCheckpoint checkpoint = job.run();
+
+        // Then - chunks [a, b] and [c]
+        assertEquals(JobLease.COMPLETED, checkpoint.getStatus());
+        assertEquals("c", checkpoint.getLastKey());
+        assertEquals(3, checkpoint.getProcessed());
+        assertEquals(2, checkpoint.getProduced());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<HealthInsight>> written = ArgumentCaptor.forClass(Collection.class);
+        verify(insightSink, times(2)).writeAll(written.capture());
+        HealthInsight bloodPressure = written.getAllValues().get(0).iterator().next();
+        assertEquals("a", bloodPressure.getUserId());
+        assertEquals("BLOOD_PRESSURE", bloodPressure.getCategory());
+        assertEquals("CRITICAL", bloodPressure.getSeverity());
+        HealthInsight bmi = written.getAllValues().get(1).iterator().next();
+        assertEquals("c", bmi.getUserId());
+        assertEquals("HEALTH_PROFILE", bmi.getCategory());
+        verify(insightSink, never()).submit(any());
+    }
+
+    @Test
+    @DisplayName("Should evaluate the profile rules of users without recent metrics")
+    void testRun_ProfileOnlyUsers() {
+        // Given - b and d have a profile but no recent metric, a and c the other way round
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(JobCheckpoint.class))).thenReturn(null);
+        when(mongoTemplate.stream(any(Query.class), eq(HealthMetric.class))).thenReturn(Stream.of(
+                bloodPressure("a", now.minusDays(1), 120, 80),
+                bloodPressure("c", now.minusDays(1), 120, 80)));
+        when(mongoTemplate.stream(any(Query.class), eq(HealthProfile.class))).thenReturn(Stream.of(
+                HealthProfile.builder().userId("b").bmi(36.0).build(),
+                HealthProfile.builder().userId("d").bmi(36.0).build()));
+
+        // When
+        JobCheckpoint checkpoint = job.run();
+
+        // Then - merged in user order into chunks [a, b] and [c, d]
+        assertEquals(4, checkpoint.getProcessed());
+        assertEquals("d", checkpoint.getLastKey());
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<HealthInsight>> written = ArgumentCaptor.forClass(Collection.class);
+        verify(insightSink, times(2)).writeAll(written.capture());
+        assertEquals(List.of("b", "d"), written.getAllValues().stream()
+                .flatMap(Collection::stream)
+                .filter(insight -> "HEALTH_PROFILE".equals(insight.getCategory()))
+                .map(HealthInsight::getUserId)
+                .toList());
+    }
+
+    @Test
+    @DisplayName("Should resume after the last checkpointed user of an unfinished run")
+    void testRun_ResumesAfterCrash() {
+        // Given - the previous run crashed after user b
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(JobCheckpoint.class))).thenReturn(JobCheckpoint.builder()
+                .id(RuleSweepJob.JOB_NAME)
+                .status(JobLease.RUNNING)
+                .lastKey("b")
+                .processed(2)
+                .startedAt(now.minusHours(1))
+                .build());
+        when(mongoTemplate.stream(any(Query.class), eq(HealthMetric.class)))
+                .thenReturn(Stream.of(bloodPressure("c", now.minusDays(1), 120, 80)));
+
+        // When
+        JobCheckpoint checkpoint = job.run();
+
+        // Then - both cursors start after b
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).stream(query.capture(), eq(HealthMetric.class));
+        assertEquals("b", query.getValue().getQueryObject().get("userId", Document.class).get("$gt"));
+        verify(mongoTemplate).stream(query.capture(), eq(HealthProfile.class));
+        assertEquals("b", query.getValue().getQueryObject().get("userId", Document.class).get("$gt"));
+        assertEquals(3, checkpoint.getProcessed());
+        assertEquals(now.minusHours(1), checkpoint.getStartedAt());
+    }
+
+    @Test
+    @DisplayName("Should skip when another instance holds the lease")
+    void testRun_LeaseHeld() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(JobCheckpoint.class))).thenThrow(new DuplicateKeyException("lease held"));
+
+        assertNull(job.run());
+        verify(mongoTemplate, never()).stream(any(Query.class), eq(HealthMetric.class));
+    }
+
+    private HealthMetric bloodPressure(String userId, LocalDateTime measuredAt, double systolic, double diastolic) {
+        return HealthMetric.builder()
+                .userId(userId)
+                .metricType(MetricType.BLOOD_PRESSURE)
+                .systolic(systolic)
+                .diastolic(diastolic)
+                .measuredAt(measuredAt)
+                .build();
+    }
+}
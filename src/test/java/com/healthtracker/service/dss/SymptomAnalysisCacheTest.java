@@ -0,0 +1,113 @@
+package com.healthtracker.service.dss;
+
+import com.healthtracker.dto.response.SymptomAnalysisResponse;
+import com.healthtracker.model.Symptom;
+import com.healthtracker.service.SymptomDiseaseMappingService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for SymptomAnalysisCache
+ */
+@ExtendWith(MockitoExtension.class)
+class SymptomAnalysisCacheTest {
+
+    @Mock
+    private SymptomDiseaseMappingService mappingService;
+
+    private SymptomAnalysisCache cache;
+
+    private final String userId = "test@example.com";
+    private final Locale locale = Locale.forLanguageTag("vi");
+    private final LocalDateTime start = LocalDateTime.now().minusDays(1);
+
+    @BeforeEach
+    void setUp() {
+        cache = new SymptomAnalysisCache(mappingService);
+        lenient().when(mappingService.getKnowledgeBaseVersion()).thenReturn(1L);
+    }
+
+    @Test
+    @DisplayName("Should serve a result only for the same active symptoms")
+    void testGet_SameFingerprint() {
+        // Given
+        List<Symptom> symptoms = List.of(createSymptom("Đau đầu", 5, start));
+        SymptomAnalysisResponse response = SymptomAnalysisResponse.noSymptoms();
+        cache.put(userId, symptoms, locale, response);
+        long fingerprint = SymptomAnalysisCache.fingerprint(symptoms);
+
+        // Then
+        assertSame(response, cache.get(userId, fingerprint, locale));
+        assertNull(cache.get(userId, fingerprint, Locale.ENGLISH));
+
+        // Symptoms edited, on this or another instance
+        assertNull(cache.get(userId, SymptomAnalysisCache.fingerprint(
+                List.of(createSymptom("Đau đầu", 7, start))), locale));
+    }
+
+    @Test
+    @DisplayName("Should expire with the insight, even once every symptom is persistent")
+    void testGet_ExpiresWithInsight() {
+        // Given - a symptom persistent for weeks
+        List<Symptom> symptoms = List.of(createSymptom("Đau đầu", 5, start.minusDays(30)));
+        long fingerprint = SymptomAnalysisCache.fingerprint(symptoms);
+        cache.put(userId, symptoms, locale, SymptomAnalysisResponse.noSymptoms());
+
+        // Then
+        ReflectionTestUtils.setField(cache, "clock", Clock.offset(Clock.systemDefaultZone(), Duration.ofDays(6)));
+        assertNotNull(cache.get(userId, fingerprint, locale));
+        ReflectionTestUtils.setField(cache, "clock", Clock.offset(Clock.systemDefaultZone(),
+                Duration.ofDays(SymptomAnalysisService.INSIGHT_TTL_DAYS)));
+        assertNull(cache.get(userId, fingerprint, locale));
+    }
+
+    @Test
+    @DisplayName("Should not serve results of another knowledge base version")
+    void testKnowledgeBaseVersion() {
+        // Given
+        List<Symptom> symptoms = List.of();
+        cache.put(userId, symptoms, locale, SymptomAnalysisResponse.noSymptoms());
+
+        // When
+        when(mappingService.getKnowledgeBaseVersion()).thenReturn(2L);
+
+        // Then
+        assertNull(cache.get(userId, SymptomAnalysisCache.fingerprint(symptoms), locale));
+    }
+
+    @Test
+    @DisplayName("Fingerprint should ignore order but not severity or start date")
+    void testFingerprint() {
+        Symptom headache = createSymptom("Đau đầu", 5, start);
+        Symptom nausea = createSymptom("Buồn nôn", 3, start);
+
+        assertEquals(SymptomAnalysisCache.fingerprint(List.of(headache, nausea)),
+                SymptomAnalysisCache.fingerprint(List.of(nausea, headache)));
+        assertNotEquals(SymptomAnalysisCache.fingerprint(List.of(headache, nausea)),
+                SymptomAnalysisCache.fingerprint(List.of(headache, createSymptom("Buồn nôn", 4, start))));
+        assertNotEquals(SymptomAnalysisCache.fingerprint(List.of(headache)),
+                SymptomAnalysisCache.fingerprint(List.of(createSymptom("Đau đầu", 5, start.minusDays(1)))));
+    }
+
+    private Symptom createSymptom(String name, int severity, LocalDateTime startDate) {
+        Symptom symptom = new Symptom();
+        symptom.setSymptomName(name);
+        symptom.setSeverity(severity);
+        symptom.setStartDate(startDate);
+        return symptom;
+    }
+}
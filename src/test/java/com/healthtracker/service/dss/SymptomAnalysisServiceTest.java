@@ -5,7 +5,6 @@ import com.healthtracker.dto.response.SymptomAnalysisResponse;
 import com.healthtracker.model.Symptom;
 import com.healthtracker.model.SymptomDiseaseMapping;
 import com.healthtracker.model.SymptomPattern;
-import com.healthtracker.repository.HealthInsightRepository;
 import com.healthtracker.repository.SymptomRepository;
 import com.healthtracker.service.SymptomDiseaseMappingService;
 import org.junit.jupiter.api.BeforeEach;
@@ -41,11 +40,14 @@ class SymptomAnalysisServiceTest {
     private SymptomDiseaseMappingService mappingService;
 
     @Mock
-    private HealthInsightRepository insightRepository;
+    private InsightWriteBehindSink insightSink;
 
     @Mock
     private MessageSource messageSource;
 
+    @Mock
+    private SymptomAnalysisCache analysisCache;
+
     @InjectMocks
     private SymptomAnalysisService symptomAnalysisService;
 
@@ -100,8 +102,6 @@ class SymptomAnalysisServiceTest {
                 .thenReturn(symptoms);
         when(mappingService.findRelevantMappings(anyList()))
                 .thenReturn(mappings);
-        when(insightRepository.save(any()))
-                .thenReturn(null);
         
         // When
         SymptomAnalysisResponse response = symptomAnalysisService.analyzeSymptoms(userId);
@@ -114,6 +114,7 @@ class SymptomAnalysisServiceTest {
         
         verify(symptomRepository).findByUserIdAndEndDateIsNull(userId);
         verify(mappingService).findRelevantMappings(anyList());
+        verify(insightSink).submit(any());
     }
     
     @Test
@@ -132,8 +133,6 @@ class SymptomAnalysisServiceTest {
                 .thenReturn(symptoms);
         when(mappingService.findRelevantMappings(anyList()))
                 .thenReturn(Arrays.asList(criticalMapping));
-        when(insightRepository.save(any()))
-                .thenReturn(null);
         
         // When
         SymptomAnalysisResponse response = symptomAnalysisService.analyzeSymptoms(userId);